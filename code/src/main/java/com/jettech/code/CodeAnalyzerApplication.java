@@ -3,9 +3,11 @@ package com.jettech.code;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class CodeAnalyzerApplication {
     public static void main(String[] args) {
         SpringApplication.run(CodeAnalyzerApplication.class, args);
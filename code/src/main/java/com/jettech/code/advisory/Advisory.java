@@ -0,0 +1,74 @@
+package com.jettech.code.advisory;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 包级别的漏洞公告（OSV 格式精简）
+ * 保留受影响范围的原始事件，由 AffectedRangeMatcher 在本地判断具体版本是否受影响
+ */
+@Data
+public class Advisory {
+    private String id;
+    private String cveId;
+    private String summary;
+    private String details;
+    private String severityType;
+    private String severityScore;
+    private String references;
+    private String modified;
+    private String published;
+
+    // 提供该公告的数据源名称
+    private String source;
+
+    private List<Affected> affected = new ArrayList<>();
+
+    @JsonIgnore
+    public String getNormalizedSeverity() {
+        Double score = getCvssScore();
+        if (score != null && severityType != null && severityType.startsWith("CVSS_")) {
+            if (score >= 9.0) return "CRITICAL";
+            if (score >= 7.0) return "HIGH";
+            if (score >= 4.0) return "MEDIUM";
+            return "LOW";
+        }
+        return "MEDIUM";
+    }
+
+    @JsonIgnore
+    public Double getCvssScore() {
+        if (severityScore != null) {
+            try {
+                return Double.parseDouble(severityScore);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Data
+    public static class Affected {
+        private String packageName;
+        private List<Range> ranges = new ArrayList<>();
+        private List<String> versions = new ArrayList<>();
+    }
+
+    @Data
+    public static class Range {
+        // SEMVER / ECOSYSTEM / GIT
+        private String type;
+        private List<Event> events = new ArrayList<>();
+    }
+
+    @Data
+    public static class Event {
+        private String introduced;
+        private String fixed;
+        private String lastAffected;
+    }
+}
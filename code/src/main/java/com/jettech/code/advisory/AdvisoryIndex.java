@@ -0,0 +1,148 @@
+package com.jettech.code.advisory;
+
+import com.jettech.code.dto.VulnerabilityInfo;
+import com.jettech.code.version.Version;
+import com.jettech.code.version.VersionScheme;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单个生态系统的内存公告索引：规范化包名 -> (公告, 预编译匹配器)
+ * 构建后只读，可被多个线程并发查询
+ */
+public class AdvisoryIndex {
+
+    private final String ecosystem;
+    private final VersionScheme scheme;
+    private final Map<String, Advisory> byId = new HashMap<>();
+    private final Map<String, List<Entry>> byPackage = new HashMap<>();
+    private final boolean complete;
+
+    public AdvisoryIndex(String ecosystem, Collection<Advisory> advisories) {
+        this(ecosystem, advisories, true);
+    }
+
+    /**
+     * @param complete 为 false 表示部分数据源查询失败，索引中的公告可能不全
+     */
+    public AdvisoryIndex(String ecosystem, Collection<Advisory> advisories, boolean complete) {
+        this.ecosystem = ecosystem;
+        this.complete = complete;
+        this.scheme = VersionScheme.forEcosystem(ecosystem);
+        for (Advisory advisory : advisories) {
+            byId.put(advisory.getId(), advisory);
+            for (Advisory.Affected affected : advisory.getAffected()) {
+                byPackage.computeIfAbsent(normalizeName(ecosystem, affected.getPackageName()), k -> new ArrayList<>(2))
+                    .add(new Entry(advisory, AffectedRangeMatcher.compile(affected, scheme)));
+            }
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public List<Entry> lookup(String packageName) {
+        return byPackage.getOrDefault(normalizeName(ecosystem, packageName), List.of());
+    }
+
+    /**
+     * 在本地判断包的某个版本受哪些公告影响
+     */
+    public List<VulnerabilityInfo> evaluate(String packageName, String version) {
+        List<Entry> entries = lookup(packageName);
+        if (entries.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Version parsedVersion = scheme.parse(version);
+        List<VulnerabilityInfo> results = new ArrayList<>();
+        Set<String> matched = new HashSet<>();
+        for (Entry entry : entries) {
+            if (entry.matcher().matches(version, parsedVersion) && matched.add(entry.advisory().getId())) {
+                results.add(toVulnerabilityInfo(entry, packageName, version, parsedVersion));
+            }
+        }
+        return results;
+    }
+
+    public VersionScheme getScheme() {
+        return scheme;
+    }
+
+    public Advisory getAdvisory(String id) {
+        return byId.get(id);
+    }
+
+    public Collection<Advisory> getAdvisories() {
+        return byId.values();
+    }
+
+    public int getAdvisoryCount() {
+        return byId.size();
+    }
+
+    public int getPackageCount() {
+        return byPackage.size();
+    }
+
+    /**
+     * 规范化包名：PyPI 按 PEP 503 忽略大小写及 -_. 差异，其他生态系统保持原样
+     */
+    public static String normalizeName(String ecosystem, String packageName) {
+        if ("PyPI".equalsIgnoreCase(ecosystem)) {
+            return packageName.toLowerCase(Locale.ROOT).replaceAll("[-_.]+", "-");
+        }
+        return packageName;
+    }
+
+    private VulnerabilityInfo toVulnerabilityInfo(Entry entry, String packageName, String version,
+                                                  Version parsedVersion) {
+        Advisory advisory = entry.advisory();
+        String introduced = entry.matcher().introducedVersionBefore(parsedVersion);
+        String fixed = entry.matcher().fixedVersionAfter(parsedVersion);
+        // introduced 为 0 且没有修复版本时等同于"所有版本"，不展示为范围
+        boolean allVersions = "0".equals(introduced) && fixed == null;
+
+        VulnerabilityInfo info = new VulnerabilityInfo();
+        info.setId(advisory.getId());
+        info.setCveId(advisory.getCveId() != null ? advisory.getCveId() : advisory.getId());
+        info.setPackageName(packageName);
+        info.setEcosystem(ecosystem);
+        info.setVersion(version);
+        info.setTitle(advisory.getSummary());
+        info.setDescription(advisory.getDetails());
+        info.setSeverity(advisory.getNormalizedSeverity());
+        info.setCvssScore(advisory.getCvssScore());
+        info.setAffectedVersion(introduced != null && !allVersions ? ">= " + introduced : "unknown");
+        info.setFixedVersion(fixed != null ? ">= " + fixed : "unknown");
+        info.setReferences(advisory.getReferences());
+        info.setSource(advisory.getSource());
+        info.setPublishedAt(parseDateTime(advisory.getPublished()));
+
+        return info;
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public record Entry(Advisory advisory, AffectedRangeMatcher matcher) {
+    }
+}
@@ -0,0 +1,210 @@
+package com.jettech.code.advisory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 单个生态系统的磁盘公告存储（只读，线程安全）
+ * 公告逐条压缩后追加写入数据文件并以只读方式映射，公告内容不占用堆内存；
+ * 堆上只保留 公告ID -> 位置 的偏移表和 规范化包名 -> 公告ID 的倒排表，
+ * 查询时按偏移读取该包的公告并编译匹配器，最近查询过的包按 LRU 缓存
+ */
+public final class AdvisoryStore {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final String ecosystem;
+    private final Path dataFile;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Location> locations;
+    private final Map<String, List<String>> packages = new HashMap<>();
+    private final Map<String, AdvisoryIndex> cache;
+
+    private AdvisoryStore(String ecosystem, Path dataFile, MappedByteBuffer buffer,
+                          Map<String, Location> locations, int cacheSize) {
+        this.ecosystem = ecosystem;
+        this.dataFile = dataFile;
+        this.buffer = buffer;
+        this.locations = locations;
+        for (Map.Entry<String, Location> entry : locations.entrySet()) {
+            for (String packageName : entry.getValue().packages()) {
+                packages.computeIfAbsent(packageName, k -> new ArrayList<>(2)).add(entry.getKey());
+            }
+        }
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AdvisoryIndex> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * 打开数据文件
+     * @param dataLength 已提交的数据长度，之后追加但未提交的内容不可见
+     * @param locations  公告ID -> 位置，由调用方持久化
+     * @param cacheSize  缓存的包数
+     */
+    public static AdvisoryStore open(String ecosystem, Path dataFile, long dataLength,
+                                     Map<String, Location> locations, int cacheSize) throws IOException {
+        if (dataLength > Integer.MAX_VALUE) {
+            throw new IllegalStateException("公告数据文件超过 2GB: " + dataFile);
+        }
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataLength);
+            return new AdvisoryStore(ecosystem, dataFile, buffer, locations, Math.max(0, cacheSize));
+        }
+    }
+
+    /**
+     * 包的公告索引，只包含影响该包的公告；包没有公告时返回空索引
+     */
+    public AdvisoryIndex lookup(String packageName) {
+        String name = AdvisoryIndex.normalizeName(ecosystem, packageName);
+        AdvisoryIndex index = cache.get(name);
+        if (index == null) {
+            List<Advisory> advisories = new ArrayList<>();
+            for (String id : packages.getOrDefault(name, List.of())) {
+                advisories.add(read(locations.get(id)));
+            }
+            index = new AdvisoryIndex(ecosystem, advisories);
+            cache.put(name, index);
+        }
+        return index;
+    }
+
+    public Location getLocation(String id) {
+        return locations.get(id);
+    }
+
+    public Map<String, Location> getLocations() {
+        return Collections.unmodifiableMap(locations);
+    }
+
+    public Path getDataFile() {
+        return dataFile;
+    }
+
+    public int getAdvisoryCount() {
+        return locations.size();
+    }
+
+    public int getPackageCount() {
+        return packages.size();
+    }
+
+    public int getCachedPackageCount() {
+        return cache.size();
+    }
+
+    public long getDataBytes() {
+        return buffer.capacity();
+    }
+
+    private Advisory read(Location location) {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(readRaw(location)))) {
+            return MAPPER.readValue(in, Advisory.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("公告数据文件损坏: " + dataFile, e);
+        }
+    }
+
+    private byte[] readRaw(Location location) {
+        byte[] bytes = new byte[location.length()];
+        buffer.get((int) location.offset(), bytes);
+        return bytes;
+    }
+
+    /**
+     * 公告在数据文件中的位置
+     * @param crc      导入时对应 zip 条目的 CRC，增量导入据此判断公告是否变化
+     * @param packages 公告影响的规范化包名
+     */
+    public record Location(long crc, long offset, int length, List<String> packages) {
+    }
+
+    /**
+     * 数据文件写入器，在文件末尾追加，已有内容不变
+     */
+    public static final class Writer implements Closeable {
+
+        private final String ecosystem;
+        private final FileChannel channel;
+        private long position;
+
+        public Writer(Path dataFile, String ecosystem) throws IOException {
+            this.ecosystem = ecosystem;
+            this.channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.position = channel.size();
+        }
+
+        public Location append(Advisory advisory, long crc) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream out = new DeflaterOutputStream(bytes)) {
+                MAPPER.writeValue(out, advisory);
+            }
+
+            Set<String> names = new LinkedHashSet<>();
+            for (Advisory.Affected affected : advisory.getAffected()) {
+                names.add(AdvisoryIndex.normalizeName(ecosystem, affected.getPackageName()));
+            }
+            return write(bytes.toByteArray(), crc, List.copyOf(names));
+        }
+
+        /**
+         * 原样复制另一个存储中的公告，用于压缩数据文件
+         */
+        public Location copy(AdvisoryStore source, Location location) throws IOException {
+            return write(source.readRaw(location), location.crc(), location.packages());
+        }
+
+        /**
+         * 刷盘并返回数据长度，之后才能提交引用新位置的偏移表
+         */
+        public long finish() throws IOException {
+            channel.force(false);
+            return position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private Location write(byte[] bytes, long crc, List<String> packages) throws IOException {
+            if (position + bytes.length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("公告数据文件超过 2GB");
+            }
+            ByteBuffer source = ByteBuffer.wrap(bytes);
+            long offset = position;
+            while (source.hasRemaining()) {
+                position += channel.write(source, position);
+            }
+            return new Location(crc, offset, bytes.length, packages);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.jettech.code.advisory;
+
+import com.jettech.code.version.Version;
+import com.jettech.code.version.VersionScheme;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 预编译的受影响版本匹配器
+ * 构建时按生态系统的版本方案把每个范围的事件解析为版本对象并排序，匹配时只做比较，不再解析字符串
+ * 语义遵循 OSV 规范：按版本顺序回放 introduced/fixed/last_affected 事件，GIT 范围无法在本地判断，忽略
+ */
+public final class AffectedRangeMatcher {
+
+    private static final int INTRODUCED = 0;
+    private static final int FIXED = 1;
+    private static final int LAST_AFFECTED = 2;
+
+    private final CompiledRange[] ranges;
+    private final Set<String> versions;
+
+    private AffectedRangeMatcher(CompiledRange[] ranges, Set<String> versions) {
+        this.ranges = ranges;
+        this.versions = versions;
+    }
+
+    public static AffectedRangeMatcher compile(Advisory.Affected affected, VersionScheme scheme) {
+        List<CompiledRange> compiled = new ArrayList<>();
+        for (Advisory.Range range : affected.getRanges()) {
+            if ("GIT".equalsIgnoreCase(range.getType()) || range.getEvents().isEmpty()) {
+                continue;
+            }
+            compiled.add(CompiledRange.of(range.getEvents(), scheme));
+        }
+        Set<String> versions = affected.getVersions().isEmpty() ? Set.of() : new HashSet<>(affected.getVersions());
+        return new AffectedRangeMatcher(compiled.toArray(new CompiledRange[0]), versions);
+    }
+
+    public boolean matches(String rawVersion, Version version) {
+        if (versions.contains(rawVersion)) {
+            return true;
+        }
+        for (CompiledRange range : ranges) {
+            if (range.matches(version)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 大于给定版本的最小修复版本，没有则返回 null
+     */
+    public String fixedVersionAfter(Version version) {
+        Version best = null;
+        for (CompiledRange range : ranges) {
+            for (int i = 0; i < range.kinds.length; i++) {
+                Version bound = range.bounds[i];
+                if (range.kinds[i] == FIXED && bound.compareTo(version) > 0
+                        && (best == null || bound.compareTo(best) < 0)) {
+                    best = bound;
+                }
+            }
+        }
+        return best != null ? best.getRaw() : null;
+    }
+
+    /**
+     * 不大于给定版本的最大引入版本，没有则返回 null
+     */
+    public String introducedVersionBefore(Version version) {
+        String best = null;
+        Version bestBound = null;
+        for (CompiledRange range : ranges) {
+            for (int i = 0; i < range.kinds.length; i++) {
+                if (range.kinds[i] != INTRODUCED) {
+                    continue;
+                }
+                Version bound = range.bounds[i];
+                if (bound == null) {
+                    if (best == null) {
+                        best = "0";
+                    }
+                } else if (bound.compareTo(version) <= 0 && (bestBound == null || bound.compareTo(bestBound) > 0)) {
+                    bestBound = bound;
+                    best = bound.getRaw();
+                }
+            }
+        }
+        return best;
+    }
+
+    private static final class CompiledRange {
+        private final int[] kinds;
+        // introduced 为 "0" 时边界为 null，表示从最早版本开始
+        private final Version[] bounds;
+
+        private CompiledRange(int[] kinds, Version[] bounds) {
+            this.kinds = kinds;
+            this.bounds = bounds;
+        }
+
+        static CompiledRange of(List<Advisory.Event> events, VersionScheme scheme) {
+            List<Bound> parsed = new ArrayList<>();
+            for (Advisory.Event event : events) {
+                if (event.getIntroduced() != null) {
+                    Version bound = "0".equals(event.getIntroduced()) ? null : scheme.parse(event.getIntroduced());
+                    parsed.add(new Bound(INTRODUCED, bound));
+                } else if (event.getFixed() != null) {
+                    parsed.add(new Bound(FIXED, scheme.parse(event.getFixed())));
+                } else if (event.getLastAffected() != null) {
+                    parsed.add(new Bound(LAST_AFFECTED, scheme.parse(event.getLastAffected())));
+                }
+            }
+            parsed.sort(Comparator.comparing(Bound::version, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+            int[] kinds = new int[parsed.size()];
+            Version[] bounds = new Version[parsed.size()];
+            for (int i = 0; i < parsed.size(); i++) {
+                kinds[i] = parsed.get(i).kind();
+                bounds[i] = parsed.get(i).version();
+            }
+            return new CompiledRange(kinds, bounds);
+        }
+
+        boolean matches(Version version) {
+            boolean affected = false;
+            for (int i = 0; i < kinds.length; i++) {
+                Version bound = bounds[i];
+                switch (kinds[i]) {
+                    case INTRODUCED -> {
+                        if (bound == null || version.compareTo(bound) >= 0) {
+                            affected = true;
+                        }
+                    }
+                    case FIXED -> {
+                        if (version.compareTo(bound) >= 0) {
+                            affected = false;
+                        }
+                    }
+                    default -> {
+                        if (version.compareTo(bound) > 0) {
+                            affected = false;
+                        }
+                    }
+                }
+            }
+            return affected;
+        }
+    }
+
+    private record Bound(int kind, Version version) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.jettech.code.advisory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 把 OSV 格式的完整漏洞 JSON 解析为 Advisory
+ * 只保留指定生态系统下的受影响包，保留全部范围事件供本地匹配
+ */
+public final class OsvAdvisoryParser {
+
+    private OsvAdvisoryParser() {
+    }
+
+    /**
+     * @param ecosystem 只保留该生态系统的受影响条目，为 null 时保留全部
+     * @return 没有 id 或没有匹配的受影响条目时返回 null
+     */
+    public static Advisory parse(JsonNode vulnNode, String ecosystem) {
+        Advisory advisory = new Advisory();
+        advisory.setId(text(vulnNode, "id"));
+        if (advisory.getId() == null) {
+            return null;
+        }
+        advisory.setSummary(text(vulnNode, "summary"));
+        advisory.setDetails(text(vulnNode, "details"));
+        advisory.setModified(text(vulnNode, "modified"));
+        advisory.setPublished(text(vulnNode, "published"));
+
+        JsonNode severityArray = vulnNode.get("severity");
+        if (severityArray != null && severityArray.isArray() && severityArray.size() > 0) {
+            advisory.setSeverityType(text(severityArray.get(0), "type"));
+            advisory.setSeverityScore(text(severityArray.get(0), "score"));
+        }
+
+        JsonNode affectedArray = vulnNode.get("affected");
+        if (affectedArray != null && affectedArray.isArray()) {
+            for (JsonNode affectedNode : affectedArray) {
+                Advisory.Affected affected = parseAffected(affectedNode, ecosystem);
+                if (affected != null) {
+                    advisory.getAffected().add(affected);
+                }
+            }
+        }
+        if (advisory.getAffected().isEmpty()) {
+            return null;
+        }
+
+        JsonNode refsArray = vulnNode.get("references");
+        if (refsArray != null && refsArray.isArray()) {
+            StringBuilder refs = new StringBuilder();
+            for (JsonNode ref : refsArray) {
+                String url = text(ref, "url");
+                // 与在线查询保持一致，过滤掉GitHub链接
+                if (url != null && !url.toLowerCase().contains("github.com")) {
+                    if (refs.length() > 0) refs.append("\n");
+                    refs.append(url);
+                }
+            }
+            advisory.setReferences(refs.length() > 0 ? refs.toString() : null);
+        }
+
+        String id = advisory.getId();
+        if (id.startsWith("CVE-") || id.contains("-CVE-")) {
+            advisory.setCveId(id);
+        } else {
+            JsonNode aliases = vulnNode.get("aliases");
+            if (aliases != null && aliases.isArray()) {
+                for (JsonNode alias : aliases) {
+                    if (alias.asText().startsWith("CVE-")) {
+                        advisory.setCveId(alias.asText());
+                        break;
+                    }
+                }
+            }
+        }
+
+        return advisory;
+    }
+
+    private static Advisory.Affected parseAffected(JsonNode affectedNode, String ecosystem) {
+        JsonNode packageNode = affectedNode.get("package");
+        String name = text(packageNode, "name");
+        String affectedEcosystem = text(packageNode, "ecosystem");
+        if (name == null || (ecosystem != null && !sameEcosystem(ecosystem, affectedEcosystem))) {
+            return null;
+        }
+
+        Advisory.Affected affected = new Advisory.Affected();
+        affected.setPackageName(name);
+
+        JsonNode rangesArray = affectedNode.get("ranges");
+        if (rangesArray != null && rangesArray.isArray()) {
+            for (JsonNode rangeNode : rangesArray) {
+                Advisory.Range range = new Advisory.Range();
+                range.setType(text(rangeNode, "type"));
+                JsonNode events = rangeNode.get("events");
+                if (events != null && events.isArray()) {
+                    for (JsonNode eventNode : events) {
+                        Advisory.Event event = new Advisory.Event();
+                        event.setIntroduced(text(eventNode, "introduced"));
+                        event.setFixed(text(eventNode, "fixed"));
+                        event.setLastAffected(text(eventNode, "last_affected"));
+                        range.getEvents().add(event);
+                    }
+                }
+                affected.getRanges().add(range);
+            }
+        }
+
+        JsonNode versionsArray = affectedNode.get("versions");
+        if (versionsArray != null && versionsArray.isArray()) {
+            for (JsonNode version : versionsArray) {
+                affected.getVersions().add(version.asText());
+            }
+        }
+
+        return affected;
+    }
+
+    /**
+     * OSV 生态系统名可能带后缀，例如 "Debian:11"
+     */
+    private static boolean sameEcosystem(String expected, String actual) {
+        if (actual == null) {
+            return false;
+        }
+        int colon = actual.indexOf(':');
+        String base = colon >= 0 ? actual.substring(0, colon) : actual;
+        return base.equalsIgnoreCase(expected);
+    }
+
+    private static String text(JsonNode node, String field) {
+        if (node == null) {
+            return null;
+        }
+        JsonNode value = node.get(field);
+        return value != null && !value.isNull() ? value.asText() : null;
+    }
+}
@@ -4,277 +4,212 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.jettech.code.advisory.Advisory;
+import com.jettech.code.advisory.OsvAdvisoryParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * OSV API 客户端
+ * 按包查询（不带版本）返回该包全部版本的公告及受影响范围，由调用方在本地按版本匹配
+ */
 @Component
 public class OsvApiClient {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(OsvApiClient.class);
-    
+
     private static final String OSV_API_URL = "https://api.osv.dev/v1";
     private static final String QUERY_URL = OSV_API_URL + "/query";
     private static final String BATCH_QUERY_URL = OSV_API_URL + "/querybatch";
-    
+    private static final String VULN_URL = OSV_API_URL + "/vulns";
+
+    /**
+     * 单个包分页拉取的上限，防止异常响应导致无限翻页
+     */
+    private static final int MAX_PAGES = 20;
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
-    
-    public OsvApiClient() {
-        this.restTemplate = new RestTemplate();
+
+    public OsvApiClient(@Qualifier("osvRestTemplate") RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
         this.objectMapper = new ObjectMapper();
     }
-    
-    public List<OsvVulnerability> queryVulnerabilities(String packageName, String ecosystem, String version) {
+
+    /**
+     * 查询包的全部公告（含完整受影响范围），自动跟随分页
+     * HTTP 请求失败时抛出 RestClientException，响应无法解析或分页未取完时抛出 IllegalStateException，
+     * 不能当作"无漏洞"
+     */
+    public List<Advisory> queryAdvisories(String packageName, String ecosystem) {
+        List<Advisory> advisories = new ArrayList<>();
+        String pageToken = null;
+
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            Map<String, String> packageInfo = new HashMap<>();
-            packageInfo.put("name", packageName);
-            packageInfo.put("ecosystem", ecosystem);
-            requestBody.put("package", packageInfo);
-            requestBody.put("version", version);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
-            HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
-            
-            logger.debug("Querying OSV for {}@{} in {}", packageName, version, ecosystem);
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                QUERY_URL, HttpMethod.POST, entity, String.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                return parseVulnerabilities(response.getBody());
+            for (int page = 0; page < MAX_PAGES; page++) {
+                ObjectNode requestBody = objectMapper.createObjectNode();
+                ObjectNode packageNode = requestBody.putObject("package");
+                packageNode.put("name", packageName);
+                packageNode.put("ecosystem", ecosystem);
+                if (pageToken != null) {
+                    requestBody.put("page_token", pageToken);
+                }
+
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
+
+                logger.debug("Querying OSV advisories for {} in {} (page {})", packageName, ecosystem, page + 1);
+
+                ResponseEntity<String> response = restTemplate.exchange(
+                    QUERY_URL, HttpMethod.POST, entity, String.class
+                );
+
+                if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+                    throw new IllegalStateException("Unexpected OSV response: " + response.getStatusCode());
+                }
+
+                JsonNode root = objectMapper.readTree(response.getBody());
+                JsonNode vulnsArray = root.get("vulns");
+                if (vulnsArray != null && vulnsArray.isArray()) {
+                    for (JsonNode vulnNode : vulnsArray) {
+                        Advisory advisory = OsvAdvisoryParser.parse(vulnNode, ecosystem);
+                        if (advisory != null) {
+                            advisories.add(advisory);
+                        }
+                    }
+                }
+
+                pageToken = root.hasNonNull("next_page_token") ? root.get("next_page_token").asText() : null;
+                if (pageToken == null) {
+                    return advisories;
+                }
             }
+        } catch (RestClientException | IllegalStateException e) {
+            // 请求失败交给调用方处理（限流重试或标记数据源失败）
+            throw e;
         } catch (Exception e) {
-            logger.error("Failed to query OSV API for {}@{}: {}", packageName, version, e.getMessage());
+            logger.error("Failed to query OSV API for {} in {}: {}", packageName, ecosystem, e.getMessage());
+            throw new IllegalStateException("Failed to query OSV API for " + packageName + ": " + e.getMessage(), e);
         }
-        
-        return List.of();
+
+        throw new IllegalStateException("OSV advisories for " + packageName + " exceed " + MAX_PAGES + " pages");
     }
-    
-    public Map<String, List<OsvVulnerability>> batchQueryVulnerabilities(List<PackageQuery> queries) {
-        Map<String, List<OsvVulnerability>> results = new HashMap<>();
-        
+
+    /**
+     * 调用 /querybatch 批量查询包的公告 ID，结果与 queries 按下标一一对应
+     * 批量接口只返回 ID，详情需通过 getAdvisory 补全；某个包的结果被分页截断时对应位置为 null，
+     * 调用方应改用 queryAdvisories 单独查询该包
+     * HTTP 请求失败时抛出 RestClientException；响应格式异常时返回 null
+     */
+    public List<List<String>> batchQueryAdvisoryIds(List<PackageQuery> queries) {
         try {
             ObjectNode requestBody = objectMapper.createObjectNode();
             ArrayNode queriesArray = requestBody.putArray("queries");
-            
+
             for (PackageQuery query : queries) {
                 ObjectNode queryNode = queriesArray.addObject();
                 ObjectNode packageNode = queryNode.putObject("package");
                 packageNode.put("name", query.packageName);
                 packageNode.put("ecosystem", query.ecosystem);
-                queryNode.put("version", query.version);
+                if (query.version != null) {
+                    queryNode.put("version", query.version);
+                }
             }
-            
+
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
-            
+
             String jsonBody = objectMapper.writeValueAsString(requestBody);
             HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
-            
+
             logger.debug("Batch querying OSV for {} packages", queries.size());
-            
+
             ResponseEntity<String> response = restTemplate.exchange(
                 BATCH_QUERY_URL, HttpMethod.POST, entity, String.class
             );
-            
+
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 JsonNode root = objectMapper.readTree(response.getBody());
                 JsonNode resultsArray = root.get("results");
-                
-                if (resultsArray != null && resultsArray.isArray()) {
-                    for (int i = 0; i < resultsArray.size() && i < queries.size(); i++) {
-                        PackageQuery query = queries.get(i);
-                        JsonNode resultNode = resultsArray.get(i);
-                        String key = query.packageName + "@" + query.version;
-                        results.put(key, parseVulnerabilitiesFromResult(resultNode));
+
+                if (resultsArray != null && resultsArray.isArray() && resultsArray.size() == queries.size()) {
+                    List<List<String>> results = new ArrayList<>(queries.size());
+                    for (JsonNode resultNode : resultsArray) {
+                        if (resultNode.hasNonNull("next_page_token")) {
+                            results.add(null);
+                            continue;
+                        }
+                        List<String> ids = new ArrayList<>();
+                        JsonNode vulnsArray = resultNode.get("vulns");
+                        if (vulnsArray != null && vulnsArray.isArray()) {
+                            for (JsonNode vulnNode : vulnsArray) {
+                                String id = getTextValue(vulnNode, "id");
+                                if (id != null) {
+                                    ids.add(id);
+                                }
+                            }
+                        }
+                        results.add(ids);
                     }
+                    return results;
                 }
+                logger.warn("Unexpected OSV batch response for {} queries", queries.size());
             }
+        } catch (RestClientException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to batch query OSV API: {}", e.getMessage());
         }
-        
-        return results;
+
+        return null;
     }
-    
-    private List<OsvVulnerability> parseVulnerabilities(String responseBody) {
+
+    /**
+     * 获取单个公告的完整内容，只保留指定生态系统的受影响条目
+     * 响应无法解析时抛出 IllegalStateException，避免漏掉该公告的结果被缓存
+     */
+    public Advisory getAdvisory(String id, String ecosystem) {
         try {
-            JsonNode root = objectMapper.readTree(responseBody);
-            return parseVulnerabilitiesFromResult(root);
-        } catch (Exception e) {
-            logger.error("Failed to parse OSV response: {}", e.getMessage());
-            return List.of();
-        }
-    }
-    
-    private List<OsvVulnerability> parseVulnerabilitiesFromResult(JsonNode resultNode) {
-        List<OsvVulnerability> vulnerabilities = new ArrayList<>();
-        
-        JsonNode vulnsArray = resultNode.get("vulns");
-        if (vulnsArray == null || !vulnsArray.isArray()) {
-            return vulnerabilities;
-        }
-        
-        for (JsonNode vulnNode : vulnsArray) {
-            try {
-                OsvVulnerability vuln = parseVulnerability(vulnNode);
-                if (vuln != null) {
-                    vulnerabilities.add(vuln);
-                }
-            } catch (Exception e) {
-                logger.debug("Failed to parse vulnerability: {}", e.getMessage());
-            }
-        }
-        
-        return vulnerabilities;
-    }
-    
-    private OsvVulnerability parseVulnerability(JsonNode vulnNode) {
-        OsvVulnerability vuln = new OsvVulnerability();
-        
-        vuln.id = getTextValue(vulnNode, "id");
-        vuln.summary = getTextValue(vulnNode, "summary");
-        vuln.details = getTextValue(vulnNode, "details");
-        
-        JsonNode severityArray = vulnNode.get("severity");
-        if (severityArray != null && severityArray.isArray() && severityArray.size() > 0) {
-            JsonNode severityNode = severityArray.get(0);
-            vuln.severityType = getTextValue(severityNode, "type");
-            vuln.severityScore = getTextValue(severityNode, "score");
-        }
-        
-        JsonNode creditsNode = vulnNode.get("credits");
-        if (creditsNode != null && creditsNode.isArray() && creditsNode.size() > 0) {
-            vuln.credits = getTextValue(creditsNode.get(0), "name");
-        }
-        
-        JsonNode affectedArray = vulnNode.get("affected");
-        if (affectedArray != null && affectedArray.isArray() && affectedArray.size() > 0) {
-            JsonNode affectedNode = affectedArray.get(0);
-            vuln.affectedPackage = getTextValue(affectedNode.get("package"), "name");
-            vuln.affectedEcosystem = getTextValue(affectedNode.get("package"), "ecosystem");
-            
-            JsonNode rangesArray = affectedNode.get("ranges");
-            if (rangesArray != null && rangesArray.isArray()) {
-                for (JsonNode range : rangesArray) {
-                    JsonNode events = range.get("events");
-                    if (events != null && events.isArray()) {
-                        for (JsonNode event : events) {
-                            if (event.has("introduced")) {
-                                vuln.introducedVersion = event.get("introduced").asText();
-                            }
-                            if (event.has("fixed")) {
-                                vuln.fixedVersion = event.get("fixed").asText();
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        
-        JsonNode refsArray = vulnNode.get("references");
-        if (refsArray != null && refsArray.isArray()) {
-            StringBuilder refs = new StringBuilder();
-            for (JsonNode ref : refsArray) {
-                String url = getTextValue(ref, "url");
-                // 过滤掉GitHub链接
-                if (url != null && !url.toLowerCase().contains("github.com")) {
-                    if (refs.length() > 0) refs.append("\n");
-                    refs.append(url);
-                }
-            }
-            vuln.references = refs.length() > 0 ? refs.toString() : null;
-        }
-        
-        if (vuln.id != null && (vuln.id.startsWith("CVE-") || vuln.id.contains("-CVE-"))) {
-            vuln.cveId = vuln.id;
-        } else {
-            JsonNode aliases = vulnNode.get("aliases");
-            if (aliases != null && aliases.isArray()) {
-                for (JsonNode alias : aliases) {
-                    String aliasStr = alias.asText();
-                    if (aliasStr.startsWith("CVE-")) {
-                        vuln.cveId = aliasStr;
-                        break;
-                    }
-                }
+            ResponseEntity<String> response = restTemplate.getForEntity(VULN_URL + "/{id}", String.class, id);
+
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+                return OsvAdvisoryParser.parse(objectMapper.readTree(response.getBody()), ecosystem);
             }
+        } catch (RestClientException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Failed to fetch OSV vulnerability {}: {}", id, e.getMessage());
+            throw new IllegalStateException("Failed to fetch OSV vulnerability " + id + ": " + e.getMessage(), e);
         }
-        
-        return vuln;
+
+        return null;
     }
-    
+
     private String getTextValue(JsonNode node, String field) {
         if (node == null) return null;
         JsonNode fieldNode = node.get(field);
         return fieldNode != null ? fieldNode.asText() : null;
     }
-    
+
     public static class PackageQuery {
         public String packageName;
         public String ecosystem;
+        // 为 null 时按包查询全部版本
         public String version;
-        
+
         public PackageQuery(String packageName, String ecosystem, String version) {
             this.packageName = packageName;
             this.ecosystem = ecosystem;
             this.version = version;
         }
     }
-    
-    public static class OsvVulnerability {
-        public String id;
-        public String cveId;
-        public String summary;
-        public String details;
-        public String severityType;
-        public String severityScore;
-        public String affectedPackage;
-        public String affectedEcosystem;
-        public String introducedVersion;
-        public String fixedVersion;
-        public String references;
-        public String credits;
-        
-        public String getNormalizedSeverity() {
-            if (severityScore != null && severityType != null) {
-                if ("CVSS_V3".equals(severityType) || "CVSS_V2".equals(severityType)) {
-                    try {
-                        double score = Double.parseDouble(severityScore);
-                        if (score >= 9.0) return "CRITICAL";
-                        if (score >= 7.0) return "HIGH";
-                        if (score >= 4.0) return "MEDIUM";
-                        return "LOW";
-                    } catch (NumberFormatException e) {
-                        // Fall through
-                    }
-                }
-            }
-            return "MEDIUM";
-        }
-        
-        public Double getCvssScore() {
-            if (severityScore != null) {
-                try {
-                    return Double.parseDouble(severityScore);
-                } catch (NumberFormatException e) {
-                    return null;
-                }
-            }
-            return null;
-        }
-    }
 }
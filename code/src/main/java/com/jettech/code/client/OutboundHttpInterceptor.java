@@ -0,0 +1,223 @@
+package com.jettech.code.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 所有外部 HTTP 调用共用的拦截器
+ * 按主机限制并发请求数（即该主机上同时占用的连接数），请求 gzip 压缩并透明解压，
+ * 同时按主机统计请求数、失败数、耗时和并发峰值
+ *
+ * 许可在响应关闭时才释放，流式读取响应体（如下载 OSV 导出）期间仍计入并发
+ */
+public class OutboundHttpInterceptor implements ClientHttpRequestInterceptor {
+
+    private final int maxConnectionsPerHost;
+
+    private final Map<String, HostStats> hosts = new ConcurrentHashMap<>();
+
+    public OutboundHttpInterceptor(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        HostStats stats = hosts.computeIfAbsent(hostKey(request), key -> new HostStats(maxConnectionsPerHost));
+        stats.acquire();
+
+        long start = System.nanoTime();
+        try {
+            if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+                request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            }
+            ClientHttpResponse response = execution.execute(request, body);
+            stats.completed(System.nanoTime() - start, response.getStatusCode().isError());
+            return new ReleasingResponse(response, stats);
+        } catch (IOException | RuntimeException e) {
+            stats.completed(System.nanoTime() - start, true);
+            stats.release();
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> byHost = new TreeMap<>();
+        long requests = 0;
+        long failures = 0;
+        for (Map.Entry<String, HostStats> entry : hosts.entrySet()) {
+            HostStats stats = entry.getValue();
+            requests += stats.requests.sum();
+            failures += stats.failures.sum();
+            byHost.put(entry.getKey(), stats.toMap());
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxConnectionsPerHost", maxConnectionsPerHost);
+        result.put("requests", requests);
+        result.put("failures", failures);
+        result.put("hosts", byHost);
+        return result;
+    }
+
+    private static String hostKey(HttpRequest request) {
+        String host = request.getURI().getHost();
+        int port = request.getURI().getPort();
+        return port < 0 ? String.valueOf(host) : host + ":" + port;
+    }
+
+    private static final class HostStats {
+        private final Semaphore permits;
+        private final int limit;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder gzipResponses = new LongAdder();
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        HostStats(int limit) {
+            this.limit = limit;
+            this.permits = new Semaphore(limit, true);
+        }
+
+        void acquire() throws IOException {
+            if (!permits.tryAcquire()) {
+                waits.increment();
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a connection permit");
+                }
+            }
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        }
+
+        void release() {
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+
+        void completed(long nanos, boolean failed) {
+            requests.increment();
+            totalNanos.add(nanos);
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long count = requests.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("inFlight", inFlight.get());
+            map.put("peakInFlight", peakInFlight.get());
+            map.put("limit", limit);
+            map.put("waits", waits.sum());
+            map.put("requests", count);
+            map.put("failures", failures.sum());
+            map.put("gzipResponses", gzipResponses.sum());
+            map.put("avgResponseMs", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count);
+            return map;
+        }
+    }
+
+    /**
+     * 关闭时释放主机许可；响应为 gzip 编码时解压响应体，
+     * 并去掉 Content-Encoding/Content-Length，避免消息转换器按压缩后的长度读取
+     */
+    private static final class ReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final HostStats stats;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final boolean gzip;
+        private HttpHeaders headers;
+        private InputStream body;
+
+        ReleasingResponse(ClientHttpResponse delegate, HostStats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+            String encoding = delegate.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            this.gzip = encoding != null && encoding.trim().equalsIgnoreCase("gzip");
+            if (gzip) {
+                stats.gzipResponses.increment();
+            }
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                if (gzip) {
+                    HttpHeaders decoded = new HttpHeaders();
+                    decoded.putAll(delegate.getHeaders());
+                    decoded.remove(HttpHeaders.CONTENT_ENCODING);
+                    decoded.remove(HttpHeaders.CONTENT_LENGTH);
+                    headers = HttpHeaders.readOnlyHttpHeaders(decoded);
+                } else {
+                    headers = delegate.getHeaders();
+                }
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream raw = delegate.getBody();
+                body = gzip ? decompress(raw) : raw;
+            }
+            return body;
+        }
+
+        // 空响应体（如 204）没有 gzip 头，直接返回
+        private static InputStream decompress(InputStream raw) throws IOException {
+            PushbackInputStream in = new PushbackInputStream(raw, 1);
+            int first = in.read();
+            if (first == -1) {
+                return in;
+            }
+            in.unread(first);
+            return new GZIPInputStream(in);
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    stats.release();
+                }
+            }
+        }
+    }
+}
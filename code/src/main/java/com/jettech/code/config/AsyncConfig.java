@@ -5,10 +5,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -20,6 +23,12 @@ public class AsyncConfig implements AsyncConfigurer {
 
     private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
 
+    /**
+     * 虚拟线程模式：每个任务一个虚拟线程，不限制线程数
+     */
+    @Value("${scan.parallel.virtual-threads:true}")
+    private boolean virtualThreads;
+
     @Value("${scan.parallel.pool.core-size:4}")
     private int corePoolSize;
 
@@ -35,9 +44,22 @@ public class AsyncConfig implements AsyncConfigurer {
     /**
      * 扫描任务专用线程池
      * 用于并行执行多个扫描任务
+     * 虚拟线程模式下任务阻塞等待 I/O 时不占用平台线程；提交不做限流（限流会阻塞发起扫描的请求线程，
+     * 而扫描任务会持续整个扫描），实际负载由各自的许可控制：OpenCode 会话由 LlmTaskScheduler，
+     * 依赖检查由 AsyncScanService 的分块信号量
      */
     @Bean(name = "scanTaskExecutor")
     public Executor scanTaskExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            executor.setVirtualThreads(true);
+            // 关闭时等待任务完成
+            executor.setTaskTerminationTimeout(60_000);
+
+            logger.info("Scan task executor initialized with virtual threads");
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(corePoolSize);
         executor.setMaxPoolSize(maxPoolSize);
@@ -58,4 +80,35 @@ public class AsyncConfig implements AsyncConfigurer {
 
         return executor;
     }
+
+    /**
+     * 漏洞数据源查询专用执行器
+     * 数据源查询是阻塞的 HTTP I/O，使用虚拟线程，避免占用 ForkJoinPool.commonPool()
+     * 每个数据源的并发上限由 MultiSourceVulnerabilityService 控制
+     */
+    @Bean(name = "vulnerabilityQueryExecutor", destroyMethod = "close")
+    public ExecutorService vulnerabilityQueryExecutor() {
+        logger.info("Vulnerability query executor initialized with virtual threads");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vuln-query-", 0).factory());
+    }
+
+    /**
+     * 许可证解析专用执行器
+     * 包管理仓库查询同样是阻塞的 HTTP I/O，使用虚拟线程；全局并发上限由 LicenseDetector 控制
+     */
+    @Bean(name = "licenseResolutionExecutor", destroyMethod = "close")
+    public ExecutorService licenseResolutionExecutor() {
+        logger.info("License resolution executor initialized with virtual threads");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("license-", 0).factory());
+    }
+
+    /**
+     * LLM 任务执行器
+     * 任务大部分时间在等待 OpenCode 响应，使用虚拟线程；全局并发上限由 LlmTaskScheduler 控制
+     */
+    @Bean(name = "llmTaskExecutor", destroyMethod = "close")
+    public ExecutorService llmTaskExecutor() {
+        logger.info("LLM task executor initialized with virtual threads");
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("llm-task-", 0).factory());
+    }
 }
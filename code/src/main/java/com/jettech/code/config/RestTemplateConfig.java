@@ -1,37 +1,134 @@
 package com.jettech.code.config;
 
+import com.jettech.code.client.OutboundHttpInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
 
+/**
+ * 外部 HTTP 调用配置
+ * 外部集成的 RestTemplate 共用同一个 JDK HttpClient：连接池复用 keep-alive 连接，TLS 上通过 ALPN 协商 HTTP/2；
+ * 共用的拦截器负责按主机限制连接数、gzip 和统计，各集成只区分读超时
+ * OpenCode 使用单独的 HTTP/1.1 客户端，不经过按主机限流（并发由 LlmTaskScheduler 控制）
+ * 空闲连接保活时间是 JVM 级配置，由启动参数 -Djdk.httpclient.keepalive.timeout 指定（见 startup.sh）
+ */
 @Configuration
 public class RestTemplateConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(RestTemplateConfig.class);
+
     @Value("${opencode.timeout:300000}")
     private int openCodeTimeout;
 
+    @Value("${http.client.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${http.client.max-connections-per-host:32}")
+    private int maxConnectionsPerHost;
+
+    @Value("${http.client.read-timeout-ms.default:30000}")
+    private long defaultReadTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms.registry:10000}")
+    private long registryReadTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms.osv:30000}")
+    private long osvReadTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms.nvd:30000}")
+    private long nvdReadTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms.osv-mirror:600000}")
+    private long osvMirrorReadTimeoutMs;
+
+    @Bean
+    public OutboundHttpInterceptor outboundHttpInterceptor() {
+        return new OutboundHttpInterceptor(maxConnectionsPerHost);
+    }
+
+    /**
+     * 外部集成共享的 HTTP 客户端
+     */
+    @Bean
+    public HttpClient outboundHttpClient() {
+        logger.info("Outbound HTTP client initialized: connectTimeout={}ms, keepAlive={}s, maxConnectionsPerHost={}",
+                connectTimeoutMs, System.getProperty("jdk.httpclient.keepalive.timeout", "1200"), maxConnectionsPerHost);
+
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-client-", 0).factory()))
+                .build();
+    }
+
     /**
      * 默认 RestTemplate，用于一般请求
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @Primary
+    public RestTemplate restTemplate(HttpClient outboundHttpClient, OutboundHttpInterceptor interceptor) {
+        return build(outboundHttpClient, interceptor, defaultReadTimeoutMs);
+    }
+
+    /**
+     * 包管理仓库（Maven Central、npm、PyPI、deps.dev）查询，用于许可证检测
+     */
+    @Bean(name = "registryRestTemplate")
+    public RestTemplate registryRestTemplate(HttpClient outboundHttpClient, OutboundHttpInterceptor interceptor) {
+        return build(outboundHttpClient, interceptor, registryReadTimeoutMs);
+    }
+
+    @Bean(name = "osvRestTemplate")
+    public RestTemplate osvRestTemplate(HttpClient outboundHttpClient, OutboundHttpInterceptor interceptor) {
+        return build(outboundHttpClient, interceptor, osvReadTimeoutMs);
+    }
+
+    @Bean(name = "nvdRestTemplate")
+    public RestTemplate nvdRestTemplate(HttpClient outboundHttpClient, OutboundHttpInterceptor interceptor) {
+        return build(outboundHttpClient, interceptor, nvdReadTimeoutMs);
+    }
+
+    /**
+     * OSV 全量导出下载，文件较大
+     */
+    @Bean(name = "osvMirrorRestTemplate")
+    public RestTemplate osvMirrorRestTemplate(HttpClient outboundHttpClient, OutboundHttpInterceptor interceptor) {
+        return build(outboundHttpClient, interceptor, osvMirrorReadTimeoutMs);
     }
 
     /**
      * 用于 OpenCode 服务的 RestTemplate，配置了较长的超时时间
-     * AI 分析可能需要较长时间
+     * AI 分析可能需要较长时间；OpenCode 走明文 http，使用单独的 HTTP/1.1 客户端，避免每个连接尝试 h2c 升级，
+     * 也不占用外部集成的按主机连接数
      */
     @Bean(name = "openCodeRestTemplate")
     public RestTemplate openCodeRestTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(Duration.ofSeconds(30));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("opencode-http-", 0).factory()))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
         factory.setReadTimeout(Duration.ofMillis(openCodeTimeout));
         return new RestTemplate(factory);
     }
+
+    private static RestTemplate build(HttpClient httpClient, OutboundHttpInterceptor interceptor, long readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.setInterceptors(List.of(interceptor));
+        return restTemplate;
+    }
 }
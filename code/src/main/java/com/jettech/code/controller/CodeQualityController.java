@@ -6,12 +6,14 @@ import com.jettech.code.entity.CodeQualityIssue;
 import com.jettech.code.entity.CodeQualityScan;
 import com.jettech.code.entity.CodeQualityTask;
 import com.jettech.code.service.CodeQualityService;
+import com.jettech.code.service.LlmTaskScheduler;
 import com.jettech.code.service.ScanTaskManager;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/code-quality")
@@ -82,9 +84,12 @@ public class CodeQualityController {
             }
 
             // 使用新的扫描流程
+            // 单服务扫描由用户在页面发起，默认优先于批量扫描
+            int priority = request.getPriority() != null ? request.getPriority() : LlmTaskScheduler.PRIORITY_INTERACTIVE;
             CodeQualityScan scan = codeQualityService.startScanWithCheckItems(
                 Collections.singletonList(serviceId),
-                checkItemIds
+                checkItemIds,
+                priority
             );
             return ResponseEntity.ok(ApiResponse.success("扫描已启动", scan));
 
@@ -100,9 +105,11 @@ public class CodeQualityController {
     @PostMapping("/scan")
     public ResponseEntity<ApiResponse<CodeQualityScan>> startBatchScan(
             @RequestParam List<Long> serviceIds,
-            @RequestParam List<Long> checkItemIds) {
+            @RequestParam List<Long> checkItemIds,
+            @RequestParam(required = false) Integer priority) {
         try {
-            CodeQualityScan scan = codeQualityService.startScanWithCheckItems(serviceIds, checkItemIds);
+            CodeQualityScan scan = codeQualityService.startScanWithCheckItems(serviceIds, checkItemIds,
+                priority != null ? priority : LlmTaskScheduler.PRIORITY_BATCH);
             return ResponseEntity.ok(ApiResponse.success("批量扫描已启动", scan));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -140,6 +147,14 @@ public class CodeQualityController {
         return ResponseEntity.ok(ApiResponse.success(progress));
     }
 
+    /**
+     * 获取 LLM 任务调度统计（全局并发、排队数、排队等待时间、各扫描的份额）
+     */
+    @GetMapping("/scheduler/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getSchedulerStats() {
+        return ResponseEntity.ok(ApiResponse.success(scanTaskManager.getSchedulerStats()));
+    }
+
     /**
      * 取消扫描
      */
@@ -9,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/supply-chain")
@@ -45,6 +46,25 @@ public class SupplyChainController {
         return ResponseEntity.ok(ApiResponse.success(dependency));
     }
 
+    @GetMapping("/services/{serviceId}/dependency-graph")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getDependencyGraph(@PathVariable Long serviceId) {
+        return ResponseEntity.ok(ApiResponse.success(supplyChainService.getDependencyGraph(serviceId)));
+    }
+
+    @GetMapping("/services/{serviceId}/vulnerable-paths")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getVulnerablePaths(
+            @PathVariable Long serviceId,
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(supplyChainService.getVulnerableDependencyPaths(serviceId, limit)));
+    }
+
+    @GetMapping("/dependencies/{dependencyId}/paths")
+    public ResponseEntity<ApiResponse<List<List<Dependency>>>> getDependencyPaths(
+            @PathVariable Long dependencyId,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(supplyChainService.getDependencyPaths(dependencyId, limit)));
+    }
+
     @GetMapping("/services/{serviceId}/scans")
     public ResponseEntity<ApiResponse<List<SecurityScan>>> getScans(@PathVariable Long serviceId) {
         List<SecurityScan> scans = supplyChainService.getScans(serviceId);
@@ -100,4 +120,39 @@ public class SupplyChainController {
         }
         return ResponseEntity.ok(ApiResponse.success(scan));
     }
+
+    @GetMapping("/vulnerability-cache/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getVulnerabilityCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(supplyChainService.getVulnerabilityCacheStats()));
+    }
+
+    @GetMapping("/vulnerability-sources/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getVulnerabilitySourceStats() {
+        return ResponseEntity.ok(ApiResponse.success(supplyChainService.getVulnerabilitySourceStats()));
+    }
+
+    @GetMapping("/license-cache/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getLicenseCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(supplyChainService.getLicenseCacheStats()));
+    }
+
+    @GetMapping("/dependency-coordinates/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCoordinateStats() {
+        return ResponseEntity.ok(ApiResponse.success(supplyChainService.getCoordinateStats()));
+    }
+
+    @GetMapping("/http-client/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getHttpClientStats() {
+        return ResponseEntity.ok(ApiResponse.success(supplyChainService.getHttpClientStats()));
+    }
+
+    @PostMapping("/osv-mirror/import")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> importOsvMirror() {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("OSV镜像导入完成", supplyChainService.importOsvMirror()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("OSV镜像导入失败: " + e.getMessage()));
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package com.jettech.code.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 包坐标（包名 + 生态系统 + 版本）
+ * 用作批量漏洞查询的键
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PackageCoordinate {
+    private String packageName;
+    private String ecosystem;
+    private String version;
+}
@@ -23,4 +23,9 @@ public class ScanRequestDTO {
      * 选中的检查项Key列表（用于前端传值）
      */
     private List<String> checkItems;
+
+    /**
+     * 扫描优先级（1-10），为空时单服务扫描使用交互优先级
+     */
+    private Integer priority;
 }
@@ -1,10 +1,12 @@
 package com.jettech.code.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
@@ -23,6 +25,7 @@ public class Dependency {
     private String purl;
     private String filePath;
     private String checksum;
+    private Long coordinateId;
     private LocalDateTime createdAt;
 
     /**
@@ -31,4 +34,14 @@ public class Dependency {
      */
     @Setter
     private transient Integer vulnerabilityCount;
+
+    /**
+     * 非持久化字段，解析时记录依赖关系：direct 表示项目直接引入，
+     * requiredBy 为引入它的依赖（DependencyParser.nodeKey），保存后转为 dependency_edge
+     */
+    @JsonIgnore
+    private transient boolean direct;
+
+    @JsonIgnore
+    private transient Set<String> requiredBy;
 }
@@ -0,0 +1,28 @@
+package com.jettech.code.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 全局依赖坐标，按 生态系统+包名+版本 去重，所有服务共享
+ * 保存该坐标的许可证和漏洞检查结果，各服务的 dependency 记录通过 coordinateId 引用
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DependencyCoordinate {
+    private Long id;
+    private String ecosystem;
+    private String name;
+    private String version;
+    private String license;
+    private LocalDateTime licenseCheckedAt;
+    /**
+     * 匹配到的漏洞（VulnerabilityInfo 列表的 JSON），null 表示未检查
+     */
+    private String vulnerabilities;
+    private LocalDateTime vulnerabilityCheckedAt;
+    private LocalDateTime createdAt;
+}
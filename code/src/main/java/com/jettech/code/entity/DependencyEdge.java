@@ -0,0 +1,20 @@
+package com.jettech.code.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 依赖关系边，parentId 为空表示项目直接依赖 childId
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DependencyEdge {
+    private Long id;
+    private Long serviceId;
+    private Long parentId;
+    private Long childId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.jettech.code.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 许可证解析结果缓存，按 生态系统+包名+版本+来源层级 存储
+ * license 为空字符串表示该层级未查到许可证（负缓存）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LicenseCache {
+    private Long id;
+    private String ecosystem;
+    private String packageName;
+    private String version;
+    private String source;
+    private String license;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,20 @@
+package com.jettech.code.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 服务依赖清单文件指纹，记录上次成功扫描时各清单文件的内容哈希
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceManifest {
+    private Long id;
+    private Long serviceId;
+    private String filePath;
+    private String contentHash;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,205 @@
+package com.jettech.code.graph;
+
+import com.jettech.code.entity.DependencyEdge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务依赖关系图（不可变，线程安全）
+ * 节点按依赖ID编号为连续下标，正向和反向邻接表都用 CSR 形式的 int 数组存放，
+ * 5k 以上节点的图也只占几十 KB，查询不创建节点对象
+ */
+public final class DependencyGraph {
+
+    private final long[] ids;
+    private final Map<Long, Integer> indexById;
+    private final boolean[] direct;
+
+    // CSR：节点 i 的子节点为 children[childStart[i] .. childStart[i + 1])，父节点同理
+    private final int[] childStart;
+    private final int[] children;
+    private final int[] parentStart;
+    private final int[] parents;
+
+    private DependencyGraph(long[] ids, Map<Long, Integer> indexById, boolean[] direct,
+                            int[] childStart, int[] children, int[] parentStart, int[] parents) {
+        this.ids = ids;
+        this.indexById = indexById;
+        this.direct = direct;
+        this.childStart = childStart;
+        this.children = children;
+        this.parentStart = parentStart;
+        this.parents = parents;
+    }
+
+    /**
+     * @param dependencyIds 服务的全部依赖ID
+     * @param edges parentId 为空的边表示直接依赖；引用不存在节点的边被忽略
+     */
+    public static DependencyGraph build(List<Long> dependencyIds, List<DependencyEdge> edges) {
+        int n = dependencyIds.size();
+        long[] ids = new long[n];
+        Map<Long, Integer> indexById = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            ids[i] = dependencyIds.get(i);
+            indexById.put(ids[i], i);
+        }
+
+        boolean[] direct = new boolean[n];
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        int count = 0;
+        for (DependencyEdge edge : edges) {
+            Integer child = indexById.get(edge.getChildId());
+            if (child == null) {
+                continue;
+            }
+            if (edge.getParentId() == null) {
+                direct[child] = true;
+                continue;
+            }
+            Integer parent = indexById.get(edge.getParentId());
+            if (parent != null && !parent.equals(child)) {
+                from[count] = parent;
+                to[count] = child;
+                count++;
+            }
+        }
+
+        int[] childStart = new int[n + 1];
+        int[] parentStart = new int[n + 1];
+        for (int e = 0; e < count; e++) {
+            childStart[from[e] + 1]++;
+            parentStart[to[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            childStart[i + 1] += childStart[i];
+            parentStart[i + 1] += parentStart[i];
+        }
+
+        int[] children = new int[count];
+        int[] parents = new int[count];
+        int[] childFill = Arrays.copyOf(childStart, n);
+        int[] parentFill = Arrays.copyOf(parentStart, n);
+        for (int e = 0; e < count; e++) {
+            children[childFill[from[e]]++] = to[e];
+            parents[parentFill[to[e]]++] = from[e];
+        }
+
+        return new DependencyGraph(ids, indexById, direct, childStart, children, parentStart, parents);
+    }
+
+    public boolean contains(long dependencyId) {
+        return indexById.containsKey(dependencyId);
+    }
+
+    public boolean isDirect(long dependencyId) {
+        Integer index = indexById.get(dependencyId);
+        return index != null && direct[index];
+    }
+
+    public List<Long> getChildren(long dependencyId) {
+        return neighbors(dependencyId, childStart, children);
+    }
+
+    public List<Long> getParents(long dependencyId) {
+        return neighbors(dependencyId, parentStart, parents);
+    }
+
+    /**
+     * 从直接依赖到目标依赖的最短引入路径（按长度从短到长）
+     * 先从目标沿反向边做一次广度优先得到各节点到目标的距离，再从直接依赖沿距离递减的边枚举，
+     * 只走最短路径，不会进入环；复杂度为 O(节点 + 边 + 输出)
+     *
+     * @return 每条路径为依赖ID列表，第一个是直接依赖，最后一个是目标；目标不在图中时返回空列表
+     */
+    public List<List<Long>> shortestPaths(long dependencyId, int limit) {
+        List<List<Long>> paths = new ArrayList<>();
+        Integer target = indexById.get(dependencyId);
+        if (target == null || limit <= 0) {
+            return paths;
+        }
+
+        int[] distance = new int[ids.length];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[ids.length];
+        int head = 0;
+        int tail = 0;
+        distance[target] = 0;
+        queue[tail++] = target;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = parentStart[node]; e < parentStart[node + 1]; e++) {
+                int parent = parents[e];
+                if (distance[parent] < 0) {
+                    distance[parent] = distance[node] + 1;
+                    queue[tail++] = parent;
+                }
+            }
+        }
+
+        // queue 中的节点已按距离升序排列，依次取直接依赖作为起点
+        for (int i = 0; i < tail && paths.size() < limit; i++) {
+            int root = queue[i];
+            if (direct[root]) {
+                int[] path = new int[distance[root] + 1];
+                path[0] = root;
+                collectPaths(path, 0, distance, paths, limit);
+            }
+        }
+        return paths;
+    }
+
+    public int getNodeCount() {
+        return ids.length;
+    }
+
+    public int getEdgeCount() {
+        return children.length;
+    }
+
+    public int getDirectCount() {
+        int count = 0;
+        for (boolean d : direct) {
+            if (d) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void collectPaths(int[] path, int depth, int[] distance, List<List<Long>> paths, int limit) {
+        int node = path[depth];
+        if (distance[node] == 0) {
+            List<Long> result = new ArrayList<>(path.length);
+            for (int index : path) {
+                result.add(ids[index]);
+            }
+            paths.add(result);
+            return;
+        }
+        for (int e = childStart[node]; e < childStart[node + 1] && paths.size() < limit; e++) {
+            int child = children[e];
+            if (distance[child] == distance[node] - 1) {
+                path[depth + 1] = child;
+                collectPaths(path, depth + 1, distance, paths, limit);
+            }
+        }
+    }
+
+    private List<Long> neighbors(long dependencyId, int[] start, int[] adjacency) {
+        Integer index = indexById.get(dependencyId);
+        if (index == null) {
+            return List.of();
+        }
+        List<Long> result = new ArrayList<>(start[index + 1] - start[index]);
+        for (int e = start[index]; e < start[index + 1]; e++) {
+            result.add(ids[adjacency[e]]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,246 @@
+package com.jettech.code.license;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 内置许可证知识库的编译匹配器（不可变，线程安全）
+ * 规则按顺序排列，每条规则包含若干 contains 子串和 prefixes 前缀（忽略大小写），任一命中即视为规则命中，
+ * 多条规则命中时取最靠前的一条
+ *
+ * contains 子串编译为 Aho-Corasick 自动机，prefixes 编译为前缀树，
+ * 查找只需沿包名走一遍，不分配小写字符串
+ *
+ * 规则文件格式（JSON 数组）:
+ * <pre>
+ * [
+ *   {"license": "Apache-2.0", "contains": ["springframework"], "prefixes": ["org.springframework"]}
+ * ]
+ * </pre>
+ */
+public final class BuiltinLicenseMatcher {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final String[] licenses;
+
+    // 规则中出现过的字符映射为连续编号，其余字符为 0，用于压缩状态转移表
+    private final int[] charClass = new int[128];
+    private final int width;
+
+    // Aho-Corasick：完全展开的状态转移表及每个状态可命中的最小规则序号
+    private final int[] transitions;
+    private final int[] matchOrder;
+
+    // 前缀树：-1 表示无子节点
+    private final int[] prefixChildren;
+    private final int[] prefixOrder;
+
+    private BuiltinLicenseMatcher(List<Rule> rules) {
+        this.licenses = new String[rules.size()];
+        int classes = 1;
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            licenses[i] = rule.license();
+            for (String term : rule.terms()) {
+                for (int k = 0; k < term.length(); k++) {
+                    char c = term.charAt(k);
+                    if (charClass[c] == 0) {
+                        charClass[c] = classes++;
+                    }
+                }
+            }
+        }
+        this.width = classes;
+
+        List<int[]> acNodes = new ArrayList<>();
+        List<Integer> acOrder = new ArrayList<>();
+        List<int[]> prefixNodes = new ArrayList<>();
+        List<Integer> prefixOrders = new ArrayList<>();
+        newNode(acNodes, acOrder);
+        newNode(prefixNodes, prefixOrders);
+
+        for (int i = 0; i < rules.size(); i++) {
+            for (String term : rules.get(i).contains()) {
+                insert(acNodes, acOrder, term, i);
+            }
+            for (String prefix : rules.get(i).prefixes()) {
+                insert(prefixNodes, prefixOrders, prefix, i);
+            }
+        }
+
+        this.transitions = new int[acNodes.size() * width];
+        this.matchOrder = new int[acNodes.size()];
+        buildAutomaton(acNodes, acOrder);
+
+        this.prefixChildren = new int[prefixNodes.size() * width];
+        this.prefixOrder = new int[prefixNodes.size()];
+        for (int node = 0; node < prefixNodes.size(); node++) {
+            System.arraycopy(prefixNodes.get(node), 0, prefixChildren, node * width, width);
+            prefixOrder[node] = prefixOrders.get(node);
+        }
+    }
+
+    public static BuiltinLicenseMatcher load(InputStream in) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(in);
+        if (root == null || !root.isArray()) {
+            throw new IllegalArgumentException("Built-in license rules must be a JSON array");
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        for (JsonNode node : root) {
+            JsonNode license = node.get("license");
+            if (license == null || license.asText().isEmpty()) {
+                throw new IllegalArgumentException("Built-in license rule without license: " + node);
+            }
+            rules.add(new Rule(license.asText(), terms(node.get("contains")), terms(node.get("prefixes"))));
+        }
+        return new BuiltinLicenseMatcher(rules);
+    }
+
+    /**
+     * @return 命中规则的许可证，没有命中返回 null
+     */
+    public String match(String packageName) {
+        if (packageName == null || licenses.length == 0) {
+            return null;
+        }
+
+        // 非 ASCII 字符的小写规则可能改变长度（如 'İ'），这种罕见情况退回到整体转小写，与 String.toLowerCase 保持一致
+        for (int i = 0; i < packageName.length(); i++) {
+            if (packageName.charAt(i) >= 128) {
+                packageName = packageName.toLowerCase();
+                break;
+            }
+        }
+
+        int best = NO_MATCH;
+
+        int state = 0;
+        for (int i = 0; i < packageName.length(); i++) {
+            state = transitions[state * width + classOf(packageName.charAt(i))];
+            if (matchOrder[state] < best) {
+                best = matchOrder[state];
+            }
+        }
+
+        int node = 0;
+        for (int i = 0; i < packageName.length(); i++) {
+            int cls = classOf(packageName.charAt(i));
+            node = cls == 0 ? -1 : prefixChildren[node * width + cls];
+            if (node < 0) {
+                break;
+            }
+            if (prefixOrder[node] < best) {
+                best = prefixOrder[node];
+            }
+        }
+
+        return best != NO_MATCH ? licenses[best] : null;
+    }
+
+    public int getRuleCount() {
+        return licenses.length;
+    }
+
+    private int classOf(char c) {
+        if (c >= 128) {
+            return 0;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            c = (char) (c + ('a' - 'A'));
+        }
+        return charClass[c];
+    }
+
+    private int[] newNode(List<int[]> nodes, List<Integer> orders) {
+        int[] children = new int[width];
+        Arrays.fill(children, -1);
+        nodes.add(children);
+        orders.add(NO_MATCH);
+        return children;
+    }
+
+    private void insert(List<int[]> nodes, List<Integer> orders, String term, int order) {
+        int node = 0;
+        for (int k = 0; k < term.length(); k++) {
+            int cls = charClass[term.charAt(k)];
+            if (nodes.get(node)[cls] < 0) {
+                nodes.get(node)[cls] = nodes.size();
+                newNode(nodes, orders);
+            }
+            node = nodes.get(node)[cls];
+        }
+        if (order < orders.get(node)) {
+            orders.set(node, order);
+        }
+    }
+
+    /**
+     * 按层次遍历计算失败链接，把转移表补全为确定自动机，
+     * 并把失败链上的命中合并到每个状态，扫描时无需回溯
+     */
+    private void buildAutomaton(List<int[]> nodes, List<Integer> orders) {
+        int[] fail = new int[nodes.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+
+        matchOrder[0] = orders.get(0);
+        for (int cls = 0; cls < width; cls++) {
+            int child = nodes.get(0)[cls];
+            if (child < 0) {
+                transitions[cls] = 0;
+            } else {
+                transitions[cls] = child;
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            matchOrder[node] = Math.min(orders.get(node), matchOrder[fail[node]]);
+            for (int cls = 0; cls < width; cls++) {
+                int child = nodes.get(node)[cls];
+                int viaFail = transitions[fail[node] * width + cls];
+                if (child < 0) {
+                    transitions[node * width + cls] = viaFail;
+                } else {
+                    transitions[node * width + cls] = child;
+                    fail[child] = viaFail;
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    private static List<String> terms(JsonNode array) {
+        List<String> terms = new ArrayList<>();
+        if (array == null) {
+            return terms;
+        }
+        for (JsonNode term : array) {
+            String value = term.asText().toLowerCase();
+            if (value.isEmpty() || !value.chars().allMatch(c -> c < 128)) {
+                throw new IllegalArgumentException("Built-in license rule terms must be non-empty ASCII: " + term);
+            }
+            terms.add(value);
+        }
+        return terms;
+    }
+
+    private record Rule(String license, List<String> contains, List<String> prefixes) {
+        List<String> terms() {
+            List<String> all = new ArrayList<>(contains);
+            all.addAll(prefixes);
+            return all;
+        }
+    }
+}
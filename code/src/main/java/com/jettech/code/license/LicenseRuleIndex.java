@@ -0,0 +1,142 @@
+package com.jettech.code.license;
+
+import com.jettech.code.entity.LicenseRule;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的许可证规则索引（不可变，线程安全）
+ * 规则模式分三类：精确匹配用哈希表，"前缀*" 用前缀树，"*后缀" 用反向前缀树；
+ * 查找只需沿包名走一遍，不访问数据库
+ *
+ * 多条规则同时命中时取编译顺序最靠前的一条，与按顺序逐条匹配的结果一致
+ */
+public final class LicenseRuleIndex {
+
+    private final Map<String, Match> exact = new HashMap<>();
+    private final Node prefixes = new Node();
+    private final Node suffixes = new Node();
+    private final int ruleCount;
+
+    private LicenseRuleIndex(List<LicenseRule> rules) {
+        int order = 0;
+        for (LicenseRule rule : rules) {
+            String pattern = rule.getPackagePattern();
+            if (pattern == null || rule.getLicenseType() == null) {
+                continue;
+            }
+            Match match = new Match(order++, rule.getLicenseType());
+            if (pattern.endsWith("*")) {
+                prefixes.insert(pattern, 0, pattern.length() - 1, false, match);
+            } else if (pattern.startsWith("*")) {
+                suffixes.insert(pattern, 1, pattern.length(), true, match);
+            } else {
+                exact.putIfAbsent(pattern, match);
+            }
+        }
+        this.ruleCount = order;
+    }
+
+    /**
+     * @param rules 按优先级排序的规则
+     */
+    public static LicenseRuleIndex compile(List<LicenseRule> rules) {
+        return new LicenseRuleIndex(rules);
+    }
+
+    /**
+     * @return 命中规则的许可证类型，没有命中返回 null
+     */
+    public String match(String packageName) {
+        if (packageName == null || ruleCount == 0) {
+            return null;
+        }
+
+        Match best = exact.get(packageName);
+
+        Node node = prefixes;
+        best = better(best, node.match);
+        for (int i = 0; i < packageName.length() && node != null; i++) {
+            node = node.child(packageName.charAt(i));
+            if (node != null) {
+                best = better(best, node.match);
+            }
+        }
+
+        node = suffixes;
+        best = better(best, node.match);
+        for (int i = packageName.length() - 1; i >= 0 && node != null; i--) {
+            node = node.child(packageName.charAt(i));
+            if (node != null) {
+                best = better(best, node.match);
+            }
+        }
+
+        return best != null ? best.license : null;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    private static Match better(Match current, Match candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.order < current.order ? candidate : current;
+    }
+
+    private record Match(int order, String license) {
+    }
+
+    /**
+     * 前缀树节点，子节点按字符排序存放在数组中，查找用二分
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Match match;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        /**
+         * 插入 pattern[from, to)，reversed 为 true 时从尾部向前插入
+         */
+        void insert(String pattern, int from, int to, boolean reversed, Match value) {
+            Node node = this;
+            for (int k = 0; k < to - from; k++) {
+                char c = pattern.charAt(reversed ? to - 1 - k : from + k);
+                node = node.childOrCreate(c);
+            }
+            if (node.match == null) {
+                node.match = value;
+            }
+        }
+
+        private Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            Node created = new Node();
+            newKeys[at] = c;
+            newChildren[at] = created;
+            keys = newKeys;
+            children = newChildren;
+            return created;
+        }
+    }
+}
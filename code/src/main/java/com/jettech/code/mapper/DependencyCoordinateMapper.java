@@ -0,0 +1,29 @@
+package com.jettech.code.mapper;
+
+import com.jettech.code.entity.DependencyCoordinate;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface DependencyCoordinateMapper {
+    /**
+     * 按 (ecosystem, name, version) 批量查找，参数中只使用这三个字段
+     */
+    List<DependencyCoordinate> findByCoordinates(List<DependencyCoordinate> coordinates);
+    
+    /**
+     * 批量插入，已存在的坐标忽略（多个扫描可能同时插入同一坐标）
+     */
+    int batchInsertIgnore(List<DependencyCoordinate> coordinates);
+    
+    int updateLicense(@Param("id") Long id,
+                      @Param("license") String license,
+                      @Param("checkedAt") LocalDateTime checkedAt);
+    
+    int updateVulnerabilities(@Param("id") Long id,
+                              @Param("vulnerabilities") String vulnerabilities,
+                              @Param("checkedAt") LocalDateTime checkedAt);
+}
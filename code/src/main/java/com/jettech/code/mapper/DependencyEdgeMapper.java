@@ -0,0 +1,15 @@
+package com.jettech.code.mapper;
+
+import com.jettech.code.entity.DependencyEdge;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+@Mapper
+public interface DependencyEdgeMapper {
+    List<DependencyEdge> findByServiceId(Long serviceId);
+    
+    int batchInsert(List<DependencyEdge> edges);
+    
+    int deleteByServiceId(Long serviceId);
+}
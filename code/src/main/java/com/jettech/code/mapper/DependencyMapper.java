@@ -24,5 +24,7 @@ public interface DependencyMapper {
     
     int deleteById(Long id);
     
+    int deleteByIds(List<Long> ids);
+    
     List<Dependency> findByApplicationId(Long applicationId);
 }
@@ -0,0 +1,27 @@
+package com.jettech.code.mapper;
+
+import com.jettech.code.entity.LicenseCache;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface LicenseCacheMapper {
+    LicenseCache findByCoordinate(@Param("ecosystem") String ecosystem,
+                                  @Param("packageName") String packageName,
+                                  @Param("version") String version,
+                                  @Param("source") String source);
+    
+    List<LicenseCache> findRecentValid(@Param("limit") int limit);
+    
+    int upsert(LicenseCache cache);
+    
+    int count();
+    
+    int deleteExpired();
+    
+    int deleteOldest(@Param("limit") int limit);
+    
+    int clearAll();
+}
@@ -10,6 +10,11 @@ import java.util.List;
 public interface LicenseRuleMapper {
     List<LicenseRule> findAll();
     
+    /**
+     * 规则表指纹（条数、最大ID、内容校验和），用于判断规则是否变化
+     */
+    String selectFingerprint();
+    
     List<LicenseRule> findByEcosystem(@Param("ecosystem") String ecosystem);
     
     LicenseRule findByPackagePattern(@Param("packagePattern") String packagePattern);
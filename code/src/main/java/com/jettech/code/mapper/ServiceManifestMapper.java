@@ -0,0 +1,19 @@
+package com.jettech.code.mapper;
+
+import com.jettech.code.entity.ServiceManifest;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface ServiceManifestMapper {
+    List<ServiceManifest> findByServiceId(Long serviceId);
+    
+    int batchUpsert(List<ServiceManifest> manifests);
+    
+    int deleteByServiceId(Long serviceId);
+    
+    int deleteByServiceIdExcept(@Param("serviceId") Long serviceId, @Param("filePaths") Collection<String> filePaths);
+}
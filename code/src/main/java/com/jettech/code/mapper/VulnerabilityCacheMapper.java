@@ -20,6 +20,8 @@ public interface VulnerabilityCacheMapper {
     
     int batchInsert(List<VulnerabilityCache> caches);
     
+    int deleteById(Long id);
+    
     int deleteByPackagePattern(@Param("packagePattern") String packagePattern);
     
     int deleteByEcosystem(@Param("ecosystem") String ecosystem);
@@ -10,6 +10,8 @@ import java.util.List;
 public interface VulnerabilityMapper {
     List<Vulnerability> findByDependencyId(Long dependencyId);
     
+    List<Vulnerability> findByServiceId(Long serviceId);
+    
     Vulnerability findById(Long id);
     
     List<Vulnerability> findBySeverity(@Param("dependencyId") Long dependencyId, @Param("severity") String severity);
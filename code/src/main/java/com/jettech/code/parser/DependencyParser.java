@@ -2,6 +2,8 @@ package com.jettech.code.parser;
 
 import com.jettech.code.entity.Dependency;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public interface DependencyParser {
@@ -11,4 +13,40 @@ public interface DependencyParser {
     List<Dependency> parse(Long serviceId, File projectDir) throws Exception;
     
     String getEcosystem();
+    
+    /**
+     * 标识项目目录的清单文件名，按优先级排列，第一个存在的文件作为依赖的来源
+     */
+    List<String> getManifestNames();
+    
+    /**
+     * 嵌套在本解析器另一个项目目录下的项目是否已被外层项目的解析覆盖（如 Maven 多模块、npm workspaces），
+     * 覆盖时不再单独解析
+     */
+    default boolean coversNestedProject(File projectDir, File nestedDir) {
+        return false;
+    }
+    
+    /**
+     * 解析时会读取的清单文件（包括锁文件），用于判断两次扫描之间依赖是否可能发生变化
+     */
+    List<File> getManifestFiles(File projectDir) throws IOException;
+    
+    /**
+     * 依赖在关系图中的标识，用于 Dependency.requiredBy
+     */
+    static String nodeKey(String name, String version) {
+        return name + "@" + version;
+    }
+    
+    static List<File> existingFiles(File projectDir, String... names) {
+        List<File> files = new ArrayList<>();
+        for (String name : names) {
+            File file = new File(projectDir, name);
+            if (file.isFile()) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
 }
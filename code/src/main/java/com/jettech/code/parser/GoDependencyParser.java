@@ -1,14 +1,23 @@
 package com.jettech.code.parser;
 
 import com.jettech.code.entity.Dependency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -16,6 +25,14 @@ import java.util.regex.Pattern;
 @Component
 public class GoDependencyParser implements DependencyParser {
 
+    private static final Logger logger = LoggerFactory.getLogger(GoDependencyParser.class);
+
+    /**
+     * Go 模块缓存（GOMODCACHE），从中读取各依赖的 go.mod 构建依赖关系
+     */
+    @Value("${golang.module-cache:${GOMODCACHE:${user.home}/go/pkg/mod}}")
+    private String moduleCache;
+
     @Override
     public boolean supports(File projectDir) {
         return new File(projectDir, "go.mod").exists();
@@ -25,17 +42,129 @@ public class GoDependencyParser implements DependencyParser {
     public List<Dependency> parse(Long serviceId, File projectDir) throws Exception {
         List<Dependency> dependencies = new ArrayList<>();
         
+        File goModFile = new File(projectDir, "go.mod");
         File goSumFile = new File(projectDir, "go.sum");
         if (goSumFile.exists()) {
             dependencies.addAll(parseGoSum(serviceId, goSumFile));
         } else {
-            File goModFile = new File(projectDir, "go.mod");
             dependencies.addAll(parseGoMod(serviceId, goModFile));
         }
         
+        linkGraph(dependencies, readRequires(goModFile.toPath()));
         return dependencies;
     }
 
+    /**
+     * 按 go.mod 的模块图标记依赖关系
+     * 主模块 go.mod 中的 require 即构建选中的版本（Go 1.17 起包含全部间接依赖），没有 // indirect 注释的是直接依赖；
+     * 选中版本之间的边取自模块缓存中各依赖的 go.mod，缓存中没有的模块只保留直接依赖关系
+     */
+    private void linkGraph(List<Dependency> dependencies, List<Require> requires) {
+        Map<String, Dependency> byKey = new HashMap<>();
+        for (Dependency dep : dependencies) {
+            byKey.putIfAbsent(DependencyParser.nodeKey(dep.getName(), dep.getVersion()), dep);
+        }
+        
+        Map<String, String> selected = new HashMap<>();
+        for (Require require : requires) {
+            selected.put(require.module(), require.version());
+            Dependency dep = byKey.get(DependencyParser.nodeKey(require.module(), require.version()));
+            if (dep != null && !require.indirect()) {
+                dep.setDirect(true);
+            }
+        }
+        
+        int edges = 0;
+        int missing = 0;
+        for (Map.Entry<String, String> module : selected.entrySet()) {
+            Path modFile = moduleCacheFile(module.getKey(), module.getValue());
+            if (!Files.isRegularFile(modFile)) {
+                missing++;
+                continue;
+            }
+            String parentKey = DependencyParser.nodeKey(module.getKey(), module.getValue());
+            try {
+                for (Require require : readRequires(modFile)) {
+                    String version = selected.get(require.module());
+                    Dependency child = version != null ? byKey.get(DependencyParser.nodeKey(require.module(), version)) : null;
+                    if (child != null) {
+                        if (child.getRequiredBy() == null) {
+                            child.setRequiredBy(new LinkedHashSet<>());
+                        }
+                        if (child.getRequiredBy().add(parentKey)) {
+                            edges++;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Failed to read {}: {}", modFile, e.getMessage());
+            }
+        }
+        logger.info("Go module graph: {} selected modules, {} edges, {} go.mod files not in module cache",
+            selected.size(), edges, missing);
+    }
+
+    /**
+     * 模块缓存中 go.mod 的路径，模块路径和版本中的大写字母按 Go 的规则转义为 !小写
+     */
+    private Path moduleCacheFile(String module, String version) {
+        return Paths.get(moduleCache, "cache", "download", escapePath(module), "@v", escapePath(version) + ".mod");
+    }
+
+    private static String escapePath(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                escaped.append('!').append((char) (c + ('a' - 'A')));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * 读取 go.mod 的 require 指令（单行和块形式）
+     */
+    private static List<Require> readRequires(Path goMod) throws IOException {
+        List<Require> requires = new ArrayList<>();
+        if (!Files.isRegularFile(goMod)) {
+            return requires;
+        }
+        
+        boolean inRequireBlock = false;
+        for (String raw : Files.readAllLines(goMod)) {
+            String line = raw.trim();
+            int comment = line.indexOf("//");
+            boolean indirect = comment >= 0 && line.substring(comment + 2).trim().startsWith("indirect");
+            if (comment >= 0) {
+                line = line.substring(0, comment).trim();
+            }
+            
+            if (line.startsWith("require (") || line.equals("require(")) {
+                inRequireBlock = true;
+                continue;
+            }
+            if (inRequireBlock && line.equals(")")) {
+                inRequireBlock = false;
+                continue;
+            }
+            if (!inRequireBlock && !line.startsWith("require ")) {
+                continue;
+            }
+            if (line.startsWith("require ")) {
+                line = line.substring(8).trim();
+            }
+            
+            String[] parts = line.split("\\s+");
+            if (parts.length >= 2) {
+                requires.add(new Require(parts[0], parts[1], indirect));
+            }
+        }
+        return requires;
+    }
+
     private List<Dependency> parseGoSum(Long serviceId, File goSumFile) throws Exception {
         List<Dependency> dependencies = new ArrayList<>();
         Set<String> seenPackages = new HashSet<>();
@@ -81,44 +210,17 @@ public class GoDependencyParser implements DependencyParser {
 
     private List<Dependency> parseGoMod(Long serviceId, File goModFile) throws Exception {
         List<Dependency> dependencies = new ArrayList<>();
-        List<String> lines = Files.readAllLines(goModFile.toPath());
         
-        boolean inRequireBlock = false;
-
-        for (String line : lines) {
-            line = line.trim();
-            
-            if (line.startsWith("require (")) {
-                inRequireBlock = true;
-                continue;
-            }
-            
-            if (inRequireBlock && line.equals(")")) {
-                inRequireBlock = false;
-                continue;
-            }
+        for (Require require : readRequires(goModFile.toPath())) {
+            Dependency dep = new Dependency();
+            dep.setServiceId(serviceId);
+            dep.setName(require.module());
+            dep.setVersion(require.version());
+            dep.setType("golang");
+            dep.setPurl("pkg:golang/" + require.module() + "@" + require.version());
+            dep.setCreatedAt(LocalDateTime.now());
             
-            if (inRequireBlock || line.startsWith("require ")) {
-                if (line.startsWith("require ")) {
-                    line = line.substring(8).trim();
-                }
-                
-                String[] parts = line.split("\\s+");
-                if (parts.length >= 2 && !line.startsWith("module") && !line.startsWith("go ")) {
-                    String moduleName = parts[0];
-                    String version = parts[1];
-                    
-                    Dependency dep = new Dependency();
-                    dep.setServiceId(serviceId);
-                    dep.setName(moduleName);
-                    dep.setVersion(version);
-                    dep.setType("golang");
-                    dep.setPurl("pkg:golang/" + moduleName + "@" + version);
-                    dep.setCreatedAt(LocalDateTime.now());
-                    
-                    dependencies.add(dep);
-                }
-            }
+            dependencies.add(dep);
         }
 
         return dependencies;
@@ -128,4 +230,17 @@ public class GoDependencyParser implements DependencyParser {
     public String getEcosystem() {
         return "Go";
     }
+
+    @Override
+    public List<String> getManifestNames() {
+        return List.of("go.mod");
+    }
+
+    @Override
+    public List<File> getManifestFiles(File projectDir) {
+        return DependencyParser.existingFiles(projectDir, "go.mod", "go.sum");
+    }
+
+    private record Require(String module, String version, boolean indirect) {
+    }
 }
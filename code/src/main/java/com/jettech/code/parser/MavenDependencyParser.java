@@ -1,15 +1,22 @@
 package com.jettech.code.parser;
 
 import com.jettech.code.entity.Dependency;
-import org.apache.maven.model.DependencyManagement;
+import com.jettech.code.parser.MavenModelResolver.EffectivePom;
+import com.jettech.code.parser.MavenModelResolver.ManagedDependency;
+import org.apache.maven.model.Exclusion;
 import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -17,6 +24,25 @@ import java.util.*;
 public class MavenDependencyParser implements DependencyParser {
     
     private static final Logger logger = LoggerFactory.getLogger(MavenDependencyParser.class);
+    
+    /**
+     * 父 POM 和 BOM 都找不到时的版本占位，漏洞检查会跳过
+     */
+    private static final String UNRESOLVED_VERSION = "managed";
+    
+    private static final int MAX_TRANSITIVE_DEPTH = 20;
+    
+    /**
+     * 是否从本地仓库展开传递依赖
+     */
+    @Value("${maven.transitive.enabled:true}")
+    private boolean transitiveEnabled;
+    
+    private final MavenPomCache pomCache;
+    
+    public MavenDependencyParser(MavenPomCache pomCache) {
+        this.pomCache = pomCache;
+    }
 
     @Override
     public boolean supports(File projectDir) {
@@ -27,23 +53,27 @@ public class MavenDependencyParser implements DependencyParser {
 
     @Override
     public List<Dependency> parse(Long serviceId, File projectDir) throws Exception {
-        List<Dependency> dependencies = new ArrayList<>();
-        Map<String, String> managedVersions = new HashMap<>();
-        Map<String, String> properties = new HashMap<>();
+        Map<String, Dependency> dependencies = new LinkedHashMap<>();
+        MavenModelResolver resolver = new MavenModelResolver(pomCache, getManifestFiles(projectDir));
         
-        parsePomFile(serviceId, projectDir, new File(projectDir, "pom.xml"), 
-            managedVersions, properties, dependencies, new HashSet<>());
+        parsePomFile(serviceId, new File(projectDir, "pom.xml"), resolver, dependencies, new HashSet<>());
         
-        logger.info("Total parsed {} dependencies from project", dependencies.size());
+        long unresolved = dependencies.values().stream().filter(dep -> UNRESOLVED_VERSION.equals(dep.getVersion())).count();
+        long direct = dependencies.values().stream().filter(Dependency::isDirect).count();
+        logger.info("Total parsed {} dependencies from project ({} direct, {} without resolvable version)", 
+            dependencies.size(), direct, unresolved);
+        logger.debug("POM cache: {}", pomCache.getStats());
         
-        return dependencies;
+        return new ArrayList<>(dependencies.values());
     }
     
-    private void parsePomFile(Long serviceId, File projectDir, File pomFile, 
-                              Map<String, String> managedVersions,
-                              Map<String, String> properties,
-                              List<Dependency> dependencies,
-                              Set<String> parsedModules) throws Exception {
+    /**
+     * @param dependencies 按 DependencyParser.nodeKey 去重，多个模块引入的同一依赖合并其引入关系
+     */
+    private void parsePomFile(Long serviceId, File pomFile,
+                              MavenModelResolver resolver,
+                              Map<String, Dependency> dependencies,
+                              Set<File> parsedModules) {
         
         if (!pomFile.exists()) {
             logger.debug("pom.xml not found: {}", pomFile.getAbsolutePath());
@@ -52,124 +82,293 @@ public class MavenDependencyParser implements DependencyParser {
         
         logger.info("Parsing pom.xml: {}", pomFile.getAbsolutePath());
         
-        MavenXpp3Reader reader = new MavenXpp3Reader();
-        Model model = reader.read(new FileReader(pomFile));
+        EffectivePom effective = resolver.resolve(pomFile);
+        if (effective == null) {
+            logger.warn("Failed to resolve pom.xml: {}", pomFile.getAbsolutePath());
+            return;
+        }
+        Model model = effective.model();
         
-        logger.info("Model groupId: {}, artifactId: {}, packaging: {}", 
-            model.getGroupId(), model.getArtifactId(), model.getPackaging());
+        logger.info("Model groupId: {}, artifactId: {}, packaging: {}, {} managed versions", 
+            effective.groupId(), model.getArtifactId(), model.getPackaging(), effective.managed().size());
         
-        if (model.getProperties() != null) {
-            for (Map.Entry<Object, Object> entry : model.getProperties().entrySet()) {
-                String key = String.valueOf(entry.getKey());
-                String value = String.valueOf(entry.getValue());
-                properties.put(key, value);
-            }
-            logger.debug("Loaded {} properties", model.getProperties().size());
-        }
-        
-        if (model.getDependencyManagement() != null) {
-            List<org.apache.maven.model.Dependency> managedDeps = model.getDependencyManagement().getDependencies();
-            logger.debug("Found {} managed dependencies", managedDeps != null ? managedDeps.size() : 0);
-            if (managedDeps != null) {
-                for (org.apache.maven.model.Dependency dep : managedDeps) {
-                    String groupId = resolveProperty(dep.getGroupId(), properties);
-                    String artifactId = resolveProperty(dep.getArtifactId(), properties);
-                    if (groupId != null && artifactId != null) {
-                        String key = groupId + ":" + artifactId;
-                        String version = resolveProperty(dep.getVersion(), properties);
-                        if (version != null && !version.startsWith("${")) {
-                            managedVersions.put(key, version);
-                        }
-                    }
-                }
+        List<org.apache.maven.model.Dependency> modelDeps = effective.dependencyDeclarations();
+        logger.info("Found {} dependencies (including inherited) in {}", modelDeps.size(), pomFile.getName());
+        
+        List<Node> directs = new ArrayList<>();
+        for (org.apache.maven.model.Dependency mavenDep : modelDeps) {
+            Dependency created = createDependency(serviceId, mavenDep, effective);
+            if (created == null) {
+                continue;
             }
+            Dependency dep = dependencies.computeIfAbsent(
+                DependencyParser.nodeKey(created.getName(), created.getVersion()), key -> created);
+            dep.setDirect(true);
+            directs.add(new Node(dep, created.getScope(), exclusions(Set.of(), mavenDep), 1));
         }
         
-        List<org.apache.maven.model.Dependency> modelDeps = model.getDependencies();
-        int depCount = modelDeps != null ? modelDeps.size() : 0;
-        logger.info("Found {} direct dependencies in {}", depCount, pomFile.getName());
-        
-        if (modelDeps != null) {
-            for (org.apache.maven.model.Dependency mavenDep : modelDeps) {
-                Dependency dep = createDependency(serviceId, mavenDep, managedVersions, properties);
-                if (dep != null) {
-                    String depKey = dep.getGroupId() + ":" + dep.getArtifactId() + ":" + dep.getVersion();
-                    boolean exists = dependencies.stream()
-                        .anyMatch(d -> (d.getGroupId() + ":" + d.getArtifactId() + ":" + d.getVersion()).equals(depKey));
-                    if (!exists) {
-                        dependencies.add(dep);
-                    }
-                }
-            }
+        if (transitiveEnabled) {
+            int before = dependencies.size();
+            resolveTransitive(serviceId, effective, directs, resolver, dependencies);
+            logger.info("Resolved {} transitive dependencies for {}", dependencies.size() - before, model.getArtifactId());
         }
         
         List<String> modules = model.getModules();
         if (modules != null && !modules.isEmpty()) {
             logger.info("Found {} sub-modules: {}", modules.size(), modules);
             for (String moduleName : modules) {
-                if (parsedModules.contains(moduleName)) {
+                File moduleDir = new File(pomFile.getParentFile(), moduleName);
+                File modulePom = moduleDir.isFile() ? moduleDir : new File(moduleDir, "pom.xml");
+                if (!parsedModules.add(modulePom.toPath().toAbsolutePath().normalize().toFile())) {
                     continue;
                 }
-                parsedModules.add(moduleName);
-                
-                File moduleDir = new File(pomFile.getParentFile(), moduleName);
-                File modulePom = new File(moduleDir, "pom.xml");
                 
                 logger.info("Parsing sub-module: {}", moduleName);
-                parsePomFile(serviceId, projectDir, modulePom, managedVersions, properties, dependencies, parsedModules);
+                parsePomFile(serviceId, modulePom, resolver, dependencies, parsedModules);
             }
         }
     }
-    
-    private String resolveProperty(String value, Map<String, String> properties) {
-        if (value == null) {
-            return null;
+
+    /**
+     * 按 Maven 的规则展开传递依赖：广度优先，同一 groupId:artifactId 离项目最近的版本胜出，
+     * 模块的 dependencyManagement 覆盖传递依赖的版本和范围；optional 及 test/provided 依赖不传递，遵守 exclusions
+     * 依赖的 POM 从本地仓库读取，不在本地仓库的依赖不再向下展开
+     */
+    private void resolveTransitive(Long serviceId, EffectivePom module, List<Node> directs,
+                                   MavenModelResolver resolver, Map<String, Dependency> dependencies) {
+        Map<String, String> selected = new HashMap<>();
+        for (Node direct : directs) {
+            selected.putIfAbsent(direct.dependency().getName(), direct.dependency().getVersion());
         }
+        Deque<Node> queue = new ArrayDeque<>(directs);
         
-        if (value.startsWith("${") && value.endsWith("}")) {
-            String key = value.substring(2, value.length() - 1);
-            String resolved = properties.get(key);
-            if (resolved != null) {
-                return resolved;
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            Dependency parent = node.dependency();
+            if (node.depth() >= MAX_TRANSITIVE_DEPTH) {
+                continue;
+            }
+            File pom = pomCache.localRepositoryPom(parent.getGroupId(), parent.getArtifactId(), parent.getVersion());
+            EffectivePom effective = pom != null ? resolver.resolve(pom) : null;
+            if (effective == null) {
+                continue;
+            }
+            String parentKey = DependencyParser.nodeKey(parent.getName(), parent.getVersion());
+            
+            for (org.apache.maven.model.Dependency declaration : effective.dependencyDeclarations()) {
+                if (declaration.isOptional()) {
+                    continue;
+                }
+                String groupId = MavenModelResolver.interpolate(declaration.getGroupId(), effective.properties());
+                String artifactId = MavenModelResolver.interpolate(declaration.getArtifactId(), effective.properties());
+                if (groupId == null || artifactId == null || groupId.contains("${") || artifactId.contains("${")
+                        || node.excludes(groupId, artifactId)) {
+                    continue;
+                }
+                
+                String name = groupId + ":" + artifactId;
+                ManagedDependency own = effective.managed().get(name);
+                ManagedDependency override = module.managed().get(name);
+                String scope = declaration.getScope() != null ? declaration.getScope() : own != null ? own.scope() : null;
+                if (override != null && override.scope() != null) {
+                    scope = override.scope();
+                }
+                String childScope = transitiveScope(node.scope(), scope);
+                if (childScope == null) {
+                    continue;
+                }
+                
+                String version = selected.get(name);
+                if (version == null) {
+                    version = transitiveVersion(declaration, effective, own, override);
+                    if (version == null) {
+                        continue;
+                    }
+                    selected.put(name, version);
+                    String resolvedVersion = version;
+                    Dependency child = dependencies.computeIfAbsent(DependencyParser.nodeKey(name, version),
+                        key -> newDependency(serviceId, groupId, artifactId, resolvedVersion, childScope));
+                    addRequiredBy(child, parentKey);
+                    queue.add(new Node(child, childScope, exclusions(node.exclusions(), declaration), node.depth() + 1));
+                } else {
+                    Dependency child = dependencies.get(DependencyParser.nodeKey(name, version));
+                    if (child != null) {
+                        addRequiredBy(child, parentKey);
+                    }
+                }
             }
-            return value;
         }
-        
-        return value;
+    }
+    
+    private static String transitiveVersion(org.apache.maven.model.Dependency declaration, EffectivePom effective,
+                                            ManagedDependency own, ManagedDependency override) {
+        if (override != null && isConcrete(override.version())) {
+            return override.version();
+        }
+        String version = MavenModelResolver.interpolate(declaration.getVersion(), effective.properties());
+        if (!isConcrete(version) && own != null) {
+            version = own.version();
+        }
+        return isConcrete(version) ? version : null;
+    }
+    
+    /**
+     * Maven 传递范围表：compile/runtime 依赖才会传递，范围取两者中较窄的一个
+     */
+    private static String transitiveScope(String parentScope, String scope) {
+        String child = scope != null ? scope : "compile";
+        if (!child.equals("compile") && !child.equals("runtime")) {
+            return null;
+        }
+        String parent = parentScope != null ? parentScope : "compile";
+        return switch (parent) {
+            case "compile" -> child;
+            case "runtime", "provided", "test" -> parent;
+            default -> null;
+        };
+    }
+    
+    private static Set<String> exclusions(Set<String> inherited, org.apache.maven.model.Dependency declaration) {
+        if (declaration.getExclusions().isEmpty()) {
+            return inherited;
+        }
+        Set<String> exclusions = new HashSet<>(inherited);
+        for (Exclusion exclusion : declaration.getExclusions()) {
+            exclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
+        }
+        return exclusions;
+    }
+    
+    private static void addRequiredBy(Dependency dependency, String parentKey) {
+        if (dependency.getRequiredBy() == null) {
+            dependency.setRequiredBy(new LinkedHashSet<>());
+        }
+        dependency.getRequiredBy().add(parentKey);
+    }
+    
+    private static boolean isConcrete(String version) {
+        return version != null && !version.isEmpty() && !version.contains("${");
     }
 
     private Dependency createDependency(Long serviceId, org.apache.maven.model.Dependency mavenDep, 
-                                        Map<String, String> managedVersions,
-                                        Map<String, String> properties) {
-        String groupId = resolveProperty(mavenDep.getGroupId(), properties);
-        String artifactId = resolveProperty(mavenDep.getArtifactId(), properties);
-        String version = resolveProperty(mavenDep.getVersion(), properties);
+                                        EffectivePom effective) {
+        Map<String, String> properties = effective.properties();
+        String groupId = MavenModelResolver.interpolate(mavenDep.getGroupId(), properties);
+        String artifactId = MavenModelResolver.interpolate(mavenDep.getArtifactId(), properties);
+        String version = MavenModelResolver.interpolate(mavenDep.getVersion(), properties);
         
-        if (groupId == null || artifactId == null || groupId.startsWith("${") || artifactId.startsWith("${")) {
+        if (groupId == null || artifactId == null || groupId.contains("${") || artifactId.contains("${")) {
             return null;
         }
         
-        if (version == null || version.startsWith("${")) {
-            String key = groupId + ":" + artifactId;
-            version = managedVersions.getOrDefault(key, "managed");
+        ManagedDependency managed = effective.managed().get(groupId + ":" + artifactId);
+        if ((version == null || version.contains("${")) && managed != null && managed.version() != null 
+                && !managed.version().contains("${")) {
+            version = managed.version();
+        }
+        if (version == null || version.contains("${")) {
+            version = UNRESOLVED_VERSION;
+        }
+        
+        String scope = mavenDep.getScope();
+        if (scope == null && managed != null) {
+            scope = managed.scope();
         }
         
+        return newDependency(serviceId, groupId, artifactId, version, scope);
+    }
+    
+    private static Dependency newDependency(Long serviceId, String groupId, String artifactId, String version, String scope) {
         Dependency dep = new Dependency();
         dep.setServiceId(serviceId);
         dep.setGroupId(groupId);
         dep.setArtifactId(artifactId);
-        dep.setVersion(version != null ? version : "unknown");
+        dep.setVersion(version);
         dep.setName(groupId + ":" + artifactId);
         dep.setType("maven");
-        dep.setScope(mavenDep.getScope());
-        dep.setPurl("pkg:maven/" + groupId + "/" + artifactId + "@" + dep.getVersion());
+        dep.setScope(scope);
+        dep.setPurl("pkg:maven/" + groupId + "/" + artifactId + "@" + version);
         dep.setCreatedAt(LocalDateTime.now());
-        
         return dep;
     }
+    
+    /**
+     * 待展开的依赖，exclusions 为沿途累积的 groupId:artifactId（支持 * 通配）
+     */
+    private record Node(Dependency dependency, String scope, Set<String> exclusions, int depth) {
+        boolean excludes(String groupId, String artifactId) {
+            return !exclusions.isEmpty() && (exclusions.contains(groupId + ":" + artifactId)
+                || exclusions.contains(groupId + ":*") || exclusions.contains("*:" + artifactId)
+                || exclusions.contains("*:*"));
+        }
+    }
 
     @Override
     public String getEcosystem() {
         return "Maven";
     }
+
+    @Override
+    public List<String> getManifestNames() {
+        return List.of("pom.xml");
+    }
+
+    /**
+     * 外层 POM 的解析只沿 &lt;modules&gt; 递归，嵌套目录在其模块树中时已被覆盖；
+     * 不在模块树中的 POM（独立的示例、工具，只在 profile 中声明的模块）需要单独解析
+     */
+    @Override
+    public boolean coversNestedProject(File projectDir, File nestedDir) {
+        Path target = nestedDir.toPath().toAbsolutePath().normalize().resolve("pom.xml");
+        Deque<Path> pending = new ArrayDeque<>();
+        Set<Path> visited = new HashSet<>();
+        pending.add(projectDir.toPath().toAbsolutePath().normalize().resolve("pom.xml"));
+        while (!pending.isEmpty()) {
+            Path pom = pending.poll();
+            if (!visited.add(pom)) {
+                continue;
+            }
+            if (pom.equals(target)) {
+                return true;
+            }
+            Model model = pomCache.load(pom.toFile());
+            if (model == null) {
+                continue;
+            }
+            for (String module : model.getModules()) {
+                // 与 parsePomFile 相同：模块可以直接指向 POM 文件
+                Path moduleDir = pom.getParent().resolve(module).normalize();
+                pending.add(Files.isRegularFile(moduleDir) ? moduleDir : moduleDir.resolve("pom.xml"));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 多模块项目的子模块 pom.xml 也会被解析，这里遍历目录收集全部 pom.xml，跳过构建输出和隐藏目录
+     */
+    @Override
+    public List<File> getManifestFiles(File projectDir) throws IOException {
+        List<File> pomFiles = new ArrayList<>();
+        Files.walkFileTree(projectDir.toPath(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() != null ? dir.getFileName().toString() : "";
+                if (!dir.equals(projectDir.toPath()) && 
+                    (name.startsWith(".") || name.equals("target") || name.equals("node_modules"))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.getFileName().toString().equals("pom.xml")) {
+                    pomFiles.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return pomFiles;
+    }
 }
@@ -0,0 +1,258 @@
+package com.jettech.code.parser;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maven 有效模型计算（每次解析新建，非线程安全）
+ * 沿父 POM 链合并属性、dependencyManagement 和 dependencies，并展开 import 范围的 BOM，
+ * 与 Maven 一致：子 POM 的声明优先于父 POM，显式声明优先于 BOM，先导入的 BOM 优先于后导入的
+ *
+ * 父 POM 和 BOM 先在项目内查找，再到本地仓库查找；都找不到时只使用已有信息
+ */
+final class MavenModelResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(MavenModelResolver.class);
+
+    private static final int MAX_DEPTH = 32;
+    private static final int MAX_INTERPOLATION_PASSES = 10;
+
+    private final MavenPomCache pomCache;
+
+    // 项目内的 POM：groupId:artifactId -> 文件
+    private final Map<String, File> reactor = new HashMap<>();
+
+    private final Map<File, EffectivePom> resolved = new HashMap<>();
+    private final Set<File> resolving = new HashSet<>();
+
+    MavenModelResolver(MavenPomCache pomCache, List<File> projectPoms) {
+        this.pomCache = pomCache;
+        for (File pom : projectPoms) {
+            Model model = pomCache.load(pom);
+            if (model != null && model.getArtifactId() != null) {
+                reactor.putIfAbsent(groupIdOf(model) + ":" + model.getArtifactId(), normalize(pom));
+            }
+        }
+    }
+
+    /**
+     * @return POM 的有效模型；文件不存在、无法解析或父 POM 成环时返回 null
+     */
+    EffectivePom resolve(File pomFile) {
+        File key = normalize(pomFile);
+        EffectivePom cached = resolved.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (resolving.size() >= MAX_DEPTH || !resolving.add(key)) {
+            logger.warn("POM parent/import chain too deep or cyclic at {}", key);
+            return null;
+        }
+
+        try {
+            Model model = pomCache.load(key);
+            if (model == null) {
+                return null;
+            }
+            File parentPom = locateParent(model, key);
+            EffectivePom parent = parentPom != null ? resolve(parentPom) : null;
+            if (model.getParent() != null && parent == null) {
+                Parent declared = model.getParent();
+                logger.debug("Parent POM {}:{}:{} of {} not found", declared.getGroupId(), declared.getArtifactId(),
+                    declared.getVersion(), key);
+            }
+
+            EffectivePom effective = build(model, parent);
+            resolved.put(key, effective);
+            return effective;
+        } finally {
+            resolving.remove(key);
+        }
+    }
+
+    private EffectivePom build(Model model, EffectivePom parent) {
+        String groupId = groupIdOf(model);
+        String version = model.getVersion() != null ? model.getVersion()
+            : model.getParent() != null ? model.getParent().getVersion() : null;
+
+        Map<String, String> properties = parent != null ? new HashMap<>(parent.properties()) : new HashMap<>();
+        if (model.getProperties() != null) {
+            for (Map.Entry<Object, Object> entry : model.getProperties().entrySet()) {
+                properties.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+            }
+        }
+        putIfNotNull(properties, "project.groupId", groupId);
+        putIfNotNull(properties, "project.artifactId", model.getArtifactId());
+        putIfNotNull(properties, "project.version", version);
+        putIfNotNull(properties, "pom.groupId", groupId);
+        putIfNotNull(properties, "pom.version", version);
+        if (model.getParent() != null) {
+            putIfNotNull(properties, "project.parent.groupId", model.getParent().getGroupId());
+            putIfNotNull(properties, "project.parent.version", model.getParent().getVersion());
+        }
+
+        // 声明按子 POM 在前、父 POM 在后排列，合并时先出现的优先
+        List<Dependency> managedDeclarations = new ArrayList<>();
+        if (model.getDependencyManagement() != null) {
+            managedDeclarations.addAll(model.getDependencyManagement().getDependencies());
+        }
+        List<Dependency> dependencyDeclarations = new ArrayList<>(model.getDependencies());
+        if (parent != null) {
+            managedDeclarations.addAll(parent.managedDeclarations());
+            dependencyDeclarations.addAll(parent.dependencyDeclarations());
+        }
+
+        Map<String, ManagedDependency> managed = new LinkedHashMap<>();
+        List<Dependency> imports = new ArrayList<>();
+        for (Dependency declaration : managedDeclarations) {
+            if ("import".equals(declaration.getScope()) && "pom".equals(declaration.getType())) {
+                imports.add(declaration);
+                continue;
+            }
+            String key = interpolate(declaration.getGroupId(), properties) + ":"
+                + interpolate(declaration.getArtifactId(), properties);
+            managed.putIfAbsent(key, new ManagedDependency(
+                interpolate(declaration.getVersion(), properties), declaration.getScope()));
+        }
+        for (Dependency bom : imports) {
+            EffectivePom imported = resolveImport(
+                interpolate(bom.getGroupId(), properties),
+                interpolate(bom.getArtifactId(), properties),
+                interpolate(bom.getVersion(), properties));
+            if (imported != null) {
+                imported.managed().forEach(managed::putIfAbsent);
+            }
+        }
+
+        return new EffectivePom(model, groupId, properties,
+            Collections.unmodifiableList(managedDeclarations),
+            Collections.unmodifiableList(dependencyDeclarations),
+            Collections.unmodifiableMap(managed));
+    }
+
+    private EffectivePom resolveImport(String groupId, String artifactId, String version) {
+        File pom = reactor.get(groupId + ":" + artifactId);
+        if (pom == null) {
+            pom = pomCache.localRepositoryPom(groupId, artifactId, version);
+        }
+        EffectivePom imported = pom != null ? resolve(pom) : null;
+        if (imported == null) {
+            logger.debug("BOM {}:{}:{} not found", groupId, artifactId, version);
+        }
+        return imported;
+    }
+
+    /**
+     * 依次尝试 relativePath（默认 ../pom.xml，需 groupId/artifactId 一致）、项目内其他 POM、本地仓库
+     */
+    private File locateParent(Model model, File pomFile) {
+        Parent parent = model.getParent();
+        if (parent == null || parent.getArtifactId() == null) {
+            return null;
+        }
+
+        String relativePath = parent.getRelativePath();
+        if (relativePath != null && !relativePath.isBlank()) {
+            File candidate = new File(pomFile.getParentFile(), relativePath);
+            if (candidate.isDirectory()) {
+                candidate = new File(candidate, "pom.xml");
+            }
+            Model candidateModel = pomCache.load(candidate);
+            if (candidateModel != null && parent.getArtifactId().equals(candidateModel.getArtifactId())
+                    && Objects.equals(parent.getGroupId(), groupIdOf(candidateModel))) {
+                return candidate;
+            }
+        }
+
+        File inReactor = reactor.get(parent.getGroupId() + ":" + parent.getArtifactId());
+        if (inReactor != null) {
+            return inReactor;
+        }
+        return pomCache.localRepositoryPom(parent.getGroupId(), parent.getArtifactId(), parent.getVersion());
+    }
+
+    /**
+     * 替换值中的 ${...}，属性值本身引用其他属性时多轮替换；无法解析的占位符原样保留
+     */
+    static String interpolate(String value, Map<String, String> properties) {
+        if (value == null || !value.contains("${")) {
+            return value;
+        }
+
+        String current = value;
+        for (int pass = 0; pass < MAX_INTERPOLATION_PASSES && current.contains("${"); pass++) {
+            StringBuilder result = new StringBuilder(current.length());
+            int from = 0;
+            boolean changed = false;
+            while (true) {
+                int start = current.indexOf("${", from);
+                int end = start < 0 ? -1 : current.indexOf('}', start + 2);
+                if (end < 0) {
+                    result.append(current, from, current.length());
+                    break;
+                }
+                String replacement = properties.get(current.substring(start + 2, end));
+                result.append(current, from, start);
+                if (replacement != null) {
+                    result.append(replacement);
+                    changed = true;
+                } else {
+                    result.append(current, start, end + 1);
+                }
+                from = end + 1;
+            }
+            if (!changed) {
+                break;
+            }
+            current = result.toString();
+        }
+        return current;
+    }
+
+    private static String groupIdOf(Model model) {
+        if (model.getGroupId() != null) {
+            return model.getGroupId();
+        }
+        return model.getParent() != null ? model.getParent().getGroupId() : null;
+    }
+
+    private static void putIfNotNull(Map<String, String> properties, String key, String value) {
+        if (value != null) {
+            properties.put(key, value);
+        }
+    }
+
+    private static File normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize().toFile();
+    }
+
+    /**
+     * @param managedDeclarations 未插值的 dependencyManagement 声明（含继承的）
+     * @param dependencyDeclarations 未插值的 dependencies 声明（含继承的），由调用方按本模型属性插值
+     * @param managed 插值并展开 BOM 后的版本管理，key 为 groupId:artifactId
+     */
+    record EffectivePom(Model model,
+                        String groupId,
+                        Map<String, String> properties,
+                        List<Dependency> managedDeclarations,
+                        List<Dependency> dependencyDeclarations,
+                        Map<String, ManagedDependency> managed) {
+    }
+
+    record ManagedDependency(String version, String scope) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.jettech.code.parser;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已解析 POM 的共享缓存（所有扫描共用）
+ * 本地仓库中的 POM 按 GAV 定位，项目内的 POM 按路径定位，缓存项记录文件修改时间和大小，文件变化后重新解析
+ *
+ * 缓存的 Model 由多个扫描线程共享，调用方只能读取，不能修改
+ */
+@Component
+public class MavenPomCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MavenPomCache.class);
+
+    /**
+     * 本地 Maven 仓库，用于查找不在项目内的父 POM 和 BOM
+     */
+    @Value("${maven.local-repository:${user.home}/.m2/repository}")
+    private String localRepository;
+
+    @Value("${maven.pom-cache.max-entries:5000}")
+    private int maxEntries;
+
+    private Map<String, CachedPom> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPom> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return 解析后的 POM；文件不存在或无法解析时返回 null
+     */
+    public Model load(File pomFile) {
+        Path path = pomFile.toPath().toAbsolutePath().normalize();
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (Exception e) {
+            logger.debug("Failed to stat {}: {}", path, e.getMessage());
+            return null;
+        }
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+
+        String key = path.toString();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        synchronized (cache) {
+            CachedPom cached = cache.get(key);
+            if (cached != null && cached.lastModified() == lastModified && cached.size() == attrs.size()) {
+                hits.increment();
+                return cached.model();
+            }
+        }
+
+        misses.increment();
+        Model model = read(path);
+        // 无法解析的文件也缓存，文件未变化时不再重复解析
+        synchronized (cache) {
+            cache.put(key, new CachedPom(lastModified, attrs.size(), model));
+        }
+        return model;
+    }
+
+    /**
+     * 本地仓库中 GAV 对应的 POM 文件（不检查是否存在）
+     * @return GAV 不完整或含未解析的属性时返回 null
+     */
+    public File localRepositoryPom(String groupId, String artifactId, String version) {
+        if (!isConcrete(groupId) || !isConcrete(artifactId) || !isConcrete(version)) {
+            return null;
+        }
+        return Paths.get(localRepository, groupId.replace('.', File.separatorChar), artifactId, version,
+            artifactId + "-" + version + ".pom").toFile();
+    }
+
+    public Map<String, Object> getStats() {
+        long hit = hits.sum();
+        long miss = misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache) {
+            stats.put("size", cache.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", hit + miss == 0 ? 0.0 : (double) hit / (hit + miss));
+        return stats;
+    }
+
+    private static Model read(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            // 本地仓库中的 POM 来自各种发布者，按非严格模式解析
+            return new MavenXpp3Reader().read(in, false);
+        } catch (Exception e) {
+            logger.warn("Failed to parse POM {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isConcrete(String value) {
+        return value != null && !value.isEmpty() && !value.contains("${");
+    }
+
+    private record CachedPom(long lastModified, long size, Model model) {
+    }
+}
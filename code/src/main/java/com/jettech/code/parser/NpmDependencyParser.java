@@ -1,11 +1,16 @@
 package com.jettech.code.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jettech.code.entity.Dependency;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -15,6 +20,8 @@ import java.util.Map;
 @Component
 public class NpmDependencyParser implements DependencyParser {
 
+    private static final String NODE_MODULES = "node_modules/";
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
@@ -37,47 +44,150 @@ public class NpmDependencyParser implements DependencyParser {
         return dependencies;
     }
 
+    /**
+     * 流式解析 package-lock.json，不构建整棵 JSON 树，内存占用只与依赖数量有关
+     * v2/v3 读取 packages（含工作区成员下的 node_modules），v1 读取嵌套的 dependencies；
+     * 两者同时存在时以 packages 为准
+     */
     private List<Dependency> parsePackageLock(Long serviceId, File lockFile) throws Exception {
-        List<Dependency> dependencies = new ArrayList<>();
+        List<Dependency> packages = new ArrayList<>();
+        List<Dependency> legacy = new ArrayList<>();
+        boolean hasPackages = false;
+        int lockfileVersion = 1;
         
-        JsonNode root = objectMapper.readTree(lockFile);
-        JsonNode packages = root.get("packages");
-        
-        if (packages != null) {
-            Iterator<Map.Entry<String, JsonNode>> fields = packages.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String packagePath = entry.getKey();
+        try (JsonParser parser = objectMapper.getFactory().createParser(lockFile)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return packages;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
                 
-                if (packagePath.startsWith("node_modules/")) {
-                    String name = packagePath.substring("node_modules/".length());
-                    JsonNode pkgNode = entry.getValue();
-                    
-                    String version = pkgNode.has("version") ? pkgNode.get("version").asText() : "unknown";
-                    boolean dev = pkgNode.has("dev") && pkgNode.get("dev").asBoolean();
-                    
-                    Dependency dep = new Dependency();
-                    dep.setServiceId(serviceId);
-                    dep.setName(name);
-                    dep.setVersion(version);
-                    dep.setType("npm");
-                    dep.setScope(dev ? "dev" : "runtime");
-                    dep.setPurl("pkg:npm/" + name + "@" + version);
-                    dep.setCreatedAt(LocalDateTime.now());
-                    
-                    if (pkgNode.has("license")) {
-                        JsonNode licenseNode = pkgNode.get("license");
-                        String license = licenseNode.isTextual() ? licenseNode.asText() : 
-                                        licenseNode.isArray() ? licenseNode.get(0).asText() : "Unknown";
-                        dep.setLicense(license);
-                    }
-                    
-                    dependencies.add(dep);
+                if ("lockfileVersion".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    lockfileVersion = parser.getIntValue();
+                } else if ("packages".equals(field) && value == JsonToken.START_OBJECT) {
+                    hasPackages = true;
+                    parsePackagesSection(parser, serviceId, packages);
+                } else if ("dependencies".equals(field) && value == JsonToken.START_OBJECT
+                        && !hasPackages && lockfileVersion < 2) {
+                    parseLegacyDependencies(parser, serviceId, legacy);
+                } else {
+                    parser.skipChildren();
                 }
             }
         }
         
-        return dependencies;
+        return hasPackages ? packages : legacy;
+    }
+
+    /**
+     * packages 的键为安装路径：根项目为 ""，依赖为 node_modules/...（可能多层嵌套），
+     * 工作区成员为其源码目录，其自身依赖位于 "成员目录/node_modules/..."
+     * 根项目、工作区成员及指向工作区的链接（link: true）是本项目代码，不作为依赖
+     */
+    private void parsePackagesSection(JsonParser parser, Long serviceId, List<Dependency> dependencies) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String packagePath = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            
+            LockEntry entry = readLockEntry(parser, serviceId, null);
+            int index = packagePath.lastIndexOf(NODE_MODULES);
+            if (index < 0 || entry.link) {
+                continue;
+            }
+            
+            String name = entry.name != null ? entry.name : packagePath.substring(index + NODE_MODULES.length());
+            String version = entry.version != null ? entry.version : "unknown";
+            Dependency dep = newDependency(serviceId, name, version, entry.dev ? "dev" : "runtime");
+            dep.setLicense(entry.license);
+            dependencies.add(dep);
+        }
+    }
+
+    /**
+     * v1 的 dependencies：键为包名，值中的 dependencies 为嵌套安装的依赖，递归读取
+     */
+    private void parseLegacyDependencies(JsonParser parser, Long serviceId, List<Dependency> dependencies) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            
+            // 嵌套依赖先于父依赖的版本读完，父依赖插回其子依赖之前，保持文件中的顺序
+            int position = dependencies.size();
+            LockEntry entry = readLockEntry(parser, serviceId, dependencies);
+            if (entry.version == null || entry.version.startsWith("file:")) {
+                continue;
+            }
+            dependencies.add(position, newDependency(serviceId, name, entry.version, entry.dev ? "dev" : "runtime"));
+        }
+    }
+
+    /**
+     * 读取一个包条目对象，只保留需要的字段，其余字段（如 requires、integrity）直接跳过
+     * @param nested 非 null 时按 v1 格式把嵌套的 dependencies 解析到其中
+     */
+    private LockEntry readLockEntry(JsonParser parser, Long serviceId, List<Dependency> nested) throws IOException {
+        LockEntry entry = new LockEntry();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "version" -> entry.version = value.isScalarValue() ? parser.getText() : skip(parser);
+                case "name" -> entry.name = value == JsonToken.VALUE_STRING ? parser.getText() : skip(parser);
+                case "dev" -> entry.dev = value == JsonToken.VALUE_TRUE;
+                case "link" -> entry.link = value == JsonToken.VALUE_TRUE;
+                case "license" -> entry.license = readLicense(parser, value);
+                case "dependencies" -> {
+                    if (nested != null && value == JsonToken.START_OBJECT) {
+                        parseLegacyDependencies(parser, serviceId, nested);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return entry;
+    }
+
+    private static String readLicense(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        String license = "Unknown";
+        if (value == JsonToken.START_ARRAY) {
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.VALUE_STRING) {
+                license = parser.getText();
+            }
+            JsonToken token = first;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+                token = parser.nextToken();
+            }
+            return license;
+        }
+        parser.skipChildren();
+        return license;
+    }
+
+    private static String skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    private static final class LockEntry {
+        private String name;
+        private String version;
+        private String license;
+        private boolean dev;
+        private boolean link;
     }
 
     private List<Dependency> parsePackageJson(Long serviceId, File packageJsonFile) throws Exception {
@@ -102,21 +212,83 @@ public class NpmDependencyParser implements DependencyParser {
             String name = entry.getKey();
             String version = entry.getValue().asText();
             
-            Dependency dep = new Dependency();
-            dep.setServiceId(serviceId);
-            dep.setName(name);
-            dep.setVersion(version);
-            dep.setType("npm");
-            dep.setScope(scope);
-            dep.setPurl("pkg:npm/" + name + "@" + version);
-            dep.setCreatedAt(LocalDateTime.now());
-            
-            dependencies.add(dep);
+            dependencies.add(newDependency(serviceId, name, version, scope));
         }
     }
 
+    private static Dependency newDependency(Long serviceId, String name, String version, String scope) {
+        Dependency dep = new Dependency();
+        dep.setServiceId(serviceId);
+        dep.setName(name);
+        dep.setVersion(version);
+        dep.setType("npm");
+        dep.setScope(scope);
+        dep.setPurl("pkg:npm/" + name + "@" + version);
+        dep.setCreatedAt(LocalDateTime.now());
+        return dep;
+    }
+
     @Override
     public String getEcosystem() {
         return "npm";
     }
+
+    @Override
+    public List<String> getManifestNames() {
+        return List.of("package.json");
+    }
+
+    /**
+     * 子目录匹配外层 package.json 的 workspaces、外层有 package-lock.json 而子目录没有时，
+     * 子目录是 workspace 成员，其依赖已在外层锁文件中；其他嵌套的 package.json 单独解析
+     */
+    @Override
+    public boolean coversNestedProject(File projectDir, File nestedDir) {
+        if (!new File(projectDir, "package-lock.json").isFile() || new File(nestedDir, "package-lock.json").isFile()) {
+            return false;
+        }
+        Path relative = projectDir.toPath().toAbsolutePath().normalize()
+            .relativize(nestedDir.toPath().toAbsolutePath().normalize());
+        boolean matched = false;
+        for (String pattern : workspacePatterns(new File(projectDir, "package.json"))) {
+            boolean negated = pattern.startsWith("!");
+            String glob = (negated ? pattern.substring(1) : pattern).replaceAll("^\\./", "").replaceAll("/+$", "");
+            if (glob.isEmpty()) {
+                continue;
+            }
+            if (FileSystems.getDefault().getPathMatcher("glob:" + glob).matches(relative)) {
+                if (negated) {
+                    return false;
+                }
+                matched = true;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * package.json 中的 workspaces，支持数组和 { "packages": [...] } 两种写法
+     */
+    private List<String> workspacePatterns(File packageJson) {
+        List<String> patterns = new ArrayList<>();
+        try {
+            JsonNode workspaces = objectMapper.readTree(packageJson).path("workspaces");
+            if (workspaces.isObject()) {
+                workspaces = workspaces.path("packages");
+            }
+            for (JsonNode pattern : workspaces) {
+                if (pattern.isTextual()) {
+                    patterns.add(pattern.asText());
+                }
+            }
+        } catch (IOException e) {
+            // 无法读取时视为没有 workspaces，嵌套项目单独解析
+        }
+        return patterns;
+    }
+
+    @Override
+    public List<File> getManifestFiles(File projectDir) {
+        return DependencyParser.existingFiles(projectDir, "package.json", "package-lock.json");
+    }
 }
@@ -157,4 +157,15 @@ public class PythonDependencyParser implements DependencyParser {
     public String getEcosystem() {
         return "PyPI";
     }
+
+    @Override
+    public List<String> getManifestNames() {
+        return List.of("pyproject.toml", "Pipfile", "requirements.txt");
+    }
+
+    @Override
+    public List<File> getManifestFiles(File projectDir) {
+        return DependencyParser.existingFiles(projectDir,
+            "requirements.txt", "pyproject.toml", "Pipfile", "poetry.lock", "Pipfile.lock");
+    }
 }
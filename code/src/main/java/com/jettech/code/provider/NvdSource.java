@@ -2,40 +2,65 @@ package com.jettech.code.provider;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.jettech.code.dto.VulnerabilityInfo;
+import com.jettech.code.advisory.Advisory;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Component
+@ConditionalOnProperty(name = "vulnerability.sources.nvd.enabled", havingValue = "true", matchIfMissing = true)
 public class NvdSource implements VulnerabilitySource {
     
     private static final Logger logger = LoggerFactory.getLogger(NvdSource.class);
     
-    @Value("${nvd.api-key:}")
+    @Value("${vulnerability.sources.nvd.api-key:${nvd.api-key:}}")
     private String apiKey;
     
     @Value("${nvd.api-url:https://services.nvd.nist.gov/restjson/cves/2.0}")
     private String apiUrl;
     
+    /**
+     * NVD 公共限额：无 API Key 时每 30 秒 5 次，有 API Key 时每 30 秒 50 次
+     */
+    @Value("${vulnerability.sources.nvd.requests-per-second:0.16}")
+    private double requestsPerSecond;
+    
+    @Value("${vulnerability.sources.nvd.keyed-requests-per-second:1.6}")
+    private double keyedRequestsPerSecond;
+    
+    @Value("${vulnerability.sources.nvd.max-retries:5}")
+    private int maxRetries;
+    
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     
-    public NvdSource(RestTemplate restTemplate, ObjectMapper objectMapper) {
+    private SourceRateLimiter rateLimiter;
+    
+    public NvdSource(@Qualifier("nvdRestTemplate") RestTemplate restTemplate, ObjectMapper objectMapper) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
     }
     
+    @PostConstruct
+    public void init() {
+        boolean keyed = apiKey != null && !apiKey.isEmpty();
+        double rate = keyed ? keyedRequestsPerSecond : requestsPerSecond;
+        rateLimiter = new SourceRateLimiter(getName(), rate, keyed ? 50 : 5, maxRetries, 6000, 60000);
+        logger.info("NVD rate limit: {} requests/s ({})", rate, keyed ? "with API key" : "without API key");
+    }
+    
     @Override
     public String getName() {
         return "NVD";
@@ -46,35 +71,38 @@ public class NvdSource implements VulnerabilitySource {
         return 2;
     }
     
+    /**
+     * 请求失败（包括多次重试后仍被限流）或响应无法解析时抛出异常，由调用方视为数据源失败，
+     * 不会被当作"无漏洞"
+     */
     @Override
-    public List<VulnerabilityInfo> query(String packageName, String ecosystem, String version) {
-        List<VulnerabilityInfo> results = new ArrayList<>();
+    public List<Advisory> queryAdvisories(String packageName, String ecosystem) {
+        String cpeId = buildCpeId(packageName, ecosystem);
+        String url = apiUrl + "?cpeId=" + URLEncoder.encode(cpeId, StandardCharsets.UTF_8) + "&resultsPerPage=20";
         
-        try {
-            String cpeId = buildCpeId(packageName, ecosystem);
-            String url = apiUrl + "?cpeId=" + URLEncoder.encode(cpeId, StandardCharsets.UTF_8) + "&resultsPerPage=20";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (apiKey != null && !apiKey.isEmpty()) {
-                headers.set("apiKey", apiKey);
-            }
-            
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            logger.info("Querying NVD for package: {}", packageName);
-            
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                List<VulnerabilityInfo> vulns = parseVulnerabilities(response.getBody(), packageName, ecosystem, version);
-                results.addAll(vulns);
-            }
-        } catch (Exception e) {
-            logger.error("Failed to query NVD API for {}@{}: {}", packageName, version, e.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (apiKey != null && !apiKey.isEmpty()) {
+            headers.set("apiKey", apiKey);
         }
         
-        return results;
+        HttpEntity<String> entity = new HttpEntity<>(headers);
+        
+        logger.info("Querying NVD for package: {}", packageName);
+        
+        ResponseEntity<String> response = rateLimiter.execute(
+            () -> restTemplate.exchange(url, HttpMethod.GET, entity, String.class));
+        
+        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+            throw new IllegalStateException("Unexpected NVD response for " + packageName + ": " + response.getStatusCode());
+        }
+        
+        return parseVulnerabilities(response.getBody(), packageName);
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        return rateLimiter.getStats();
     }
     
     private String buildCpeId(String packageName, String ecosystem) {
@@ -92,101 +120,90 @@ public class NvdSource implements VulnerabilitySource {
         return String.format("cpe:2.3:a:%s:%s:*:*:*:*:*:*:*", vendor, product);
     }
     
-    private List<VulnerabilityInfo> parseVulnerabilities(String responseBody, 
-                                                          String packageName, String ecosystem, String version) {
-        List<VulnerabilityInfo> results = new ArrayList<>();
+    /**
+     * 响应或其中的条目无法解析时抛出异常，避免把不完整的结果当作完整结果缓存
+     */
+    private List<Advisory> parseVulnerabilities(String responseBody, String packageName) {
+        List<Advisory> results = new ArrayList<>();
         
+        JsonNode vulnsArray;
         try {
-            JsonNode root = objectMapper.readTree(responseBody);
-            JsonNode vulnsArray = root.path("vulnerabilities");
-            
-            if (vulnsArray.isArray()) {
-                for (JsonNode vulnNode : vulnsArray) {
-                    VulnerabilityInfo info = parseVulnerability(vulnNode, packageName, ecosystem, version);
-                    if (info != null) {
-                        results.add(info);
-                    }
-                }
-            }
+            vulnsArray = objectMapper.readTree(responseBody).path("vulnerabilities");
         } catch (Exception e) {
-            logger.error("Failed to parse NVD response: {}", e.getMessage());
+            throw new IllegalStateException("Failed to parse NVD response for " + packageName + ": " + e.getMessage(), e);
+        }
+        if (!vulnsArray.isArray()) {
+            throw new IllegalStateException("NVD response for " + packageName + " has no vulnerabilities array");
+        }
+        
+        for (JsonNode vulnNode : vulnsArray) {
+            Advisory advisory = parseVulnerability(vulnNode, packageName);
+            if (advisory != null) {
+                results.add(advisory);
+            }
         }
         
         return results;
     }
     
-    private VulnerabilityInfo parseVulnerability(JsonNode vulnNode, 
-                                                  String packageName, String ecosystem, String version) {
-        try {
-            JsonNode cveNode = vulnNode.path("cve");
-            if (cveNode.isMissingNode()) {
-                return null;
-            }
-            
-            VulnerabilityInfo info = new VulnerabilityInfo();
-            
-            String cveId = cveNode.path("id").asText();
-            info.setId(cveId);
-            info.setCveId(cveId);
-            info.setPackageName(packageName);
-            info.setEcosystem(ecosystem);
-            info.setVersion(version);
-            info.setSource("NVD");
-            info.setPriority(getPriority());
-            
-            JsonNode descriptions = cveNode.path("descriptions");
-            if (descriptions.isArray()) {
-                for (JsonNode desc : descriptions) {
-                    if ("en".equals(desc.path("lang").asText())) {
-                        info.setDescription(desc.path("value").asText());
-                        break;
-                    }
-                }
-            }
-            
-            JsonNode metrics = cveNode.path("metrics");
-            if (metrics.isArray() && metrics.size() > 0) {
-                JsonNode metric = metrics.get(0);
-                JsonNode cvssData = metric.path("cvssData");
-                if (!cvssData.isMissingNode()) {
-                    Double score = cvssData.path("baseScore").asDouble(0.0);
-                    info.setCvssScore(score);
-                    info.setSeverity(normalizeSeverity(score));
-                } else {
-                    Double score = metric.path("baseScore").asDouble(0.0);
-                    info.setCvssScore(score);
-                    info.setSeverity(normalizeSeverity(score));
-                }
-            } else {
-                info.setCvssScore(5.0);
-                info.setSeverity("MEDIUM");
-            }
-            
-            info.setTitle(info.getCveId());
-            info.setAffectedVersion("unknown");
-            info.setFixedVersion("unknown");
-            
-            String published = cveNode.path("published").asText();
-            if (published != null && !published.isEmpty()) {
-                try {
-                    info.setPublishedAt(LocalDateTime.parse(published, DateTimeFormatter.ISO_DATE_TIME));
-                } catch (Exception e) {
-                    logger.debug("Failed to parse published date: {}", published);
+    /**
+     * NVD 按 CPE 查询，结果不区分版本，统一记为影响该包的所有版本
+     * 没有 cve 节点的条目跳过，条目缺少 CVE ID 时抛出异常
+     */
+    private Advisory parseVulnerability(JsonNode vulnNode, String packageName) {
+        JsonNode cveNode = vulnNode.path("cve");
+        if (cveNode.isMissingNode()) {
+            return null;
+        }
+        
+        Advisory advisory = new Advisory();
+        
+        String cveId = cveNode.path("id").asText();
+        if (cveId.isEmpty()) {
+            throw new IllegalStateException("NVD vulnerability for " + packageName + " has no CVE id");
+        }
+        advisory.setId(cveId);
+        advisory.setCveId(cveId);
+        advisory.setSummary(cveId);
+        advisory.setSource(getName());
+        
+        JsonNode descriptions = cveNode.path("descriptions");
+        if (descriptions.isArray()) {
+            for (JsonNode desc : descriptions) {
+                if ("en".equals(desc.path("lang").asText())) {
+                    advisory.setDetails(desc.path("value").asText());
+                    break;
                 }
             }
-            
-            return info;
-        } catch (Exception e) {
-            logger.debug("Failed to parse NVD vulnerability: {}", e.getMessage());
-            return null;
         }
-    }
-    
-    private String normalizeSeverity(Double score) {
-        if (score == null) return "UNKNOWN";
-        if (score >= 9.0) return "CRITICAL";
-        if (score >= 7.0) return "HIGH";
-        if (score >= 4.0) return "MEDIUM";
-        return "LOW";
+        
+        double score = 5.0;
+        JsonNode metrics = cveNode.path("metrics");
+        if (metrics.isArray() && metrics.size() > 0) {
+            JsonNode metric = metrics.get(0);
+            JsonNode cvssData = metric.path("cvssData");
+            score = !cvssData.isMissingNode()
+                ? cvssData.path("baseScore").asDouble(0.0)
+                : metric.path("baseScore").asDouble(0.0);
+        }
+        advisory.setSeverityType("CVSS_V3");
+        advisory.setSeverityScore(String.valueOf(score));
+        
+        String published = cveNode.path("published").asText();
+        if (published != null && !published.isEmpty()) {
+            advisory.setPublished(published);
+        }
+        
+        Advisory.Event introduced = new Advisory.Event();
+        introduced.setIntroduced("0");
+        Advisory.Range range = new Advisory.Range();
+        range.setType("ECOSYSTEM");
+        range.getEvents().add(introduced);
+        Advisory.Affected affected = new Advisory.Affected();
+        affected.setPackageName(packageName);
+        affected.getRanges().add(range);
+        advisory.getAffected().add(affected);
+        
+        return advisory;
     }
 }
@@ -0,0 +1,89 @@
+package com.jettech.code.provider;
+
+import com.jettech.code.advisory.Advisory;
+import com.jettech.code.advisory.AdvisoryIndex;
+import com.jettech.code.dto.VulnerabilityInfo;
+import com.jettech.code.service.OsvMirrorService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于本地 OSV 镜像的漏洞数据源，不发起任何网络请求
+ * 离线环境可关闭 osv/nvd 数据源，只启用此数据源
+ */
+@Component
+@ConditionalOnProperty(name = "vulnerability.sources.osv-mirror.enabled", havingValue = "true")
+public class OsvMirrorSource implements VulnerabilitySource {
+
+    private final OsvMirrorService mirrorService;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+
+    public OsvMirrorSource(OsvMirrorService mirrorService) {
+        this.mirrorService = mirrorService;
+    }
+
+    @Override
+    public String getName() {
+        return OsvMirrorService.SOURCE_NAME;
+    }
+
+    @Override
+    public int getPriority() {
+        return 0;
+    }
+
+    @Override
+    public List<Advisory> queryAdvisories(String packageName, String ecosystem) {
+        if (!mirrorService.isMirrored(ecosystem)) {
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        Set<Advisory> advisories = new LinkedHashSet<>();
+        for (AdvisoryIndex.Entry entry : mirrorService.getPackageIndex(ecosystem, packageName).lookup(packageName)) {
+            advisories.add(entry.advisory());
+        }
+        record(start);
+        return new ArrayList<>(advisories);
+    }
+
+    /**
+     * 直接在镜像索引上匹配，已缓存的包不需要重新读取和编译范围
+     */
+    @Override
+    public List<VulnerabilityInfo> query(String packageName, String ecosystem, String version) {
+        if (!mirrorService.isMirrored(ecosystem)) {
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        List<VulnerabilityInfo> results = mirrorService.getPackageIndex(ecosystem, packageName).evaluate(packageName, version);
+        record(start);
+        return results;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = lookups.sum();
+        stats.put("lookups", count);
+        stats.put("avgLookupMicros", count > 0 ? lookupNanos.sum() / count / 1000.0 : 0);
+        stats.put("ecosystems", mirrorService.getStats());
+        return stats;
+    }
+
+    private void record(long startNanos) {
+        lookups.increment();
+        lookupNanos.add(System.nanoTime() - startNanos);
+    }
+}
@@ -1,22 +1,56 @@
 package com.jettech.code.provider;
 
+import com.jettech.code.advisory.Advisory;
 import com.jettech.code.client.OsvApiClient;
-import com.jettech.code.client.OsvApiClient.OsvVulnerability;
-import com.jettech.code.dto.VulnerabilityInfo;
+import com.jettech.code.client.OsvApiClient.PackageQuery;
+import com.jettech.code.dto.PackageCoordinate;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
+@ConditionalOnProperty(name = "vulnerability.sources.osv.enabled", havingValue = "true", matchIfMissing = true)
 public class OsvSource implements VulnerabilitySource {
     
+    private static final Logger logger = LoggerFactory.getLogger(OsvSource.class);
+    
+    /**
+     * OSV /querybatch 单次最多接受 1000 个查询
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+    
+    @Value("${vulnerability.sources.osv.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${vulnerability.sources.osv.requests-per-second:20}")
+    private double requestsPerSecond;
+    
+    @Value("${vulnerability.sources.osv.max-retries:5}")
+    private int maxRetries;
+    
     private final OsvApiClient osvApiClient;
     
+    private SourceRateLimiter rateLimiter;
+    
     public OsvSource(OsvApiClient osvApiClient) {
         this.osvApiClient = osvApiClient;
     }
     
+    @PostConstruct
+    public void init() {
+        rateLimiter = new SourceRateLimiter(getName(), requestsPerSecond, 20, maxRetries, 1000, 60000);
+    }
+    
     @Override
     public String getName() {
         return "OSV";
@@ -28,43 +62,77 @@ public class OsvSource implements VulnerabilitySource {
     }
     
     @Override
-    public List<VulnerabilityInfo> query(String packageName, String ecosystem, String version) {
-        List<VulnerabilityInfo> results = new ArrayList<>();
-        
-        List<OsvVulnerability> osvVulns = osvApiClient.queryVulnerabilities(packageName, ecosystem, version);
+    public List<Advisory> queryAdvisories(String packageName, String ecosystem) {
+        List<Advisory> advisories = rateLimiter.execute(
+            () -> osvApiClient.queryAdvisories(packageName, ecosystem));
+        advisories.forEach(advisory -> advisory.setSource(getName()));
+        return advisories;
+    }
+    
+    @Override
+    public Map<PackageCoordinate, List<Advisory>> queryAdvisoriesBatch(List<PackageCoordinate> packages) {
+        Map<PackageCoordinate, List<Advisory>> results = new LinkedHashMap<>();
+        // 同一公告常影响多个包，详情在本次批量查询内只拉取一次
+        Map<String, Advisory> details = new HashMap<>();
+        int chunkSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
         
-        for (OsvVulnerability osvVuln : osvVulns) {
-            VulnerabilityInfo info = convertToVulnerabilityInfo(osvVuln, packageName, ecosystem, version);
-            if (info != null) {
-                results.add(info);
+        for (int from = 0; from < packages.size(); from += chunkSize) {
+            List<PackageCoordinate> chunk = packages.subList(from, Math.min(from + chunkSize, packages.size()));
+            List<PackageQuery> queries = new ArrayList<>(chunk.size());
+            for (PackageCoordinate pkg : chunk) {
+                queries.add(new PackageQuery(pkg.getPackageName(), pkg.getEcosystem(), null));
+            }
+            
+            List<List<String>> chunkResults = rateLimiter.execute(
+                () -> osvApiClient.batchQueryAdvisoryIds(queries));
+            if (chunkResults == null) {
+                logger.warn("Unexpected OSV batch response for {} packages, falling back to single queries", chunk.size());
+                for (PackageCoordinate pkg : chunk) {
+                    results.put(pkg, queryAdvisories(pkg.getPackageName(), pkg.getEcosystem()));
+                }
+                continue;
+            }
+            
+            for (int i = 0; i < chunk.size(); i++) {
+                PackageCoordinate pkg = chunk.get(i);
+                List<String> ids = chunkResults.get(i);
+                if (ids == null) {
+                    // 结果被分页截断，单独查询获取完整列表
+                    results.put(pkg, queryAdvisories(pkg.getPackageName(), pkg.getEcosystem()));
+                    continue;
+                }
+                
+                List<Advisory> advisories = new ArrayList<>(ids.size());
+                for (String id : ids) {
+                    Advisory advisory = details.computeIfAbsent(id + "|" + pkg.getEcosystem(),
+                        key -> fetchDetails(id, pkg.getEcosystem()));
+                    if (advisory != null) {
+                        advisories.add(advisory);
+                    }
+                }
+                results.put(pkg, advisories);
             }
         }
         
+        logger.info("OSV batch query finished: {} packages, {} distinct advisories", packages.size(), details.size());
         return results;
     }
     
-    private VulnerabilityInfo convertToVulnerabilityInfo(OsvVulnerability osvVuln, 
-                                                          String packageName, String ecosystem, String version) {
-        if (osvVuln == null || osvVuln.id == null) {
+    private Advisory fetchDetails(String id, String ecosystem) {
+        try {
+            Advisory advisory = rateLimiter.execute(() -> osvApiClient.getAdvisory(id, ecosystem));
+            if (advisory != null) {
+                advisory.setSource(getName());
+            }
+            return advisory;
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("OSV vulnerability {} not found", id);
             return null;
         }
-        
-        VulnerabilityInfo info = new VulnerabilityInfo();
-        info.setId(osvVuln.id);
-        info.setCveId(osvVuln.cveId != null ? osvVuln.cveId : osvVuln.id);
-        info.setPackageName(packageName);
-        info.setEcosystem(ecosystem);
-        info.setVersion(version);
-        info.setTitle(osvVuln.summary);
-        info.setDescription(osvVuln.details);
-        info.setSeverity(osvVuln.getNormalizedSeverity());
-        info.setCvssScore(osvVuln.getCvssScore());
-        info.setAffectedVersion(osvVuln.introducedVersion != null ? ">= " + osvVuln.introducedVersion : "unknown");
-        info.setFixedVersion(osvVuln.fixedVersion != null ? ">= " + osvVuln.fixedVersion : "unknown");
-        info.setReferences(osvVuln.references);
-        info.setSource("OSV");
-        info.setPriority(getPriority());
-        
-        return info;
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        return rateLimiter.getStats();
     }
 }
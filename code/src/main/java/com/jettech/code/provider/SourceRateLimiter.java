@@ -0,0 +1,114 @@
+package com.jettech.code.provider;
+
+import com.jettech.code.util.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 漏洞数据源限流器
+ * 令牌桶控制请求速率；上游返回 403/429/503 时按 Retry-After 或指数退避暂停整个数据源，
+ * 然后重试该请求，超过重试次数才抛出异常，保证结果不会被静默丢弃
+ */
+public class SourceRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SourceRateLimiter.class);
+
+    private static final Set<Integer> THROTTLE_STATUSES = Set.of(403, 429, 503);
+
+    private final String sourceName;
+    private final RateLimiter rateLimiter;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    // 连续被限流次数，用于计算指数退避，成功后清零
+    private final AtomicInteger consecutiveThrottles = new AtomicInteger();
+    private final LongAdder throttledCount = new LongAdder();
+    private final LongAdder requestCount = new LongAdder();
+
+    public SourceRateLimiter(String sourceName, double requestsPerSecond, int maxBurst,
+                             int maxRetries, long initialBackoffMillis, long maxBackoffMillis) {
+        this.sourceName = sourceName;
+        this.rateLimiter = new RateLimiter(requestsPerSecond, maxBurst);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    }
+
+    /**
+     * 限流执行一次上游调用，被限流时退避后重试
+     */
+    public <T> T execute(Supplier<T> call) {
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire();
+            requestCount.increment();
+            try {
+                T result = call.get();
+                consecutiveThrottles.set(0);
+                return result;
+            } catch (RestClientResponseException e) {
+                int status = e.getStatusCode().value();
+                if (!THROTTLE_STATUSES.contains(status) || attempt >= maxRetries) {
+                    throw e;
+                }
+
+                throttledCount.increment();
+                long delay = retryAfterMillis(e);
+                if (delay < 0) {
+                    int throttles = consecutiveThrottles.incrementAndGet();
+                    delay = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(throttles - 1, 20));
+                }
+
+                logger.warn("{} throttled with HTTP {}, backing off {} ms (attempt {}/{})",
+                    sourceName, status, delay, attempt + 1, maxRetries);
+                rateLimiter.pauseFor(delay);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requestsPerSecond", rateLimiter.getPermitsPerSecond());
+        stats.put("requests", requestCount.sum());
+        stats.put("throttled", throttledCount.sum());
+        return stats;
+    }
+
+    /**
+     * 解析 Retry-After 头（秒数或 HTTP 日期），没有或无法解析时返回 -1
+     */
+    private long retryAfterMillis(RestClientResponseException e) {
+        if (e.getResponseHeaders() == null) {
+            return -1;
+        }
+        String retryAfter = e.getResponseHeaders().getFirst("Retry-After");
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return -1;
+        }
+
+        try {
+            return Math.min(maxBackoffMillis, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException ignored) {
+            // 不是秒数，尝试按 HTTP 日期解析
+        }
+
+        try {
+            ZonedDateTime until = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            long millis = Duration.between(ZonedDateTime.now(), until).toMillis();
+            return Math.min(maxBackoffMillis, Math.max(0, millis));
+        } catch (Exception ignored) {
+            return -1;
+        }
+    }
+}
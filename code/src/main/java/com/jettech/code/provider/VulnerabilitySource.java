@@ -1,13 +1,49 @@
 package com.jettech.code.provider;
 
+import com.jettech.code.advisory.Advisory;
+import com.jettech.code.advisory.AdvisoryIndex;
+import com.jettech.code.dto.PackageCoordinate;
 import com.jettech.code.dto.VulnerabilityInfo;
+
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface VulnerabilitySource {
-    
+
     String getName();
-    
+
     int getPriority();
-    
-    List<VulnerabilityInfo> query(String packageName, String ecosystem, String version);
+
+    /**
+     * 包级别查询：返回该包所有版本相关的公告及受影响范围，由调用方在本地按版本匹配
+     * 请求失败时抛出异常，不能返回空列表
+     */
+    List<Advisory> queryAdvisories(String packageName, String ecosystem);
+
+    /**
+     * 批量包级别查询，默认逐个调用 queryAdvisories；支持批量接口的数据源应覆盖此方法
+     * packages 中的版本号被忽略
+     */
+    default Map<PackageCoordinate, List<Advisory>> queryAdvisoriesBatch(List<PackageCoordinate> packages) {
+        Map<PackageCoordinate, List<Advisory>> results = new LinkedHashMap<>();
+        for (PackageCoordinate pkg : packages) {
+            results.put(pkg, queryAdvisories(pkg.getPackageName(), pkg.getEcosystem()));
+        }
+        return results;
+    }
+
+    /**
+     * 查询单个版本受影响的漏洞
+     */
+    default List<VulnerabilityInfo> query(String packageName, String ecosystem, String version) {
+        return new AdvisoryIndex(ecosystem, queryAdvisories(packageName, ecosystem)).evaluate(packageName, version);
+    }
+
+    /**
+     * 数据源运行统计（限流、请求数等）
+     */
+    default Map<String, Object> getStats() {
+        return Map.of();
+    }
 }
@@ -1,5 +1,6 @@
 package com.jettech.code.service;
 
+import com.jettech.code.dto.PackageCoordinate;
 import com.jettech.code.dto.VulnerabilityInfo;
 import com.jettech.code.entity.Dependency;
 import com.jettech.code.entity.SecurityScan;
@@ -7,19 +8,30 @@ import com.jettech.code.entity.Vulnerability;
 import com.jettech.code.mapper.DependencyMapper;
 import com.jettech.code.mapper.SecurityScanMapper;
 import com.jettech.code.mapper.VulnerabilityMapper;
-import com.jettech.code.parser.DependencyParser;
+import com.jettech.code.service.DependencyDiscoveryService.ManifestProject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Service
 public class AsyncScanService {
@@ -29,9 +41,34 @@ public class AsyncScanService {
     private final DependencyMapper dependencyMapper;
     private final VulnerabilityMapper vulnerabilityMapper;
     private final SecurityScanMapper securityScanMapper;
-    private final List<DependencyParser> dependencyParsers;
+    private final DependencyDiscoveryService discoveryService;
     private final LicenseDetector licenseDetector;
-    private final MultiSourceVulnerabilityService multiSourceService;
+    private final ManifestHashService manifestHashService;
+    private final DependencyGraphService dependencyGraphService;
+    private final DependencyCoordinateService coordinateService;
+    
+    @Value("${vulnerability.scan.concurrency:8}")
+    private int checkConcurrency;
+    
+    @Value("${vulnerability.scan.chunk-size:200}")
+    private int checkChunkSize;
+    
+    @Value("${vulnerability.scan.progress-interval-ms:1000}")
+    private long progressIntervalMs;
+    
+    @Value("${vulnerability.scan.incremental.enabled:true}")
+    private boolean incrementalEnabled;
+    
+    /**
+     * 距上次全量检查超过该时长时重新检查全部依赖，以发现新披露的漏洞；0 表示不强制
+     */
+    @Value("${vulnerability.scan.incremental.full-recheck-hours:168}")
+    private long fullRecheckHours;
+    
+    /**
+     * 漏洞查询不完整的扫描类型，不计为全量检查
+     */
+    private static final String SCAN_TYPE_PARTIAL = "PARTIAL";
     
     private static final Map<String, String> ECOSYSTEM_MAPPING = Map.of(
         "maven", "Maven",
@@ -43,15 +80,19 @@ public class AsyncScanService {
     public AsyncScanService(DependencyMapper dependencyMapper,
                            VulnerabilityMapper vulnerabilityMapper,
                            SecurityScanMapper securityScanMapper,
-                           List<DependencyParser> dependencyParsers,
+                           DependencyDiscoveryService discoveryService,
                            LicenseDetector licenseDetector,
-                           MultiSourceVulnerabilityService multiSourceService) {
+                           ManifestHashService manifestHashService,
+                           DependencyGraphService dependencyGraphService,
+                           DependencyCoordinateService coordinateService) {
         this.dependencyMapper = dependencyMapper;
         this.vulnerabilityMapper = vulnerabilityMapper;
         this.securityScanMapper = securityScanMapper;
-        this.dependencyParsers = dependencyParsers;
+        this.discoveryService = discoveryService;
         this.licenseDetector = licenseDetector;
-        this.multiSourceService = multiSourceService;
+        this.manifestHashService = manifestHashService;
+        this.dependencyGraphService = dependencyGraphService;
+        this.coordinateService = coordinateService;
     }
     
     @Async
@@ -64,70 +105,39 @@ public class AsyncScanService {
         
         try {
             updatePhase(scan, "正在解析依赖...");
-            List<Dependency> dependencies = generateSBOM(serviceId, localPath);
-            scan.setTotalDependencies(dependencies.size());
-            securityScanMapper.update(scan);
-            
-            if (dependencies.isEmpty()) {
-                completeScan(scan, 0, 0, 0, 0, 0, 0);
-                return;
+            File projectDir = new File(localPath);
+            if (!projectDir.exists() || !projectDir.isDirectory()) {
+                throw new IllegalArgumentException("Project directory not found: " + localPath);
             }
             
-            updatePhase(scan, "正在检查漏洞...");
+            List<ManifestProject> projects = discoveryService.discover(projectDir);
+            Map<String, String> manifestHashes = manifestHashService.computeHashes(projectDir, projects);
+            SbomUpdate sbom = updateSBOM(serviceId, projectDir, projects, manifestHashes);
+            scan.setScanType(sbom.fullCheck() ? "FULL" : "INCREMENTAL");
+            scan.setTotalDependencies(sbom.dependencies().size());
+            securityScanMapper.update(scan);
             
-            int vulnerableCount = 0;
-            int criticalCount = 0;
-            int highCount = 0;
-            int mediumCount = 0;
-            int lowCount = 0;
-            int licenseViolationCount = 0;
-            int checkedCount = 0;
+            CheckTally tally = new CheckTally();
+            tallyUnchecked(serviceId, sbom, tally);
             
-            for (Dependency dep : dependencies) {
-                try {
-                    updateProgress(scan, checkedCount, dependencies.size(), dep.getName());
-                    
-                    vulnerabilityMapper.deleteByDependencyId(dep.getId());
-                    
-                    String ecosystem = mapEcosystem(dep.getType());
-                    if (ecosystem != null && isValidVersion(dep.getVersion())) {
-                        List<Vulnerability> vulns = checkSingleDependency(dep, ecosystem);
-                        
-                        if (!vulns.isEmpty()) {
-                            vulnerableCount++;
-                            for (Vulnerability v : vulns) {
-                                switch (v.getSeverity()) {
-                                    case "CRITICAL": criticalCount++; break;
-                                    case "HIGH": highCount++; break;
-                                    case "MEDIUM": mediumCount++; break;
-                                    case "LOW": lowCount++; break;
-                                }
-                            }
-                        }
-                    }
-                    
-                    if ("VIOLATION".equals(dep.getLicenseStatus())) {
-                        licenseViolationCount++;
-                    }
-                    
-                    checkedCount++;
-                    scan.setCheckedCount(checkedCount);
-                    scan.setProgress(calculateProgress(checkedCount, dependencies.size()));
-                    securityScanMapper.update(scan);
-                    
-                    TimeUnit.MILLISECONDS.sleep(100);
-                    
-                } catch (Exception e) {
-                    logger.error("Failed to check dependency {}@{}: {}", 
-                        dep.getName(), dep.getVersion(), e.getMessage());
-                    checkedCount++;
-                    scan.setCheckedCount(checkedCount);
-                    scan.setProgress(calculateProgress(checkedCount, dependencies.size()));
-                    securityScanMapper.update(scan);
-                }
+            if (!sbom.toCheck().isEmpty()) {
+                updatePhase(scan, "正在检查漏洞...");
+                checkDependencies(scan, sbom.toCheck(), tally);
+            }
+            
+            // 部分依赖查询失败时沿用其已保存的漏洞，扫描记为 PARTIAL，不作为一次全量检查
+            if (tally.lookupFailed.get()) {
+                scan.setScanType(SCAN_TYPE_PARTIAL);
             }
+            completeScan(scan, tally.vulnerable.get(), tally.critical.get(), tally.high.get(),
+                tally.medium.get(), tally.low.get(), tally.licenseViolations.get());
             
-            completeScan(scan, vulnerableCount, criticalCount, highCount, mediumCount, lowCount, licenseViolationCount);
+            // 漏洞检查不完整时不记录指纹，下次扫描重新解析并检查
+            if (tally.lookupFailed.get()) {
+                manifestHashService.clear(serviceId);
+            } else {
+                manifestHashService.save(serviceId, manifestHashes);
+            }
             
         } catch (Exception e) {
             logger.error("Scan failed for service {}: {}", serviceId, e.getMessage(), e);
@@ -135,50 +145,236 @@ public class AsyncScanService {
         }
     }
     
-    private List<Dependency> generateSBOM(Long serviceId, String localPath) throws Exception {
-        dependencyMapper.deleteByServiceId(serviceId);
-        List<Dependency> allDependencies = new ArrayList<>();
+    /**
+     * 并行检查依赖漏洞
+     * 依赖按块批量查询，块之间由信号量限制并发；进度按时间间隔合并写库
+     */
+    private void checkDependencies(SecurityScan scan, List<Dependency> dependencies, CheckTally tally) throws InterruptedException {
+        ProgressReporter progress = new ProgressReporter(scan, dependencies.size());
+        Semaphore permits = new Semaphore(Math.max(1, checkConcurrency));
+        int chunkSize = Math.max(1, checkChunkSize);
         
-        File projectDir = new File(localPath);
-        if (!projectDir.exists() || !projectDir.isDirectory()) {
-            throw new IllegalArgumentException("Project directory not found: " + localPath);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < dependencies.size(); from += chunkSize) {
+                List<Dependency> chunk = dependencies.subList(from, Math.min(from + chunkSize, dependencies.size()));
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        checkChunk(chunk, tally, progress);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
         }
         
-        for (DependencyParser parser : dependencyParsers) {
-            if (parser.supports(projectDir)) {
-                try {
-                    logger.info("Parsing dependencies with {} parser", parser.getEcosystem());
-                    List<Dependency> dependencies = parser.parse(serviceId, projectDir);
-                    
-                    for (Dependency dep : dependencies) {
-                        licenseDetector.detectLicense(dep, localPath);
+        progress.flush();
+    }
+    
+    /**
+     * 检查一块依赖的漏洞
+     * 查询失败或结果不完整的依赖不删除已保存的漏洞，按已保存的漏洞计入统计
+     */
+    private void checkChunk(List<Dependency> chunk, CheckTally tally, ProgressReporter progress) {
+        Map<PackageCoordinate, List<VulnerabilityInfo>> vulnLookup;
+        Set<PackageCoordinate> incomplete = new HashSet<>();
+        boolean failed = false;
+        try {
+            vulnLookup = coordinateService.queryVulnerabilities(chunk, this::toPackageCoordinate, incomplete);
+            // 有数据源失败时结果不完整，不记录清单指纹，下次扫描重新检查
+            if (!incomplete.isEmpty()) {
+                logger.warn("Vulnerability lookup incomplete for {} of {} dependencies", incomplete.size(), chunk.size());
+                tally.lookupFailed.set(true);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to query vulnerabilities for {} dependencies: {}", chunk.size(), e.getMessage());
+            tally.lookupFailed.set(true);
+            vulnLookup = Map.of();
+            failed = true;
+        }
+        
+        for (Dependency dep : chunk) {
+            try {
+                PackageCoordinate coordinate = toPackageCoordinate(dep);
+                if (coordinate != null && (failed || incomplete.contains(coordinate))) {
+                    tally.record(vulnerabilityMapper.findByDependencyId(dep.getId()));
+                } else {
+                    vulnerabilityMapper.deleteByDependencyId(dep.getId());
+                    if (coordinate != null) {
+                        List<Vulnerability> vulns = saveVulnerabilities(dep, 
+                            vulnLookup.getOrDefault(coordinate, List.of()));
+                        tally.record(vulns);
                     }
-                    
-                    allDependencies.addAll(dependencies);
-                    logger.info("Found {} dependencies with {} parser", dependencies.size(), parser.getEcosystem());
-                } catch (Exception e) {
-                    logger.error("Failed to parse dependencies with {} parser: {}", 
-                                parser.getEcosystem(), e.getMessage());
                 }
+                
+                if ("VIOLATION".equals(dep.getLicenseStatus())) {
+                    tally.licenseViolations.incrementAndGet();
+                }
+            } catch (Exception e) {
+                logger.error("Failed to check dependency {}@{}: {}", 
+                    dep.getName(), dep.getVersion(), e.getMessage());
+                tally.lookupFailed.set(true);
+            } finally {
+                progress.checked(dep.getName());
+            }
+        }
+    }
+    
+    /**
+     * 生成或增量更新 SBOM
+     * 清单文件未变化时直接复用已有依赖；变化时按坐标与已有依赖比对，
+     * 未变的依赖保留原记录（含许可证和漏洞），只对新增/变更的依赖检测许可证和检查漏洞
+     */
+    private SbomUpdate updateSBOM(Long serviceId, File projectDir, List<ManifestProject> projects,
+                                  Map<String, String> manifestHashes) throws Exception {
+        List<Dependency> existing = dependencyMapper.findByServiceId(serviceId);
+        boolean incremental = incrementalEnabled && !existing.isEmpty();
+        boolean fullCheck = !incremental || isFullRecheckDue(serviceId);
+        
+        if (incremental && manifestHashService.isUnchanged(serviceId, manifestHashes)) {
+            logger.info("Manifests unchanged for service {}, reusing {} dependencies (full check: {})", 
+                serviceId, existing.size(), fullCheck);
+            return new SbomUpdate(existing, fullCheck ? existing : List.of(), fullCheck);
+        }
+        
+        List<Dependency> parsed = discoveryService.parse(serviceId, projects);
+        
+        if (!incremental) {
+            dependencyMapper.deleteByServiceId(serviceId);
+            List<Dependency> timedOut = coordinateService.detectLicenses(parsed, projectDir.getPath());
+            List<Dependency> saved = insertDependencies(serviceId, parsed);
+            dependencyGraphService.saveEdges(serviceId, parsed, saved);
+            retryLicenses(timedOut, saved, projectDir);
+            return new SbomUpdate(saved, saved, true);
+        }
+        
+        Map<String, Deque<Dependency>> previous = new HashMap<>();
+        for (Dependency dep : existing) {
+            previous.computeIfAbsent(sbomKey(dep), k -> new ArrayDeque<>()).add(dep);
+        }
+        
+        List<Dependency> added = new ArrayList<>();
+        Set<Long> keptIds = new HashSet<>();
+        for (Dependency dep : parsed) {
+            Deque<Dependency> candidates = previous.get(sbomKey(dep));
+            if (candidates != null && !candidates.isEmpty()) {
+                keptIds.add(candidates.poll().getId());
+            } else {
+                added.add(dep);
+            }
+        }
+        
+        List<Long> removedIds = new ArrayList<>();
+        for (Deque<Dependency> remaining : previous.values()) {
+            for (Dependency dep : remaining) {
+                removedIds.add(dep.getId());
             }
         }
         
-        if (!allDependencies.isEmpty()) {
-            dependencyMapper.batchInsert(allDependencies);
-            List<Dependency> savedDeps = dependencyMapper.findByServiceId(serviceId);
-            logger.info("Saved {} dependencies with IDs", savedDeps.size());
-            return savedDeps;
+        logger.info("SBOM diff for service {}: {} unchanged, {} added, {} removed", 
+            serviceId, keptIds.size(), added.size(), removedIds.size());
+        
+        if (!removedIds.isEmpty()) {
+            dependencyMapper.deleteByIds(removedIds);
         }
+        List<Dependency> timedOut = coordinateService.detectLicenses(added, projectDir.getPath());
+        List<Dependency> saved = insertDependencies(serviceId, added);
+        // 未变的依赖保留原ID，引入关系按本次解析结果整体重建
+        dependencyGraphService.saveEdges(serviceId, parsed, saved);
+        retryLicenses(timedOut, saved, projectDir);
         
-        return allDependencies;
+        if (fullCheck) {
+            return new SbomUpdate(saved, saved, true);
+        }
+        List<Dependency> toCheck = saved.stream()
+            .filter(dep -> !keptIds.contains(dep.getId()))
+            .collect(Collectors.toList());
+        return new SbomUpdate(saved, toCheck, false);
+    }
+    
+    /**
+     * 许可证解析超时的依赖已按 Unknown 保存，后台解析出结果后更新记录及其全局坐标；
+     * 本次扫描统计的许可证违规数不包含这些依赖
+     */
+    private void retryLicenses(List<Dependency> timedOut, List<Dependency> saved, File projectDir) {
+        licenseDetector.retryInBackground(timedOut, saved, projectDir.getPath(), dep -> {
+            dependencyMapper.update(dep);
+            coordinateService.recordLicense(dep);
+        });
     }
     
-    private List<Vulnerability> checkSingleDependency(Dependency dep, String ecosystem) {
+    private List<Dependency> insertDependencies(Long serviceId, List<Dependency> dependencies) {
+        if (!dependencies.isEmpty()) {
+            dependencyMapper.batchInsert(dependencies);
+        }
+        List<Dependency> savedDeps = dependencyMapper.findByServiceId(serviceId);
+        logger.info("Saved {} dependencies with IDs", savedDeps.size());
+        return savedDeps;
+    }
+    
+    /**
+     * 依赖在 SBOM 中的身份（含来源清单），相同则视为未变化
+     */
+    private String sbomKey(Dependency dep) {
+        return dep.getType() + "|" + dep.getName() + "|" + dep.getVersion() + "|" + dep.getScope() + "|" + dep.getFilePath();
+    }
+    
+    /**
+     * 上次完成的扫描漏洞查询不完整（PARTIAL），或距上次全量检查已超过 full-recheck-hours 时需要全量检查
+     * PARTIAL 扫描中未查到的依赖已作为未变化的依赖保存，只有全量检查才会重新查询
+     */
+    private boolean isFullRecheckDue(Long serviceId) {
+        List<SecurityScan> completed = securityScanMapper.findByServiceIdAndStatus(serviceId, "COMPLETED");
+        if (!completed.isEmpty() && SCAN_TYPE_PARTIAL.equals(completed.get(0).getScanType())) {
+            return true;
+        }
+        if (fullRecheckHours <= 0) {
+            return false;
+        }
+        LocalDateTime threshold = LocalDateTime.now().minusHours(fullRecheckHours);
+        return completed.stream()
+            .filter(s -> "FULL".equals(s.getScanType()) && s.getCompletedAt() != null)
+            .findFirst()
+            .map(s -> s.getCompletedAt().isBefore(threshold))
+            .orElse(true);
+    }
+    
+    /**
+     * 本次不重新检查的依赖沿用已保存的漏洞，计入扫描统计
+     */
+    private void tallyUnchecked(Long serviceId, SbomUpdate sbom, CheckTally tally) {
+        if (sbom.toCheck().size() == sbom.dependencies().size()) {
+            return;
+        }
+        
+        Set<Long> toCheckIds = new HashSet<>();
+        for (Dependency dep : sbom.toCheck()) {
+            toCheckIds.add(dep.getId());
+        }
+        Map<Long, List<Vulnerability>> vulnsByDependency = vulnerabilityMapper.findByServiceId(serviceId).stream()
+            .collect(Collectors.groupingBy(Vulnerability::getDependencyId));
+        
+        for (Dependency dep : sbom.dependencies()) {
+            if (toCheckIds.contains(dep.getId())) {
+                continue;
+            }
+            tally.record(vulnsByDependency.getOrDefault(dep.getId(), List.of()));
+            if ("VIOLATION".equals(dep.getLicenseStatus())) {
+                tally.licenseViolations.incrementAndGet();
+            }
+        }
+    }
+    
+    private PackageCoordinate toPackageCoordinate(Dependency dep) {
+        String ecosystem = mapEcosystem(dep.getType());
+        if (ecosystem == null || !isValidVersion(dep.getVersion())) {
+            return null;
+        }
+        return new PackageCoordinate(dep.getName(), ecosystem, dep.getVersion());
+    }
+    
+    private List<Vulnerability> saveVulnerabilities(Dependency dep, List<VulnerabilityInfo> vulnInfos) {
         try {
-            List<VulnerabilityInfo> vulnInfos = multiSourceService.queryAllSources(
-                dep.getName(), ecosystem, dep.getVersion()
-            );
-            
             List<Vulnerability> vulnerabilities = new ArrayList<>();
             for (VulnerabilityInfo info : vulnInfos) {
                 Vulnerability vuln = convertToVulnerability(dep.getId(), info);
@@ -193,7 +389,7 @@ public class AsyncScanService {
             
             return vulnerabilities;
         } catch (Exception e) {
-            logger.error("Failed to check vulnerabilities for {}@{}: {}", 
+            logger.error("Failed to save vulnerabilities for {}@{}: {}", 
                 dep.getName(), dep.getVersion(), e.getMessage());
             return List.of();
         }
@@ -227,13 +423,6 @@ public class AsyncScanService {
         securityScanMapper.update(scan);
     }
     
-    private void updateProgress(SecurityScan scan, int checked, int total, String currentDep) {
-        scan.setCheckedCount(checked);
-        scan.setCurrentDependency(currentDep);
-        scan.setProgress(calculateProgress(checked, total));
-        securityScanMapper.update(scan);
-    }
-    
     private int calculateProgress(int checked, int total) {
         if (total == 0) return 100;
         return (int) ((checked * 100.0) / total);
@@ -278,6 +467,81 @@ public class AsyncScanService {
                !lower.isEmpty();
     }
     
+    /**
+     * 漏洞统计（并行检查时线程安全计数）
+     */
+    private static class CheckTally {
+        final AtomicInteger vulnerable = new AtomicInteger();
+        final AtomicInteger critical = new AtomicInteger();
+        final AtomicInteger high = new AtomicInteger();
+        final AtomicInteger medium = new AtomicInteger();
+        final AtomicInteger low = new AtomicInteger();
+        final AtomicInteger licenseViolations = new AtomicInteger();
+        final AtomicBoolean lookupFailed = new AtomicBoolean();
+        
+        void record(List<Vulnerability> vulns) {
+            if (vulns.isEmpty()) {
+                return;
+            }
+            vulnerable.incrementAndGet();
+            for (Vulnerability v : vulns) {
+                switch (v.getSeverity()) {
+                    case "CRITICAL": critical.incrementAndGet(); break;
+                    case "HIGH": high.incrementAndGet(); break;
+                    case "MEDIUM": medium.incrementAndGet(); break;
+                    case "LOW": low.incrementAndGet(); break;
+                }
+            }
+        }
+    }
+    
+    /**
+     * SBOM 更新结果
+     * @param dependencies 服务当前全部依赖
+     * @param toCheck 本次需要检查漏洞的依赖
+     * @param fullCheck 是否检查了全部依赖
+     */
+    private record SbomUpdate(List<Dependency> dependencies, List<Dependency> toCheck, boolean fullCheck) {
+    }
+    
+    /**
+     * 进度上报，按时间间隔合并写库，避免每个依赖都更新一次扫描记录
+     */
+    private class ProgressReporter {
+        private final SecurityScan scan;
+        private final int total;
+        private final AtomicInteger checked = new AtomicInteger();
+        private long lastWriteMillis;
+        
+        ProgressReporter(SecurityScan scan, int total) {
+            this.scan = scan;
+            this.total = total;
+        }
+        
+        void checked(String currentDep) {
+            int done = checked.incrementAndGet();
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (now - lastWriteMillis < progressIntervalMs && done < total) {
+                    return;
+                }
+                lastWriteMillis = now;
+                write(checked.get(), currentDep);
+            }
+        }
+        
+        synchronized void flush() {
+            write(checked.get(), null);
+        }
+        
+        private void write(int done, String currentDep) {
+            scan.setCheckedCount(done);
+            scan.setCurrentDependency(currentDep);
+            scan.setProgress(calculateProgress(done, total));
+            securityScanMapper.update(scan);
+        }
+    }
+    
     private double estimateCvssScore(String severity) {
         if (severity == null) return 5.0;
         return switch (severity.toUpperCase()) {
@@ -136,8 +136,9 @@ public class CodeQualityService {
     /**
      * 使用 OpenCode 服务启动扫描（新版本）
      * 支持多个服务和多个检查项
+     * @param priority 扫描优先级，见 LlmTaskScheduler.PRIORITY_*
      */
-    public CodeQualityScan startScanWithCheckItems(List<Long> serviceIds, List<Long> checkItemIds) throws Exception {
+    public CodeQualityScan startScanWithCheckItems(List<Long> serviceIds, List<Long> checkItemIds, int priority) throws Exception {
         if (serviceIds == null || serviceIds.isEmpty()) {
             throw new IllegalArgumentException("至少需要选择一个服务");
         }
@@ -169,11 +170,11 @@ public class CodeQualityService {
         scan.setCurrentPhase("正在初始化...");
         scanMapper.insert(scan);
 
-        logger.info("Starting OpenCode scan {} for {} services with {} check items",
-            scan.getId(), serviceIds.size(), checkItemIds.size());
+        logger.info("Starting OpenCode scan {} for {} services with {} check items, priority {}",
+            scan.getId(), serviceIds.size(), checkItemIds.size(), priority);
 
         // 异步执行扫描任务
-        scanTaskManager.executeScanAsync(scan.getId(), serviceIds, checkItemIds);
+        scanTaskManager.executeScanAsync(scan.getId(), serviceIds, checkItemIds, priority);
 
         return scan;
     }
@@ -0,0 +1,417 @@
+package com.jettech.code.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jettech.code.dto.PackageCoordinate;
+import com.jettech.code.dto.VulnerabilityInfo;
+import com.jettech.code.entity.Dependency;
+import com.jettech.code.entity.DependencyCoordinate;
+import com.jettech.code.mapper.DependencyCoordinateMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 全局依赖坐标
+ * 同一 生态系统+包名+版本 在所有服务间只保存一行 dependency_coordinate，记录许可证和漏洞检查结果；
+ * 扫描时先按坐标取已有结果，只对新坐标或结果过期的坐标检测许可证、查询漏洞
+ *
+ * 进程内 LRU 保存坐标及其结果，各服务的 Dependency 共用其中的名称和版本字符串
+ */
+@Service
+public class DependencyCoordinateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependencyCoordinateService.class);
+
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    private final DependencyCoordinateMapper coordinateMapper;
+    private final LicenseDetector licenseDetector;
+    private final MultiSourceVulnerabilityService multiSourceService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${dependency.coordinate.memory.max-entries:200000}")
+    private int memoryMaxEntries;
+
+    @Value("${dependency.coordinate.license-expire-hours:720}")
+    private int licenseExpireHours;
+
+    /**
+     * 漏洞结果的有效期，与漏洞缓存的负缓存时间一致，以便尽快发现新披露的漏洞
+     */
+    @Value("${dependency.coordinate.vulnerability-expire-hours:6}")
+    private int vulnerabilityExpireHours;
+
+    private Map<String, Entry> memoryCache;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder licenseReuses = new LongAdder();
+    private final LongAdder vulnerabilityReuses = new LongAdder();
+
+    public DependencyCoordinateService(DependencyCoordinateMapper coordinateMapper,
+                                       LicenseDetector licenseDetector,
+                                       MultiSourceVulnerabilityService multiSourceService,
+                                       ObjectMapper objectMapper) {
+        this.coordinateMapper = coordinateMapper;
+        this.licenseDetector = licenseDetector;
+        this.multiSourceService = multiSourceService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        memoryCache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > memoryMaxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 为依赖关联全局坐标（设置 coordinateId），不存在的坐标自动创建
+     */
+    public void attach(List<Dependency> dependencies) {
+        resolve(dependencies);
+    }
+
+    /**
+     * 检测许可证：坐标已有有效结果的直接使用，其余交给 {@link LicenseDetector#detectLicenses}，
+     * 解析出的许可证写回坐标供其他服务复用
+     *
+     * @return 超时未完成的依赖，同 {@link LicenseDetector#detectLicenses}
+     */
+    public List<Dependency> detectLicenses(List<Dependency> dependencies, String projectPath) {
+        Map<String, Entry> entries = resolve(dependencies);
+        LocalDateTime threshold = LocalDateTime.now().minusHours(licenseExpireHours);
+
+        List<Dependency> unresolved = new ArrayList<>();
+        for (Dependency dep : dependencies) {
+            Entry entry = entries.get(key(dep));
+            String license = entry != null ? entry.license(threshold) : null;
+            if (license != null) {
+                licenseDetector.applyLicense(dep, license);
+                licenseReuses.increment();
+            } else {
+                unresolved.add(dep);
+            }
+        }
+        logger.info("License detection: {} reused from coordinates, {} to resolve",
+            dependencies.size() - unresolved.size(), unresolved.size());
+
+        List<Dependency> timedOut = licenseDetector.detectLicenses(unresolved, projectPath);
+        Set<Dependency> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.addAll(timedOut);
+        for (Dependency dep : unresolved) {
+            if (!pending.contains(dep)) {
+                recordLicense(dep, entries.get(key(dep)));
+            }
+        }
+        return timedOut;
+    }
+
+    /**
+     * 保存依赖已解析出的许可证到其坐标（后台重试解析成功后调用）
+     */
+    public void recordLicense(Dependency dependency) {
+        recordLicense(dependency, resolve(List.of(dependency)).get(key(dependency)));
+    }
+
+    /**
+     * 查询依赖的漏洞：坐标已有有效结果的直接使用，其余批量查询各数据源；
+     * 所有数据源都返回了结果时写回坐标
+     *
+     * @param toPackage 依赖到查询坐标的映射，返回 null 的依赖不查询
+     * @param incomplete 输出：有数据源查询失败、结果不完整的坐标
+     */
+    public Map<PackageCoordinate, List<VulnerabilityInfo>> queryVulnerabilities(List<Dependency> dependencies,
+                                                                                Function<Dependency, PackageCoordinate> toPackage,
+                                                                                Set<PackageCoordinate> incomplete) {
+        Map<String, Entry> entries = resolve(dependencies);
+        LocalDateTime threshold = LocalDateTime.now().minusHours(vulnerabilityExpireHours);
+
+        Map<PackageCoordinate, List<VulnerabilityInfo>> results = new HashMap<>();
+        Map<PackageCoordinate, Entry> toQuery = new LinkedHashMap<>();
+        for (Dependency dep : dependencies) {
+            PackageCoordinate pkg = toPackage.apply(dep);
+            if (pkg == null || results.containsKey(pkg) || toQuery.containsKey(pkg)) {
+                continue;
+            }
+            Entry entry = entries.get(key(dep));
+            List<VulnerabilityInfo> known = entry != null ? entry.vulnerabilities(threshold) : null;
+            if (known != null) {
+                results.put(pkg, known);
+                vulnerabilityReuses.increment();
+            } else {
+                toQuery.put(pkg, entry);
+            }
+        }
+
+        if (!toQuery.isEmpty()) {
+            Map<PackageCoordinate, List<VulnerabilityInfo>> found =
+                multiSourceService.queryAllSourcesBatch(new ArrayList<>(toQuery.keySet()), incomplete);
+            for (Map.Entry<PackageCoordinate, Entry> item : toQuery.entrySet()) {
+                List<VulnerabilityInfo> vulnerabilities = found.getOrDefault(item.getKey(), List.of());
+                results.put(item.getKey(), vulnerabilities);
+                if (item.getValue() != null && !incomplete.contains(item.getKey())) {
+                    recordVulnerabilities(item.getValue(), vulnerabilities);
+                }
+            }
+        }
+        return results;
+    }
+
+    public Map<String, Object> getStats() {
+        long memory = memoryHits.sum();
+        long database = databaseHits.sum();
+        long newCoordinates = created.sum();
+        long total = memory + database + newCoordinates;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (memoryCache) {
+            stats.put("memorySize", memoryCache.size());
+        }
+        stats.put("memoryMaxEntries", memoryMaxEntries);
+        stats.put("memoryHits", memory);
+        stats.put("databaseHits", database);
+        stats.put("created", newCoordinates);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (memory + database) / total);
+        stats.put("licenseReuses", licenseReuses.sum());
+        stats.put("vulnerabilityReuses", vulnerabilityReuses.sum());
+        return stats;
+    }
+
+    /**
+     * 查找或创建依赖的坐标，设置 coordinateId，并让依赖使用坐标中的名称和版本字符串
+     * @return 坐标键 -> 坐标；没有类型或名称的依赖不关联坐标
+     */
+    private Map<String, Entry> resolve(List<Dependency> dependencies) {
+        Map<String, Entry> entries = new HashMap<>();
+        Map<String, DependencyCoordinate> missing = new LinkedHashMap<>();
+        for (Dependency dep : dependencies) {
+            String key = key(dep);
+            if (key == null || entries.containsKey(key) || missing.containsKey(key)) {
+                continue;
+            }
+            Entry entry = getFromMemory(key);
+            if (entry != null) {
+                memoryHits.increment();
+                entries.put(key, entry);
+            } else {
+                missing.put(key, toCoordinate(dep));
+            }
+        }
+
+        List<DependencyCoordinate> pending = new ArrayList<>(missing.values());
+        for (int from = 0; from < pending.size(); from += LOOKUP_BATCH_SIZE) {
+            List<DependencyCoordinate> batch = pending.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, pending.size()));
+            try {
+                entries.putAll(loadOrCreate(batch));
+            } catch (Exception e) {
+                // 坐标只用于复用结果，不可用时按未关联处理，扫描照常进行
+                logger.warn("Failed to resolve {} dependency coordinates: {}", batch.size(), e.getMessage());
+            }
+        }
+
+        for (Dependency dep : dependencies) {
+            Entry entry = entries.get(key(dep));
+            if (entry != null) {
+                dep.setCoordinateId(entry.id);
+                dep.setName(entry.name);
+                if (dep.getVersion() != null) {
+                    dep.setVersion(entry.version);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private Map<String, Entry> loadOrCreate(List<DependencyCoordinate> batch) {
+        Map<String, Entry> loaded = load(batch);
+        databaseHits.add(loaded.size());
+        if (loaded.size() == batch.size()) {
+            return loaded;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<DependencyCoordinate> absent = new ArrayList<>();
+        for (DependencyCoordinate coordinate : batch) {
+            if (!loaded.containsKey(key(coordinate))) {
+                coordinate.setCreatedAt(now);
+                absent.add(coordinate);
+            }
+        }
+        // 并发扫描可能同时插入同一坐标，INSERT IGNORE 后重新查询取得ID
+        coordinateMapper.batchInsertIgnore(absent);
+        Map<String, Entry> inserted = load(absent);
+        created.add(inserted.size());
+        loaded.putAll(inserted);
+        return loaded;
+    }
+
+    private Map<String, Entry> load(List<DependencyCoordinate> coordinates) {
+        Map<String, Entry> loaded = new HashMap<>();
+        for (DependencyCoordinate row : coordinateMapper.findByCoordinates(coordinates)) {
+            String key = key(row);
+            Entry entry = new Entry(row.getId(), row.getName(), row.getVersion());
+            entry.license = row.getLicense();
+            entry.licenseCheckedAt = row.getLicenseCheckedAt();
+            if (row.getVulnerabilities() != null) {
+                entry.vulnerabilities = deserializeVulnerabilities(row.getVulnerabilities());
+                entry.vulnerabilityCheckedAt = entry.vulnerabilities != null ? row.getVulnerabilityCheckedAt() : null;
+            }
+            loaded.put(key, putToMemory(key, entry));
+        }
+        return loaded;
+    }
+
+    private void recordLicense(Dependency dependency, Entry entry) {
+        String license = dependency.getLicense();
+        if (entry == null || license == null || license.isEmpty() || "Unknown".equals(license)) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (entry) {
+            entry.license = license;
+            entry.licenseCheckedAt = now;
+        }
+        try {
+            coordinateMapper.updateLicense(entry.id, license, now);
+        } catch (Exception e) {
+            logger.warn("Failed to save license for coordinate {}: {}", entry.id, e.getMessage());
+        }
+    }
+
+    private void recordVulnerabilities(Entry entry, List<VulnerabilityInfo> vulnerabilities) {
+        String json = serializeVulnerabilities(vulnerabilities);
+        if (json == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (entry) {
+            entry.vulnerabilities = List.copyOf(vulnerabilities);
+            entry.vulnerabilityCheckedAt = now;
+        }
+        try {
+            coordinateMapper.updateVulnerabilities(entry.id, json, now);
+        } catch (Exception e) {
+            logger.warn("Failed to save vulnerabilities for coordinate {}: {}", entry.id, e.getMessage());
+        }
+    }
+
+    private Entry getFromMemory(String key) {
+        synchronized (memoryCache) {
+            return memoryCache.get(key);
+        }
+    }
+
+    /**
+     * @return 内存中已有的坐标（另一个扫描先加载时），否则为新放入的坐标
+     */
+    private Entry putToMemory(String key, Entry entry) {
+        synchronized (memoryCache) {
+            Entry existing = memoryCache.putIfAbsent(key, entry);
+            return existing != null ? existing : entry;
+        }
+    }
+
+    private static DependencyCoordinate toCoordinate(Dependency dep) {
+        DependencyCoordinate coordinate = new DependencyCoordinate();
+        coordinate.setEcosystem(normalizeEcosystem(dep.getType()));
+        coordinate.setName(dep.getName());
+        coordinate.setVersion(normalizeVersion(dep.getVersion()));
+        return coordinate;
+    }
+
+    private static String key(Dependency dep) {
+        if (dep.getType() == null || dep.getName() == null) {
+            return null;
+        }
+        return key(normalizeEcosystem(dep.getType()), dep.getName(), normalizeVersion(dep.getVersion()));
+    }
+
+    private static String key(DependencyCoordinate coordinate) {
+        return key(coordinate.getEcosystem(), coordinate.getName(), coordinate.getVersion());
+    }
+
+    private static String key(String ecosystem, String name, String version) {
+        return ecosystem + "|" + name + "|" + version;
+    }
+
+    private static String normalizeEcosystem(String ecosystem) {
+        return ecosystem.toLowerCase();
+    }
+
+    private static String normalizeVersion(String version) {
+        return version != null ? version : "";
+    }
+
+    private String serializeVulnerabilities(List<VulnerabilityInfo> vulnerabilities) {
+        try {
+            return objectMapper.writeValueAsString(vulnerabilities);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize vulnerabilities", e);
+            return null;
+        }
+    }
+
+    private List<VulnerabilityInfo> deserializeVulnerabilities(String json) {
+        try {
+            return List.copyOf(objectMapper.readValue(json,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, VulnerabilityInfo.class)));
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to deserialize coordinate vulnerabilities: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 内存中的坐标，名称和版本字符串由引用该坐标的所有依赖共用；结果字段在自身锁内更新
+     */
+    private static final class Entry {
+        final Long id;
+        final String name;
+        final String version;
+        String license;
+        LocalDateTime licenseCheckedAt;
+        List<VulnerabilityInfo> vulnerabilities;
+        LocalDateTime vulnerabilityCheckedAt;
+
+        Entry(Long id, String name, String version) {
+            this.id = id;
+            this.name = name;
+            this.version = version;
+        }
+
+        synchronized String license(LocalDateTime threshold) {
+            return license != null && licenseCheckedAt != null && licenseCheckedAt.isAfter(threshold) ? license : null;
+        }
+
+        synchronized List<VulnerabilityInfo> vulnerabilities(LocalDateTime threshold) {
+            return vulnerabilities != null && vulnerabilityCheckedAt != null && vulnerabilityCheckedAt.isAfter(threshold)
+                ? vulnerabilities : null;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.jettech.code.service;
+
+import com.jettech.code.entity.Dependency;
+import com.jettech.code.parser.DependencyParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 依赖清单发现与并行解析
+ * 一次遍历服务目录找出所有清单文件，每个清单所在目录作为一个项目交给对应解析器，
+ * 多语言仓库和 monorepo 子目录中的项目都会被解析；各项目并行解析，结果按项目顺序合并，
+ * 依赖的 filePath 记录其来源清单（相对服务根目录）
+ */
+@Service
+public class DependencyDiscoveryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependencyDiscoveryService.class);
+
+    private final List<DependencyParser> dependencyParsers;
+
+    // 清单文件名 -> (解析器, 在该解析器清单中的优先级)
+    private final Map<String, List<ManifestName>> manifestNames = new HashMap<>();
+
+    /**
+     * 不进入的目录（隐藏目录总是跳过）
+     */
+    @Value("${dependency.discovery.excluded-dirs:node_modules,target,build,dist,vendor,testdata,__pycache__,venv,site-packages}")
+    private Set<String> excludedDirs;
+
+    @Value("${dependency.discovery.max-depth:12}")
+    private int maxDepth;
+
+    @Value("${dependency.discovery.parse-concurrency:4}")
+    private int parseConcurrency;
+
+    public DependencyDiscoveryService(List<DependencyParser> dependencyParsers) {
+        this.dependencyParsers = dependencyParsers;
+        for (DependencyParser parser : dependencyParsers) {
+            List<String> names = parser.getManifestNames();
+            for (int i = 0; i < names.size(); i++) {
+                manifestNames.computeIfAbsent(names.get(i), k -> new ArrayList<>()).add(new ManifestName(parser, i));
+            }
+        }
+    }
+
+    /**
+     * 遍历服务目录，找出需要解析的项目
+     * 同一解析器的嵌套项目被外层项目覆盖时（见 {@link DependencyParser#coversNestedProject}）不单独列出
+     *
+     * @return 按解析器、目录排序的项目列表
+     */
+    public List<ManifestProject> discover(File serviceRoot) throws IOException {
+        Path root = serviceRoot.toPath().toAbsolutePath().normalize();
+        // 解析器 -> (项目目录 -> 优先级最高的清单文件名)
+        Map<DependencyParser, TreeMap<Path, ManifestName>> found = new LinkedHashMap<>();
+        for (DependencyParser parser : dependencyParsers) {
+            found.put(parser, new TreeMap<>());
+        }
+
+        Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() != null ? dir.getFileName().toString() : "";
+                if (!dir.equals(root) && (name.startsWith(".") || excludedDirs.contains(name))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                List<ManifestName> matches = attrs.isRegularFile() ? manifestNames.get(file.getFileName().toString()) : null;
+                if (matches != null) {
+                    for (ManifestName match : matches) {
+                        found.get(match.parser()).merge(file.getParent(), match,
+                            (a, b) -> a.priority() <= b.priority() ? a : b);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.debug("Skipping unreadable path {}: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        List<ManifestProject> projects = new ArrayList<>();
+        for (Map.Entry<DependencyParser, TreeMap<Path, ManifestName>> entry : found.entrySet()) {
+            DependencyParser parser = entry.getKey();
+            List<Path> accepted = new ArrayList<>();
+            // 路径按字典序排列，外层目录总在其子目录之前
+            for (Map.Entry<Path, ManifestName> candidate : entry.getValue().entrySet()) {
+                Path dir = candidate.getKey();
+                if (isCovered(parser, accepted, dir)) {
+                    logger.debug("{} project {} is covered by an outer project", parser.getEcosystem(), dir);
+                    continue;
+                }
+                if (!parser.supports(dir.toFile())) {
+                    continue;
+                }
+                accepted.add(dir);
+                String manifest = parser.getManifestNames().get(candidate.getValue().priority());
+                projects.add(new ManifestProject(parser, dir.toFile(), relativePath(root, dir.resolve(manifest))));
+            }
+        }
+
+        logger.info("Discovered {} dependency manifests under {}: {}", projects.size(), root,
+            projects.stream().map(ManifestProject::manifestPath).toList());
+        return projects;
+    }
+
+    /**
+     * 并行解析各项目，单个项目解析失败时记录日志并跳过
+     * @return 合并后的依赖，顺序与 projects 一致；依赖的 filePath 未设置时填入来源清单
+     */
+    public List<Dependency> parse(Long serviceId, List<ManifestProject> projects) throws InterruptedException {
+        List<List<Dependency>> results = new ArrayList<>(projects.size());
+        for (int i = 0; i < projects.size(); i++) {
+            results.add(List.of());
+        }
+
+        long start = System.currentTimeMillis();
+        Semaphore permits = new Semaphore(Math.max(1, parseConcurrency));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < projects.size(); i++) {
+                int index = i;
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        results.set(index, parseProject(serviceId, projects.get(index)));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+
+        List<Dependency> dependencies = new ArrayList<>();
+        results.forEach(dependencies::addAll);
+        logger.info("Parsed {} dependencies from {} manifests in {}ms",
+            dependencies.size(), projects.size(), System.currentTimeMillis() - start);
+        return dependencies;
+    }
+
+    public List<Dependency> discoverAndParse(Long serviceId, File serviceRoot) throws IOException, InterruptedException {
+        return parse(serviceId, discover(serviceRoot));
+    }
+
+    private List<Dependency> parseProject(Long serviceId, ManifestProject project) {
+        DependencyParser parser = project.parser();
+        try {
+            List<Dependency> dependencies = parser.parse(serviceId, project.directory());
+            for (Dependency dep : dependencies) {
+                if (dep.getFilePath() == null) {
+                    dep.setFilePath(project.manifestPath());
+                }
+            }
+            logger.info("Found {} dependencies in {} with {} parser",
+                dependencies.size(), project.manifestPath(), parser.getEcosystem());
+            return dependencies;
+        } catch (Exception e) {
+            logger.error("Failed to parse {} with {} parser: {}",
+                project.manifestPath(), parser.getEcosystem(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static boolean isCovered(DependencyParser parser, List<Path> accepted, Path dir) {
+        for (Path outer : accepted) {
+            if (dir.startsWith(outer) && parser.coversNestedProject(outer.toFile(), dir.toFile())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String relativePath(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    /**
+     * @param directory 项目目录，传给解析器
+     * @param manifestPath 标识该项目的清单文件，相对服务根目录
+     */
+    public record ManifestProject(DependencyParser parser, File directory, String manifestPath) {
+    }
+
+    private record ManifestName(DependencyParser parser, int priority) {
+    }
+}
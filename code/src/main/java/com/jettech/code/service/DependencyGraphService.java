@@ -0,0 +1,240 @@
+package com.jettech.code.service;
+
+import com.jettech.code.entity.Dependency;
+import com.jettech.code.entity.DependencyEdge;
+import com.jettech.code.entity.Vulnerability;
+import com.jettech.code.graph.DependencyGraph;
+import com.jettech.code.mapper.DependencyEdgeMapper;
+import com.jettech.code.mapper.DependencyMapper;
+import com.jettech.code.mapper.VulnerabilityMapper;
+import com.jettech.code.parser.DependencyParser;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 依赖关系图
+ * 扫描时把解析器记录的引入关系保存为 dependency_edge；查询时按服务构建内存图并缓存，边更新后失效
+ */
+@Service
+public class DependencyGraphService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependencyGraphService.class);
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private final DependencyEdgeMapper dependencyEdgeMapper;
+    private final DependencyMapper dependencyMapper;
+    private final VulnerabilityMapper vulnerabilityMapper;
+
+    @Value("${dependency-graph.cache.max-entries:64}")
+    private int cacheMaxEntries;
+
+    private Map<Long, DependencyGraph> graphs;
+
+    // 服务ID -> 失效次数（与 graphs 共用锁），构建期间服务被失效时不缓存构建结果
+    private final Map<Long, Long> epochs = new HashMap<>();
+
+    public DependencyGraphService(DependencyEdgeMapper dependencyEdgeMapper,
+                                  DependencyMapper dependencyMapper,
+                                  VulnerabilityMapper vulnerabilityMapper) {
+        this.dependencyEdgeMapper = dependencyEdgeMapper;
+        this.dependencyMapper = dependencyMapper;
+        this.vulnerabilityMapper = vulnerabilityMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        graphs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, DependencyGraph> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * 用本次解析结果重建服务的全部依赖关系
+     * @param parsed 解析器输出（带 direct/requiredBy）
+     * @param saved 保存后服务的全部依赖（带ID），按 来源清单+名称@版本 与解析结果对应；
+     *              requiredBy 只在同一来源清单内引用
+     */
+    @Transactional
+    public void saveEdges(Long serviceId, List<Dependency> parsed, List<Dependency> saved) {
+        Map<String, Long> idByKey = new HashMap<>();
+        for (Dependency dep : saved) {
+            idByKey.putIfAbsent(edgeKey(dep.getFilePath(), DependencyParser.nodeKey(dep.getName(), dep.getVersion())), dep.getId());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<String> seen = new HashSet<>();
+        List<DependencyEdge> edges = new ArrayList<>();
+        for (Dependency dep : parsed) {
+            Long childId = idByKey.get(edgeKey(dep.getFilePath(), DependencyParser.nodeKey(dep.getName(), dep.getVersion())));
+            if (childId == null) {
+                continue;
+            }
+            if (dep.isDirect() && seen.add("root>" + childId)) {
+                edges.add(new DependencyEdge(null, serviceId, null, childId, now));
+            }
+            if (dep.getRequiredBy() == null) {
+                continue;
+            }
+            for (String parentKey : dep.getRequiredBy()) {
+                Long parentId = idByKey.get(edgeKey(dep.getFilePath(), parentKey));
+                if (parentId != null && !parentId.equals(childId) && seen.add(parentId + ">" + childId)) {
+                    edges.add(new DependencyEdge(null, serviceId, parentId, childId, now));
+                }
+            }
+        }
+
+        dependencyEdgeMapper.deleteByServiceId(serviceId);
+        for (int from = 0; from < edges.size(); from += INSERT_BATCH_SIZE) {
+            dependencyEdgeMapper.batchInsert(edges.subList(from, Math.min(from + INSERT_BATCH_SIZE, edges.size())));
+        }
+        invalidate(serviceId);
+        // 提交前其他线程读到的仍是旧的边，提交后再失效一次
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(serviceId);
+                }
+            });
+        }
+        logger.info("Saved {} dependency edges for service {}", edges.size(), serviceId);
+    }
+
+    public void invalidate(Long serviceId) {
+        synchronized (graphs) {
+            graphs.remove(serviceId);
+            epochs.merge(serviceId, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * 获取服务的依赖图，未缓存时在锁外构建；构建期间服务被失效时返回的图不放入缓存
+     */
+    public DependencyGraph getGraph(Long serviceId) {
+        long epoch;
+        synchronized (graphs) {
+            DependencyGraph graph = graphs.get(serviceId);
+            if (graph != null) {
+                return graph;
+            }
+            epoch = epochs.getOrDefault(serviceId, 0L);
+        }
+
+        long start = System.currentTimeMillis();
+        List<Long> ids = dependencyMapper.findByServiceId(serviceId).stream().map(Dependency::getId).toList();
+        DependencyGraph graph = DependencyGraph.build(ids, dependencyEdgeMapper.findByServiceId(serviceId));
+        logger.debug("Built dependency graph for service {}: {} nodes, {} edges in {}ms",
+            serviceId, graph.getNodeCount(), graph.getEdgeCount(), System.currentTimeMillis() - start);
+
+        synchronized (graphs) {
+            if (epochs.getOrDefault(serviceId, 0L) == epoch) {
+                graphs.put(serviceId, graph);
+            }
+        }
+        return graph;
+    }
+
+    public Map<String, Object> getGraphData(Long serviceId) {
+        DependencyGraph graph = getGraph(serviceId);
+        List<Dependency> dependencies = dependencyMapper.findByServiceId(serviceId);
+        List<long[]> edges = new ArrayList<>();
+        List<Long> directIds = new ArrayList<>();
+        for (Dependency dep : dependencies) {
+            if (graph.isDirect(dep.getId())) {
+                directIds.add(dep.getId());
+            }
+            for (Long child : graph.getChildren(dep.getId())) {
+                edges.add(new long[]{dep.getId(), child});
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("nodes", dependencies);
+        result.put("directIds", directIds);
+        result.put("edges", edges);
+        return result;
+    }
+
+    /**
+     * 从直接依赖引入该依赖的最短路径
+     */
+    public List<List<Dependency>> getPathsTo(Long dependencyId, int limit) {
+        Dependency target = dependencyMapper.findById(dependencyId);
+        if (target == null) {
+            return List.of();
+        }
+        Map<Long, Dependency> byId = indexById(dependencyMapper.findByServiceId(target.getServiceId()));
+        return toDependencies(getGraph(target.getServiceId()).shortestPaths(dependencyId, limit), byId);
+    }
+
+    /**
+     * 服务中每个存在漏洞的依赖及其引入路径
+     */
+    public List<Map<String, Object>> getVulnerablePaths(Long serviceId, int limit) {
+        Map<Long, Integer> vulnerabilityCounts = new LinkedHashMap<>();
+        for (Vulnerability vulnerability : vulnerabilityMapper.findByServiceId(serviceId)) {
+            vulnerabilityCounts.merge(vulnerability.getDependencyId(), 1, Integer::sum);
+        }
+
+        DependencyGraph graph = getGraph(serviceId);
+        Map<Long, Dependency> byId = indexById(dependencyMapper.findByServiceId(serviceId));
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : vulnerabilityCounts.entrySet()) {
+            Dependency dependency = byId.get(entry.getKey());
+            if (dependency == null) {
+                continue;
+            }
+            dependency.setVulnerabilityCount(entry.getValue());
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("dependency", dependency);
+            item.put("direct", graph.isDirect(dependency.getId()));
+            item.put("paths", toDependencies(graph.shortestPaths(dependency.getId(), limit), byId));
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static String edgeKey(String filePath, String nodeKey) {
+        return filePath + "|" + nodeKey;
+    }
+
+    private static Map<Long, Dependency> indexById(List<Dependency> dependencies) {
+        Map<Long, Dependency> byId = new HashMap<>(dependencies.size() * 2);
+        for (Dependency dep : dependencies) {
+            byId.put(dep.getId(), dep);
+        }
+        return byId;
+    }
+
+    private static List<List<Dependency>> toDependencies(List<List<Long>> paths, Map<Long, Dependency> byId) {
+        List<List<Dependency>> result = new ArrayList<>(paths.size());
+        for (List<Long> path : paths) {
+            List<Dependency> dependencies = new ArrayList<>(path.size());
+            for (Long id : path) {
+                dependencies.add(byId.get(id));
+            }
+            result.add(dependencies);
+        }
+        return result;
+    }
+}
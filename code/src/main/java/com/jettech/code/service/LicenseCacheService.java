@@ -0,0 +1,216 @@
+package com.jettech.code.service;
+
+import com.jettech.code.entity.LicenseCache;
+import com.jettech.code.mapper.LicenseCacheMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 许可证解析缓存
+ * 进程内 LRU 位于 license_cache 表之前，启动时用表中最近的有效记录预热，
+ * 重启后无需再次请求各包管理仓库
+ */
+@Service
+public class LicenseCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LicenseCacheService.class);
+
+    private final LicenseCacheMapper licenseCacheMapper;
+
+    @Value("${license.cache.expire-hours:720}")
+    private int cacheExpireHours;
+
+    /**
+     * 未查到许可证（负缓存）的过期时间
+     */
+    @Value("${license.cache.negative-expire-hours:24}")
+    private int negativeExpireHours;
+
+    @Value("${license.cache.memory.max-entries:50000}")
+    private int memoryMaxEntries;
+
+    /**
+     * 表中最多保留的记录数，超出时按过期时间淘汰最早的记录
+     */
+    @Value("${license.cache.max-rows:500000}")
+    private int maxRows;
+
+    private Map<String, CacheEntry> memoryCache;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LicenseCacheService(LicenseCacheMapper licenseCacheMapper) {
+        this.licenseCacheMapper = licenseCacheMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        memoryCache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > memoryMaxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        warmUp();
+    }
+
+    /**
+     * @return 缓存的许可证；空字符串表示该层级已确认查不到；null 表示未缓存
+     */
+    public String get(String source, String ecosystem, String packageName, String version) {
+        String cacheKey = buildCacheKey(source, ecosystem, packageName, version);
+
+        CacheEntry entry = getFromMemory(cacheKey);
+        if (entry != null) {
+            memoryHits.increment();
+            return entry.license();
+        }
+
+        LicenseCache cache = licenseCacheMapper.findByCoordinate(
+            normalizeEcosystem(ecosystem), packageName, normalizeVersion(version), source);
+        if (cache != null && cache.getExpiresAt().isAfter(LocalDateTime.now())) {
+            putToMemory(cacheKey, new CacheEntry(cache.getLicense(), cache.getExpiresAt()));
+            databaseHits.increment();
+            return cache.getLicense();
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @param license 为 null 或空时按负缓存保存
+     */
+    public void put(String source, String ecosystem, String packageName, String version, String license) {
+        String value = license != null ? license : "";
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusHours(value.isEmpty() ? negativeExpireHours : cacheExpireHours);
+
+        putToMemory(buildCacheKey(source, ecosystem, packageName, version), new CacheEntry(value, expiresAt));
+
+        try {
+            licenseCacheMapper.upsert(new LicenseCache(null, normalizeEcosystem(ecosystem), packageName,
+                normalizeVersion(version), source, value, now, expiresAt));
+        } catch (Exception e) {
+            logger.warn("Failed to persist license cache for {}@{}: {}", packageName, version, e.getMessage());
+        }
+    }
+
+    /**
+     * 定期清理过期记录，并把表大小控制在 max-rows 以内
+     */
+    @Scheduled(initialDelayString = "${license.cache.cleanup-interval-ms:3600000}",
+               fixedDelayString = "${license.cache.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        try {
+            int expired = licenseCacheMapper.deleteExpired();
+            int overflow = licenseCacheMapper.count() - maxRows;
+            if (overflow > 0) {
+                licenseCacheMapper.deleteOldest(overflow);
+            }
+            synchronized (memoryCache) {
+                LocalDateTime now = LocalDateTime.now();
+                memoryCache.values().removeIf(entry -> entry.isExpired(now));
+            }
+            if (expired > 0 || overflow > 0) {
+                logger.info("License cache cleanup: {} expired, {} over limit", expired, Math.max(overflow, 0));
+            }
+        } catch (Exception e) {
+            logger.warn("License cache cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    public void clearAll() {
+        licenseCacheMapper.clearAll();
+        synchronized (memoryCache) {
+            memoryCache.clear();
+        }
+        logger.info("Cleared all license cache");
+    }
+
+    public Map<String, Object> getStats() {
+        long memory = memoryHits.sum();
+        long database = databaseHits.sum();
+        long miss = misses.sum();
+        long total = memory + database + miss;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (memoryCache) {
+            stats.put("memorySize", memoryCache.size());
+        }
+        stats.put("memoryMaxEntries", memoryMaxEntries);
+        stats.put("memoryHits", memory);
+        stats.put("databaseHits", database);
+        stats.put("misses", miss);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (memory + database) / total);
+        return stats;
+    }
+
+    private void warmUp() {
+        try {
+            List<LicenseCache> recent = licenseCacheMapper.findRecentValid(memoryMaxEntries);
+            // 按创建时间倒序读取，逆序放入使最近的记录位于 LRU 尾部
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                LicenseCache cache = recent.get(i);
+                putToMemory(buildCacheKey(cache.getSource(), cache.getEcosystem(), cache.getPackageName(), cache.getVersion()),
+                    new CacheEntry(cache.getLicense(), cache.getExpiresAt()));
+            }
+            logger.info("Warmed license cache with {} entries", recent.size());
+        } catch (Exception e) {
+            logger.warn("Failed to warm license cache: {}", e.getMessage());
+        }
+    }
+
+    private CacheEntry getFromMemory(String cacheKey) {
+        synchronized (memoryCache) {
+            CacheEntry entry = memoryCache.get(cacheKey);
+            if (entry != null && entry.isExpired(LocalDateTime.now())) {
+                memoryCache.remove(cacheKey);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void putToMemory(String cacheKey, CacheEntry entry) {
+        synchronized (memoryCache) {
+            memoryCache.put(cacheKey, entry);
+        }
+    }
+
+    private String buildCacheKey(String source, String ecosystem, String packageName, String version) {
+        return source + ":" + normalizeEcosystem(ecosystem) + ":" + packageName + ":" + normalizeVersion(version);
+    }
+
+    private static String normalizeEcosystem(String ecosystem) {
+        return ecosystem != null ? ecosystem.toLowerCase() : "";
+    }
+
+    private static String normalizeVersion(String version) {
+        return version != null ? version : "";
+    }
+
+    private record CacheEntry(String license, LocalDateTime expiresAt) {
+        boolean isExpired(LocalDateTime now) {
+            return expiresAt != null && expiresAt.isBefore(now);
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package com.jettech.code.service;
 
 import com.jettech.code.entity.Dependency;
-import com.jettech.code.entity.LicenseRule;
-import com.jettech.code.mapper.LicenseRuleMapper;
+import com.jettech.code.license.BuiltinLicenseMatcher;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,12 +33,28 @@ public class LicenseDetector {
     
     private static final Logger logger = LoggerFactory.getLogger(LicenseDetector.class);
     
-    private final LicenseRuleMapper licenseRuleMapper;
+    private final LicenseRuleService licenseRuleService;
+    private final BuiltinLicenseMatcher builtinMatcher;
     private final RestTemplate restTemplate;
-    private final RestTemplate restTemplateWithTimeout;
     private final ObjectMapper objectMapper;
     
-    private final Map<String, String> licenseCache = new ConcurrentHashMap<>();
+    private final LicenseCacheService licenseCacheService;
+    
+    private final ExecutorService resolutionExecutor;
+    
+    // 所有扫描共享的许可证解析并发上限，避免同时扫描多个服务时压垮各包管理仓库
+    private final Semaphore resolutionPermits;
+    
+    /**
+     * 单个依赖从提交解析起（含排队等待并发许可）的最长等待时间，超时的依赖先记为 Unknown，保存后在后台重试
+     */
+    @Value("${license.resolution.deadline-ms:15000}")
+    private long resolutionDeadlineMs;
+    
+    // 许可证缓存的来源层级
+    private static final String SOURCE_FILE = "file";
+    private static final String SOURCE_REGISTRY = "registry";
+    private static final String SOURCE_DEPSDEV = "depsdev";
     
     private static final List<String> APPROVED_LICENSES = List.of(
         "MIT", "Apache-2.0", "Apache 2.0", "BSD-2-Clause", "BSD-3-Clause",
@@ -52,18 +77,175 @@ public class LicenseDetector {
         LICENSE_PATTERNS.put("Unlicense", Pattern.compile("This is free and unencumbered software released into the public domain", Pattern.CASE_INSENSITIVE));
     }
 
-    public LicenseDetector(LicenseRuleMapper licenseRuleMapper) {
-        this.licenseRuleMapper = licenseRuleMapper;
-        this.restTemplate = new RestTemplate();
+    public LicenseDetector(LicenseRuleService licenseRuleService,
+                           LicenseCacheService licenseCacheService,
+                           @Value("${license.builtin-rules.location:classpath:license/builtin-rules.json}") Resource builtinRules,
+                           @Qualifier("licenseResolutionExecutor") ExecutorService resolutionExecutor,
+                           @Value("${license.resolution.max-concurrency:16}") int maxConcurrency,
+                           @Qualifier("registryRestTemplate") RestTemplate restTemplate) {
+        this.licenseRuleService = licenseRuleService;
+        this.licenseCacheService = licenseCacheService;
+        this.resolutionExecutor = resolutionExecutor;
+        this.resolutionPermits = new Semaphore(Math.max(1, maxConcurrency), true);
+        this.builtinMatcher = loadBuiltinRules(builtinRules);
+        this.restTemplate = restTemplate;
         this.objectMapper = new ObjectMapper();
-        
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(5000);
-        factory.setReadTimeout(10000);
-        this.restTemplateWithTimeout = new RestTemplate(factory);
+    }
+    
+    private static BuiltinLicenseMatcher loadBuiltinRules(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            BuiltinLicenseMatcher matcher = BuiltinLicenseMatcher.load(in);
+            logger.info("Loaded {} built-in license rules from {}", matcher.getRuleCount(), resource.getDescription());
+            return matcher;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load built-in license rules from " + resource.getDescription(), e);
+        }
     }
     
     public void detectLicense(Dependency dependency, String projectPath) {
+        apply(dependency, resolve(dependency, projectPath));
+    }
+    
+    /**
+     * 使用已知的许可证（如全局依赖坐标中保存的结果），按当前规则计算许可证状态
+     */
+    public void applyLicense(Dependency dependency, String license) {
+        apply(dependency, new Resolution(license, "coordinate"));
+    }
+    
+    /**
+     * 并发检测一批依赖的许可证
+     * 内置规则命中的依赖直接在当前线程完成，其余依赖在全局并发上限内并行解析，
+     * 每个依赖从提交起（含排队等待许可）最多等待 deadline-ms
+     *
+     * @return 超时未完成的依赖，已标记为 Unknown；调用方保存后可交给 {@link #retryInBackground} 重试
+     */
+    public List<Dependency> detectLicenses(List<Dependency> dependencies, String projectPath) {
+        List<Dependency> pending = new ArrayList<>();
+        List<CompletableFuture<Resolution>> futures = new ArrayList<>();
+        
+        for (Dependency dep : dependencies) {
+            String builtin = detectFromBuiltInRules(dep.getName(), dep.getType());
+            if (builtin != null) {
+                apply(dep, new Resolution(builtin, "builtin"));
+                continue;
+            }
+            pending.add(dep);
+            futures.add(submit(dep, projectPath));
+        }
+        
+        List<Dependency> timedOut = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            Dependency dep = pending.get(i);
+            Resolution resolution = futures.get(i).join();
+            if (resolution == null) {
+                apply(dep, new Resolution("Unknown", "timeout"));
+                timedOut.add(dep);
+            } else {
+                apply(dep, resolution);
+            }
+        }
+        
+        if (!timedOut.isEmpty()) {
+            logger.warn("License resolution timed out for {} of {} dependencies", timedOut.size(), dependencies.size());
+        }
+        return timedOut;
+    }
+    
+    /**
+     * 在后台重新解析超时的依赖，不设截止时间但仍受全局并发上限约束
+     * 超时的请求通常仍在进行并会写入缓存，因此延迟一个 deadline 再重试以复用其结果
+     * 后台线程只修改依赖的副本，调用方持有的 saved 对象不会被并发修改
+     *
+     * @param timedOut {@link #detectLicenses} 返回的依赖
+     * @param saved 保存后带ID的依赖，按 类型/名称/版本 与超时依赖对应
+     * @param onResolved 解析出许可证后以副本回调（带ID），用于按ID持久化
+     */
+    public void retryInBackground(List<Dependency> timedOut, List<Dependency> saved, String projectPath,
+                                  Consumer<Dependency> onResolved) {
+        if (timedOut.isEmpty()) {
+            return;
+        }
+        
+        Set<String> keys = new HashSet<>();
+        for (Dependency dep : timedOut) {
+            keys.add(coordinate(dep));
+        }
+        
+        Executor delayed = CompletableFuture.delayedExecutor(resolutionDeadlineMs, TimeUnit.MILLISECONDS, resolutionExecutor);
+        int scheduled = 0;
+        for (Dependency dep : saved) {
+            if (dep.getId() == null || !"Unknown".equals(dep.getLicense()) || !keys.contains(coordinate(dep))) {
+                continue;
+            }
+            scheduled++;
+            Dependency copy = copyOf(dep);
+            delayed.execute(() -> {
+                if (!acquirePermit()) {
+                    return;
+                }
+                try {
+                    Resolution resolution = resolve(copy, projectPath);
+                    if (!"default".equals(resolution.source())) {
+                        apply(copy, resolution);
+                        onResolved.accept(copy);
+                    }
+                } catch (Exception e) {
+                    logger.warn("Background license resolution failed for {}: {}", copy.getName(), e.getMessage());
+                } finally {
+                    resolutionPermits.release();
+                }
+            });
+        }
+        logger.info("Scheduled background license resolution for {} dependencies", scheduled);
+    }
+    
+    private CompletableFuture<Resolution> submit(Dependency dep, String projectPath) {
+        // 截止时间从提交开始计算，排队等待许可也计入；超时仍未拿到许可的不再解析，交给后台重试，
+        // 已开始的请求超时后继续执行，结果仍会写入缓存
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(resolutionDeadlineMs);
+        CompletableFuture<Resolution> future = new CompletableFuture<Resolution>()
+            .completeOnTimeout(null, resolutionDeadlineMs, TimeUnit.MILLISECONDS);
+        resolutionExecutor.execute(() -> {
+            if (!acquirePermit(deadline - System.nanoTime())) {
+                future.complete(null);
+                return;
+            }
+            try {
+                future.complete(resolve(dep, projectPath));
+            } catch (Exception e) {
+                logger.warn("License resolution failed for {}: {}", dep.getName(), e.getMessage());
+                future.complete(new Resolution("Unknown", "default"));
+            } finally {
+                resolutionPermits.release();
+            }
+        });
+        return future;
+    }
+    
+    private boolean acquirePermit() {
+        try {
+            resolutionPermits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * 在剩余时间内获取许可，超时或被中断时返回 false
+     */
+    private boolean acquirePermit(long timeoutNanos) {
+        try {
+            return resolutionPermits.tryAcquire(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private Resolution resolve(Dependency dependency, String projectPath) {
         String license = null;
         String source = null;
         
@@ -97,10 +279,40 @@ public class LicenseDetector {
             source = "default";
         }
         
-        dependency.setLicense(license);
-        dependency.setLicenseStatus(determineLicenseStatus(license));
+        return new Resolution(license, source);
+    }
+    
+    private void apply(Dependency dependency, Resolution resolution) {
+        dependency.setLicense(resolution.license());
+        dependency.setLicenseStatus(determineLicenseStatus(resolution.license()));
         
-        logger.debug("License for {}: {} (source: {})", dependency.getName(), license, source);
+        logger.debug("License for {}: {} (source: {})", dependency.getName(), resolution.license(), resolution.source());
+    }
+    
+    /**
+     * 后台重试使用的副本，只包含解析和按ID更新需要的持久化字段
+     */
+    private static Dependency copyOf(Dependency dep) {
+        Dependency copy = new Dependency();
+        copy.setId(dep.getId());
+        copy.setServiceId(dep.getServiceId());
+        copy.setName(dep.getName());
+        copy.setVersion(dep.getVersion());
+        copy.setGroupId(dep.getGroupId());
+        copy.setArtifactId(dep.getArtifactId());
+        copy.setType(dep.getType());
+        copy.setScope(dep.getScope());
+        copy.setPurl(dep.getPurl());
+        copy.setFilePath(dep.getFilePath());
+        copy.setCoordinateId(dep.getCoordinateId());
+        return copy;
+    }
+    
+    private static String coordinate(Dependency dep) {
+        return dep.getType() + "|" + dep.getName() + "|" + dep.getVersion();
+    }
+    
+    private record Resolution(String license, String source) {
     }
     
     private String detectFromFile(Dependency dependency, String projectPath) {
@@ -108,13 +320,16 @@ public class LicenseDetector {
             return null;
         }
         
-        String cacheKey = "file:" + dependency.getName();
-        if (licenseCache.containsKey(cacheKey)) {
-            return licenseCache.get(cacheKey);
+        // 未找到的结果取决于项目目录内容，只缓存找到的许可证
+        String cached = licenseCacheService.get(SOURCE_FILE, dependency.getType(), dependency.getName(), dependency.getVersion());
+        if (cached != null && !cached.isEmpty()) {
+            return cached;
         }
         
         String license = findLicenseInDependencyDir(dependency, projectPath);
-        licenseCache.put(cacheKey, license != null ? license : "");
+        if (license != null) {
+            licenseCacheService.put(SOURCE_FILE, dependency.getType(), dependency.getName(), dependency.getVersion(), license);
+        }
         
         return license;
     }
@@ -188,9 +403,9 @@ public class LicenseDetector {
         String type = dependency.getType();
         if (type == null) return null;
         
-        String cacheKey = "registry:" + type + ":" + dependency.getName();
-        if (licenseCache.containsKey(cacheKey)) {
-            return licenseCache.get(cacheKey);
+        String cached = licenseCacheService.get(SOURCE_REGISTRY, type, dependency.getName(), dependency.getVersion());
+        if (cached != null) {
+            return cached.isEmpty() ? null : cached;
         }
         
         String license = null;
@@ -210,15 +425,21 @@ public class LicenseDetector {
                     break;
             }
         } catch (Exception e) {
+            // 网络错误、5xx、429 等临时失败不写缓存，避免把"未知"缓存到过期
             logger.debug("Failed to detect license from registry for {}: {}", 
                         dependency.getName(), e.getMessage());
+            return null;
         }
         
-        licenseCache.put(cacheKey, license != null ? license : "");
+        // 找到许可证或确认没有（404、响应中无许可证字段）时才缓存
+        licenseCacheService.put(SOURCE_REGISTRY, type, dependency.getName(), dependency.getVersion(), license);
         return license;
     }
     
-    private String detectFromNpmRegistry(String packageName) {
+    /**
+     * 包不存在时返回 null，查询失败时抛出异常（下同）
+     */
+    private String detectFromNpmRegistry(String packageName) throws IOException {
         try {
             String url = "https://registry.npmjs.org/" + packageName;
             String response = restTemplate.getForObject(url, String.class);
@@ -233,13 +454,13 @@ public class LicenseDetector {
                     return normalizeLicense(license);
                 }
             }
-        } catch (Exception e) {
-            logger.debug("NPM registry lookup failed for {}: {}", packageName, e.getMessage());
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("NPM package not found: {}", packageName);
         }
         return null;
     }
     
-    private String detectFromPyPIRegistry(String packageName) {
+    private String detectFromPyPIRegistry(String packageName) throws IOException {
         try {
             String url = "https://pypi.org/pypi/" + packageName + "/json";
             String response = restTemplate.getForObject(url, String.class);
@@ -254,8 +475,8 @@ public class LicenseDetector {
                     }
                 }
             }
-        } catch (Exception e) {
-            logger.debug("PyPI registry lookup failed for {}: {}", packageName, e.getMessage());
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("PyPI package not found: {}", packageName);
         }
         return null;
     }
@@ -278,8 +499,8 @@ public class LicenseDetector {
                     return fetchMavenLicense(groupId, artifactId, latestVersion);
                 }
             }
-        } catch (Exception e) {
-            logger.debug("Maven Central lookup failed for {}:{}: {}", groupId, artifactId, e.getMessage());
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("Maven artifact not found: {}:{}", groupId, artifactId);
         }
         return null;
     }
@@ -288,7 +509,7 @@ public class LicenseDetector {
         try {
             String groupPath = groupId.replace('.', '/');
             String url = "https://repo1.maven.org/maven2/" + groupPath + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + ".pom";
-            String response = restTemplateWithTimeout.getForObject(url, String.class);
+            String response = restTemplate.getForObject(url, String.class);
             
             if (response != null) {
                 Pattern[] licensePatterns = {
@@ -319,8 +540,8 @@ public class LicenseDetector {
                     }
                 }
             }
-        } catch (Exception e) {
-            logger.debug("Failed to fetch Maven POM for {}:{}:{}: {}", groupId, artifactId, version, e.getMessage());
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("Maven POM not found for {}:{}:{}", groupId, artifactId, version);
         }
         return null;
     }
@@ -348,15 +569,15 @@ public class LicenseDetector {
             packageName = dependency.getName();
         }
         
-        String cacheKey = "depsdev:" + ecosystem + ":" + packageName;
-        if (licenseCache.containsKey(cacheKey)) {
-            return licenseCache.get(cacheKey);
+        String cached = licenseCacheService.get(SOURCE_DEPSDEV, type, packageName, dependency.getVersion());
+        if (cached != null) {
+            return cached.isEmpty() ? null : cached;
         }
         
         try {
             String url = "https://api.deps.dev/v3/systems/" + ecosystem + "/packages/" + 
                         java.net.URLEncoder.encode(packageName, "UTF-8");
-            String response = restTemplateWithTimeout.getForObject(url, String.class);
+            String response = restTemplate.getForObject(url, String.class);
             
             if (response != null) {
                 JsonNode root = objectMapper.readTree(response);
@@ -364,489 +585,41 @@ public class LicenseDetector {
                 if (version.has("licenses")) {
                     JsonNode licenses = version.get("licenses");
                     if (licenses.isArray() && licenses.size() > 0) {
-                        String license = licenses.get(0).asText();
-                        licenseCache.put(cacheKey, normalizeLicense(license));
-                        return normalizeLicense(license);
+                        String license = normalizeLicense(licenses.get(0).asText());
+                        licenseCacheService.put(SOURCE_DEPSDEV, type, packageName, dependency.getVersion(), license);
+                        return license;
                     }
                 }
             }
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.debug("Deps.dev package not found: {}", packageName);
         } catch (Exception e) {
+            // 临时失败不写缓存
             logger.debug("Deps.dev lookup failed for {}: {}", packageName, e.getMessage());
+            return null;
         }
         
-        licenseCache.put(cacheKey, "");
+        // 确认没有许可证信息（404 或响应中无许可证字段）
+        licenseCacheService.put(SOURCE_DEPSDEV, type, packageName, dependency.getVersion(), null);
         return null;
     }
     
     private String detectFromRules(Dependency dependency) {
-        List<LicenseRule> rules = licenseRuleMapper.findAll();
         String packageName = dependency.getName();
         
-        for (LicenseRule rule : rules) {
-            String pattern = rule.getPackagePattern();
-            if (pattern.endsWith("*")) {
-                String prefix = pattern.substring(0, pattern.length() - 1);
-                if (packageName.startsWith(prefix)) {
-                    return rule.getLicenseType();
-                }
-            } else if (pattern.startsWith("*")) {
-                String suffix = pattern.substring(1);
-                if (packageName.endsWith(suffix)) {
-                    return rule.getLicenseType();
-                }
-            } else if (packageName.equals(pattern)) {
-                return rule.getLicenseType();
-            }
+        String license = licenseRuleService.match(packageName);
+        if (license != null) {
+            return license;
         }
         
         return detectFromBuiltInRules(packageName, dependency.getType());
     }
     
+    /**
+     * 内置知识库匹配，规则见 license.builtin-rules.location
+     */
     private String detectFromBuiltInRules(String packageName, String type) {
-        if (packageName == null) return null;
-        
-        String lowerName = packageName.toLowerCase();
-        String fullName = packageName;
-        
-        if (lowerName.startsWith("org.springframework") || lowerName.contains("springframework") ||
-            lowerName.contains("spring-boot") || lowerName.contains("springcloud") ||
-            lowerName.contains("spring-security") || lowerName.contains("spring-data")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.startsWith("org.apache.commons") || lowerName.startsWith("commons-") ||
-            lowerName.contains("apache-http") || lowerName.startsWith("org.apache.http")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.startsWith("com.fasterxml.jackson") || lowerName.contains("jackson-")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("slf4j") || lowerName.startsWith("org.slf4j")) {
-            return "MIT";
-        }
-        
-        if (lowerName.contains("log4j") || lowerName.startsWith("org.apache.logging.log4j")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("logback") || lowerName.startsWith("ch.qos.logback")) {
-            return "EPL-1.0";
-        }
-        
-        if (lowerName.contains("junit") || lowerName.startsWith("org.junit")) {
-            return "EPL-2.0";
-        }
-        
-        if (lowerName.contains("mockito") || lowerName.startsWith("org.mockito")) {
-            return "MIT";
-        }
-        
-        if (lowerName.contains("hibernate") || lowerName.startsWith("org.hibernate")) {
-            return "LGPL-2.1";
-        }
-        
-        if (lowerName.contains("tomcat") || lowerName.startsWith("org.apache.tomcat")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("netty") || lowerName.startsWith("io.netty")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("guava") || lowerName.startsWith("com.google.guava")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("gson") || lowerName.startsWith("com.google.gson") ||
-            lowerName.contains("google-gson")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("okhttp") || lowerName.contains("okio") || 
-            lowerName.startsWith("com.squareup.okhttp") || lowerName.startsWith("com.squareup.okio")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("retrofit") || lowerName.startsWith("com.squareup.retrofit")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("dagger") || lowerName.startsWith("com.google.dagger") ||
-            lowerName.startsWith("dagger")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("jjwt") || lowerName.startsWith("io.jsonwebtoken")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("mybatis") || lowerName.contains("mybatis-plus") ||
-            lowerName.startsWith("org.mybatis") || lowerName.startsWith("com.baomidou")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("druid") || lowerName.startsWith("com.alibaba.druid")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("hikari") || lowerName.startsWith("com.zaxxer.hikari")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("flyway") || lowerName.startsWith("org.flywaydb")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("liquibase") || lowerName.startsWith("org.liquibase")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("quartz") || lowerName.startsWith("org.quartz-scheduler")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("swagger") || lowerName.contains("openapi") ||
-            lowerName.startsWith("io.swagger") || lowerName.startsWith("org.springdoc")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("lombok") || lowerName.startsWith("org.projectlombok")) {
-            return "MIT";
-        }
-        
-        if (lowerName.contains("mapstruct") || lowerName.startsWith("org.mapstruct")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("poi") || lowerName.startsWith("org.apache.poi")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("pdfbox") || lowerName.startsWith("org.apache.pdfbox")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("tika") || lowerName.startsWith("org.apache.tika")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("zookeeper") || lowerName.startsWith("org.apache.zookeeper")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("kafka") || lowerName.startsWith("org.apache.kafka")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("rocketmq") || lowerName.startsWith("org.apache.rocketmq")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("dubbo") || lowerName.startsWith("org.apache.dubbo")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("curator") || lowerName.startsWith("org.apache.curator")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("thrift") || lowerName.startsWith("org.apache.thrift")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("grpc") || lowerName.startsWith("io.grpc")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("protobuf") || lowerName.startsWith("com.google.protobuf")) {
-            return "BSD-3-Clause";
-        }
-        
-        if (lowerName.contains("snappy") || lowerName.startsWith("org.xerial.snappy")) {
-            return "BSD-3-Clause";
-        }
-        
-        if (lowerName.contains("lz4") || lowerName.startsWith("org.lz4")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("jna") || lowerName.startsWith("net.java.dev.jna")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("hadoop") || lowerName.startsWith("org.apache.hadoop")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("spark") || lowerName.startsWith("org.apache.spark")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("flink") || lowerName.startsWith("org.apache.flink")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("elasticsearch") || lowerName.startsWith("org.elasticsearch")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("lucene") || lowerName.startsWith("org.apache.lucene")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("solr") || lowerName.startsWith("org.apache.solr")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("jedis") || lowerName.startsWith("redis.clients")) {
-            return "MIT";
-        }
-        
-        if (lowerName.contains("lettuce") || lowerName.startsWith("io.lettuce")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("mongo") || lowerName.startsWith("org.mongodb")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("postgresql") || lowerName.startsWith("org.postgresql")) {
-            return "PostgreSQL";
-        }
-        
-        if (lowerName.contains("mysql") || lowerName.startsWith("mysql") || 
-            lowerName.startsWith("com.mysql")) {
-            return "GPL-2.0";
-        }
-        
-        if (lowerName.contains("mariadb") || lowerName.startsWith("org.mariadb.jdbc")) {
-            return "LGPL-2.1";
-        }
-        
-        if (lowerName.contains("h2") || lowerName.startsWith("com.h2database")) {
-            return "MPL-2.0";
-        }
-        
-        if (lowerName.contains("hsqldb") || lowerName.startsWith("org.hsqldb")) {
-            return "BSD-3-Clause";
-        }
-        
-        if (lowerName.contains("derby") || lowerName.startsWith("org.apache.derby")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("oshi") || lowerName.startsWith("com.github.oshi")) {
-            return "MIT";
-        }
-        
-        if (lowerName.contains("javassist") || lowerName.startsWith("org.javassist")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("cglib") || lowerName.startsWith("cglib")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("asm") || lowerName.startsWith("org.ow2.asm")) {
-            return "BSD-3-Clause";
-        }
-        
-        if (lowerName.contains("bytebuddy") || lowerName.contains("byte-buddy") ||
-            lowerName.startsWith("net.bytebuddy")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("reflections") || lowerName.startsWith("org.reflections")) {
-            return "WTFPL";
-        }
-        
-        if (lowerName.contains("joda") || lowerName.startsWith("joda-time") ||
-            lowerName.startsWith("org.joda")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("icu4j") || lowerName.startsWith("com.ibm.icu")) {
-            return "ICU";
-        }
-        
-        if (lowerName.contains("bouncycastle") || lowerName.contains("bcprov") ||
-            lowerName.contains("bcpkix") || lowerName.startsWith("org.bouncycastle")) {
-            return "MIT";
-        }
-        
-        if (lowerName.contains("selenium") || lowerName.startsWith("org.seleniumhq.selenium")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("hutool") || lowerName.startsWith("cn.hutool")) {
-            return "MulanPSL-2.0";
-        }
-        
-        if (lowerName.contains("fastjson") || lowerName.startsWith("com.alibaba.fastjson")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("druid") || lowerName.startsWith("com.alibaba.druid")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("dubbo") || lowerName.startsWith("com.alibaba.dubbo") ||
-            lowerName.startsWith("org.apache.dubbo")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("nacos") || lowerName.startsWith("com.alibaba.nacos") ||
-            lowerName.startsWith("io.nacos")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("sentinel") || lowerName.startsWith("com.alibaba.csp")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("seata") || lowerName.startsWith("io.seata")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("xxl-job") || lowerName.startsWith("com.xuxueli")) {
-            return "GPL-3.0";
-        }
-        
-        if (lowerName.contains("knife4j") || lowerName.startsWith("com.github.xiaoymin")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("sa-token") || lowerName.startsWith("cn.dev33")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("easyexcel") || lowerName.startsWith("com.alibaba.easyexcel")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("transmittable-thread-local") || 
-            lowerName.startsWith("com.alibaba.ttl")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("rxjava") || lowerName.startsWith("io.reactivex")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("reactor") || lowerName.startsWith("io.projectreactor") ||
-            lowerName.startsWith("reactor-core") || lowerName.startsWith("reactor-netty")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("feign") || lowerName.startsWith("io.github.openfeign")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("ribbon") || lowerName.startsWith("com.netflix.ribbon")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("eureka") || lowerName.startsWith("com.netflix.eureka")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("hystrix") || lowerName.startsWith("com.netflix.hystrix")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("zuul") || lowerName.startsWith("com.netflix.zuul")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("archaius") || lowerName.startsWith("com.netflix.archaius")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("resilience4j") || lowerName.startsWith("io.github.resilience4j")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("caffeine") || lowerName.startsWith("com.github.benmanes.caffeine")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("disruptor") || lowerName.startsWith("com.lmax.disruptor")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("jool") || lowerName.startsWith("org.jooq.jool")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("joor") || lowerName.startsWith("org.jooq.joor")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("vavr") || lowerName.startsWith("io.vavr")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("assertj") || lowerName.startsWith("org.assertj")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("hamcrest") || lowerName.startsWith("org.hamcrest")) {
-            return "BSD-3-Clause";
-        }
-        
-        if (lowerName.contains("json-path") || lowerName.contains("jsonpath") ||
-            lowerName.startsWith("com.jayway.jsonpath")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("jsonassert") || lowerName.startsWith("org.skyscreamer")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("xmlunit") || lowerName.startsWith("org.xmlunit")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("awaitility") || lowerName.startsWith("org.awaitility")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("testcontainers") || lowerName.startsWith("org.testcontainers")) {
-            return "MIT";
-        }
-        
-        if (lowerName.contains("wiremock") || lowerName.startsWith("com.github.tomakehurst") ||
-            lowerName.startsWith("org.wiremock")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("mockserver") || lowerName.startsWith("org.mock-server")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("okhttptest") || lowerName.startsWith("com.squareup.okhttp3")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("classgraph") || lowerName.startsWith("io.github.classgraph")) {
-            return "MIT";
-        }
-        
-        if (lowerName.contains("jcommander") || lowerName.startsWith("com.beust.jcommander")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("picocli") || lowerName.startsWith("info.picocli")) {
-            return "Apache-2.0";
-        }
-        
-        if (lowerName.contains("commons-cli") || lowerName.startsWith("commons-cli")) {
-            return "Apache-2.0";
-        }
-        
-        return null;
+        return builtinMatcher.match(packageName);
     }
     
     private String normalizeLicense(String license) {
@@ -916,6 +689,10 @@ public class LicenseDetector {
     }
     
     public void clearCache() {
-        licenseCache.clear();
+        licenseCacheService.clearAll();
+    }
+    
+    public Map<String, Object> getCacheStats() {
+        return licenseCacheService.getStats();
     }
 }
@@ -0,0 +1,70 @@
+package com.jettech.code.service;
+
+import com.jettech.code.entity.LicenseRule;
+import com.jettech.code.license.LicenseRuleIndex;
+import com.jettech.code.mapper.LicenseRuleMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * license_rule 表的内存索引
+ * 启动时编译一次，之后定期比对表指纹，规则有变化时重新编译；匹配过程不访问数据库
+ */
+@Service
+public class LicenseRuleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LicenseRuleService.class);
+
+    private final LicenseRuleMapper licenseRuleMapper;
+
+    private volatile LicenseRuleIndex index = LicenseRuleIndex.compile(List.of());
+    private volatile String fingerprint;
+
+    public LicenseRuleService(LicenseRuleMapper licenseRuleMapper) {
+        this.licenseRuleMapper = licenseRuleMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("Failed to load license rules: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定期检查 license_rule 是否变化（条数、最大ID及内容校验和），变化时重新编译
+     */
+    @Scheduled(initialDelayString = "${license.rules.refresh-interval-ms:60000}",
+               fixedDelayString = "${license.rules.refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        try {
+            String current = licenseRuleMapper.selectFingerprint();
+            if (!Objects.equals(current, fingerprint)) {
+                logger.info("License rules changed, reloading");
+                reload();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to check license rules for changes: {}", e.getMessage());
+        }
+    }
+
+    public synchronized void reload() {
+        String current = licenseRuleMapper.selectFingerprint();
+        List<LicenseRule> rules = licenseRuleMapper.findAll();
+        index = LicenseRuleIndex.compile(rules);
+        fingerprint = current;
+        logger.info("Compiled {} license rules", index.getRuleCount());
+    }
+
+    public String match(String packageName) {
+        return index.match(packageName);
+    }
+}
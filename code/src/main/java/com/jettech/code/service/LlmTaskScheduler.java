@@ -0,0 +1,197 @@
+package com.jettech.code.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LLM 任务调度器（所有扫描共享）
+ * 全局许可数限制同时进行的 OpenCode 会话；有空闲许可时，从 在途任务数/优先级 最小的扫描中取下一个任务，
+ * 多个扫描按优先级比例分享许可，单个扫描可用满全部许可；同一扫描内按任务优先级（数值小的先执行）排队
+ */
+@Service
+public class LlmTaskScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmTaskScheduler.class);
+
+    /**
+     * 批量扫描的默认优先级
+     */
+    public static final int PRIORITY_BATCH = 1;
+
+    /**
+     * 单服务扫描（用户在页面上发起）的默认优先级，积压时获得批量扫描 4 倍的许可
+     */
+    public static final int PRIORITY_INTERACTIVE = 4;
+
+    public static final int MAX_PRIORITY = 10;
+
+    private final ExecutorService executor;
+
+    /**
+     * 全局并发上限，按 OpenCode 后端能承受的会话数配置
+     */
+    private final int maxConcurrency;
+
+    // 扫描ID -> 队列，按首次提交顺序排列，相同份额时先提交的扫描优先
+    private final Map<Long, ScanQueue> queues = new LinkedHashMap<>();
+
+    private int inFlight;
+    private long sequence;
+
+    private long submitted;
+    private long completed;
+    private long failed;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    public LlmTaskScheduler(@Qualifier("llmTaskExecutor") ExecutorService executor,
+                            @Value("${opencode.scheduler.max-concurrency:5}") int maxConcurrency) {
+        this.executor = executor;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        logger.info("LLM task scheduler initialized: maxConcurrency={}", this.maxConcurrency);
+    }
+
+    /**
+     * 提交任务，任务在获得许可后在调度器的执行器上运行
+     * @param scanPriority 扫描优先级（1-10），同一扫描以首次提交时为准
+     * @param taskPriority 扫描内的顺序，数值小的先执行
+     * @return 任务结束（正常或异常）时完成
+     */
+    public CompletableFuture<Void> submit(Long scanId, int scanPriority, int taskPriority, Runnable task) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this) {
+            ScanQueue queue = queues.computeIfAbsent(scanId,
+                id -> new ScanQueue(id, Math.max(1, Math.min(MAX_PRIORITY, scanPriority))));
+            queue.pending.add(new Pending(task, taskPriority, sequence++, System.nanoTime(), future));
+            submitted++;
+            dispatch();
+        }
+        return future;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        int queued = 0;
+        List<Map<String, Object>> scans = new ArrayList<>();
+        for (ScanQueue queue : queues.values()) {
+            queued += queue.pending.size();
+            Map<String, Object> scan = new LinkedHashMap<>();
+            scan.put("scanId", queue.scanId);
+            scan.put("priority", queue.priority);
+            scan.put("queued", queue.pending.size());
+            scan.put("inFlight", queue.inFlight);
+            scan.put("started", queue.started);
+            scan.put("avgQueueWaitMs", queue.started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(queue.totalWaitNanos / queue.started));
+            scans.add(scan);
+        }
+
+        long started = completed + failed + inFlight;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("inFlight", inFlight);
+        stats.put("queued", queued);
+        stats.put("submitted", submitted);
+        stats.put("completed", completed);
+        stats.put("failed", failed);
+        stats.put("avgQueueWaitMs", started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / started));
+        stats.put("maxQueueWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        stats.put("scans", scans);
+        return stats;
+    }
+
+    /**
+     * 在持有锁时调用：把空闲许可分配给份额最低的扫描
+     */
+    private void dispatch() {
+        while (inFlight < maxConcurrency) {
+            ScanQueue next = null;
+            for (ScanQueue queue : queues.values()) {
+                // 比较 inFlight / priority，交叉相乘避免除法
+                if (!queue.pending.isEmpty()
+                        && (next == null || (long) queue.inFlight * next.priority < (long) next.inFlight * queue.priority)) {
+                    next = queue;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+
+            Pending pending = next.pending.poll();
+            long waitNanos = System.nanoTime() - pending.enqueuedAt();
+            next.inFlight++;
+            next.started++;
+            next.totalWaitNanos += waitNanos;
+            inFlight++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+
+            ScanQueue queue = next;
+            try {
+                executor.execute(() -> run(queue, pending));
+            } catch (RuntimeException e) {
+                release(queue, false);
+                pending.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void run(ScanQueue queue, Pending pending) {
+        boolean success = false;
+        try {
+            pending.task().run();
+            success = true;
+            pending.future().complete(null);
+        } catch (Throwable e) {
+            logger.warn("LLM task of scan {} failed: {}", queue.scanId, e.getMessage());
+            pending.future().completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                release(queue, success);
+                dispatch();
+            }
+        }
+    }
+
+    private void release(ScanQueue queue, boolean success) {
+        queue.inFlight--;
+        inFlight--;
+        if (success) {
+            completed++;
+        } else {
+            failed++;
+        }
+        if (queue.inFlight == 0 && queue.pending.isEmpty()) {
+            queues.remove(queue.scanId);
+        }
+    }
+
+    private static final class ScanQueue {
+        final Long scanId;
+        final int priority;
+        final PriorityQueue<Pending> pending = new PriorityQueue<>(
+            Comparator.comparingInt(Pending::taskPriority).thenComparingLong(Pending::sequence));
+        int inFlight;
+        long started;
+        long totalWaitNanos;
+
+        ScanQueue(Long scanId, int priority) {
+            this.scanId = scanId;
+            this.priority = priority;
+        }
+    }
+
+    private record Pending(Runnable task, int taskPriority, long sequence, long enqueuedAt, CompletableFuture<Void> future) {
+    }
+}
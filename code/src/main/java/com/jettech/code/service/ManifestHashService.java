@@ -0,0 +1,114 @@
+package com.jettech.code.service;
+
+import com.jettech.code.entity.ServiceManifest;
+import com.jettech.code.mapper.ServiceManifestMapper;
+import com.jettech.code.service.DependencyDiscoveryService.ManifestProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 依赖清单文件指纹
+ * 记录每个服务上次成功扫描时清单文件的内容哈希，清单未变化时扫描可跳过解析
+ */
+@Service
+public class ManifestHashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManifestHashService.class);
+
+    private final ServiceManifestMapper serviceManifestMapper;
+
+    public ManifestHashService(ServiceManifestMapper serviceManifestMapper) {
+        this.serviceManifestMapper = serviceManifestMapper;
+    }
+
+    /**
+     * 计算服务中各项目的解析器会读取的清单文件的哈希
+     * @param projects {@link DependencyDiscoveryService#discover} 发现的项目
+     * @return 相对服务根目录的路径 -> SHA-256，按路径排序
+     */
+    public Map<String, String> computeHashes(File serviceRoot, List<ManifestProject> projects) throws IOException {
+        Path root = serviceRoot.toPath().toAbsolutePath().normalize();
+        Map<String, String> hashes = new TreeMap<>();
+        for (ManifestProject project : projects) {
+            for (File file : project.parser().getManifestFiles(project.directory())) {
+                String relativePath = root.relativize(file.toPath().toAbsolutePath().normalize()).toString().replace('\\', '/');
+                hashes.computeIfAbsent(relativePath, path -> sha256(file));
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * 清单文件集合及内容与上次成功扫描完全一致
+     */
+    public boolean isUnchanged(Long serviceId, Map<String, String> hashes) {
+        List<ServiceManifest> previous = serviceManifestMapper.findByServiceId(serviceId);
+        if (previous.isEmpty() || previous.size() != hashes.size()) {
+            return false;
+        }
+
+        Map<String, String> previousHashes = new HashMap<>();
+        for (ServiceManifest manifest : previous) {
+            previousHashes.put(manifest.getFilePath(), manifest.getContentHash());
+        }
+        return previousHashes.equals(hashes);
+    }
+
+    /**
+     * 按 (服务, 文件路径) 覆盖写入本次的哈希，并删除已不存在的清单文件
+     */
+    @Transactional
+    public void save(Long serviceId, Map<String, String> hashes) {
+        if (hashes.isEmpty()) {
+            serviceManifestMapper.deleteByServiceId(serviceId);
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ServiceManifest> manifests = new ArrayList<>(hashes.size());
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            manifests.add(new ServiceManifest(null, serviceId, entry.getKey(), entry.getValue(), now));
+        }
+        serviceManifestMapper.batchUpsert(manifests);
+        serviceManifestMapper.deleteByServiceIdExcept(serviceId, hashes.keySet());
+        logger.debug("Saved {} manifest hashes for service {}", manifests.size(), serviceId);
+    }
+
+    /**
+     * 依赖数据被其他途径重建或扫描不完整时调用，下次扫描将重新解析
+     */
+    public void clear(Long serviceId) {
+        serviceManifestMapper.deleteByServiceId(serviceId);
+    }
+
+    private static String sha256(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to hash manifest " + file.getPath(), e);
+        }
+    }
+}
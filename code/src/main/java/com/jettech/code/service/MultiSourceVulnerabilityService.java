@@ -1,13 +1,24 @@
 package com.jettech.code.service;
 
+import com.jettech.code.advisory.Advisory;
+import com.jettech.code.advisory.AdvisoryIndex;
+import com.jettech.code.dto.PackageCoordinate;
 import com.jettech.code.dto.VulnerabilityInfo;
 import com.jettech.code.provider.VulnerabilitySource;
+import com.jettech.code.util.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,53 +29,181 @@ public class MultiSourceVulnerabilityService {
     private final List<VulnerabilitySource> sources;
     private final VulnerabilityCacheService cacheService;
     
+    // 合并同一 包/生态 的并发查询，多个扫描重叠时只向上游发一次请求
+    private final SingleFlight<PackageCoordinate, AdvisoryIndex> inFlightQueries = new SingleFlight<>();
+    
+    // 数据源查询专用执行器及每个数据源的并发通道
+    private final ExecutorService queryExecutor;
+    private final Map<String, SourceLane> sourceLanes = new LinkedHashMap<>();
+    
     public MultiSourceVulnerabilityService(List<VulnerabilitySource> sources, 
-                                            VulnerabilityCacheService cacheService) {
+                                            VulnerabilityCacheService cacheService,
+                                            @Qualifier("vulnerabilityQueryExecutor") ExecutorService queryExecutor,
+                                            @Value("${vulnerability.sources.max-concurrency:4}") int maxConcurrencyPerSource) {
         this.sources = sources.stream()
             .sorted(Comparator.comparingInt(VulnerabilitySource::getPriority))
             .collect(Collectors.toList());
         this.cacheService = cacheService;
+        this.queryExecutor = queryExecutor;
+        for (VulnerabilitySource source : this.sources) {
+            sourceLanes.put(source.getName(), new SourceLane(Math.max(1, maxConcurrencyPerSource)));
+        }
     }
     
     public List<VulnerabilityInfo> queryAllSources(String packageName, String ecosystem, String version) {
-        List<VulnerabilityInfo> cachedResults = cacheService.get(packageName, ecosystem, version);
-        if (cachedResults != null) {
-            logger.info("Using cached vulnerabilities for {}@{} in {}", packageName, version, ecosystem);
-            return cachedResults;
+        AdvisoryIndex advisories = cacheService.get(packageName, ecosystem);
+        if (advisories != null) {
+            logger.info("Using cached advisories for {} in {}", packageName, ecosystem);
+        } else {
+            advisories = inFlightQueries.execute(packageKey(packageName, ecosystem),
+                () -> querySources(packageName, ecosystem));
         }
         
-        logger.info("Querying {} vulnerability sources for {}@{} in {}", sources.size(), packageName, version, ecosystem);
+        List<VulnerabilityInfo> results = evaluate(advisories, packageName, version);
+        logger.info("Total unique vulnerabilities found for {}@{}: {}", packageName, version, results.size());
+        return results;
+    }
+    
+    private AdvisoryIndex querySources(String packageName, String ecosystem) {
+        logger.info("Querying {} vulnerability sources for {} in {}", sources.size(), packageName, ecosystem);
         
-        List<CompletableFuture<List<VulnerabilityInfo>>> futures = sources.stream()
+        List<CompletableFuture<List<Advisory>>> futures = sources.stream()
             .map(source -> CompletableFuture.supplyAsync(() -> {
                 try {
-                    logger.debug("Querying {} for {}@{}", source.getName(), packageName, version);
-                    List<VulnerabilityInfo> results = source.query(packageName, ecosystem, version);
-                    logger.info("{} returned {} vulnerabilities for {}@{}", source.getName(), results.size(), packageName, version);
+                    logger.debug("Querying {} for {}", source.getName(), packageName);
+                    List<Advisory> results = sourceLanes.get(source.getName())
+                        .run(() -> source.queryAdvisories(packageName, ecosystem));
+                    logger.info("{} returned {} advisories for {}", source.getName(), results.size(), packageName);
                     return results;
                 } catch (Exception e) {
-                    logger.error("{} failed to query {}@{}: {}", source.getName(), packageName, version, e.getMessage());
-                    return Collections.<VulnerabilityInfo>emptyList();
+                    logger.error("{} failed to query {}: {}", source.getName(), packageName, e.getMessage());
+                    return null;
                 }
-            }))
+            }, queryExecutor))
             .collect(Collectors.toList());
         
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
         
-        List<VulnerabilityInfo> allVulnerabilities = futures.stream()
+        List<List<Advisory>> sourceResults = futures.stream()
             .map(CompletableFuture::join)
+            .collect(Collectors.toList());
+        
+        List<Advisory> allAdvisories = sourceResults.stream()
+            .filter(Objects::nonNull)
             .flatMap(List::stream)
             .collect(Collectors.toList());
         
-        List<VulnerabilityInfo> mergedResults = mergeAndDeduplicate(allVulnerabilities);
+        // 任一数据源失败时不缓存，避免把失败当作"无漏洞"写入负缓存
+        if (!sourceResults.contains(null)) {
+            return cacheService.save(packageName, ecosystem, allAdvisories);
+        }
+        return new AdvisoryIndex(ecosystem, allAdvisories, false);
+    }
+    
+    /**
+     * 批量查询：按包去重后先查缓存，仅对未命中的包调用各数据源的批量接口，
+     * 同一个包的多个版本共享一次查询，版本在本地匹配
+     */
+    public Map<PackageCoordinate, List<VulnerabilityInfo>> queryAllSourcesBatch(List<PackageCoordinate> packages) {
+        return queryAllSourcesBatch(packages, new HashSet<>());
+    }
+    
+    /**
+     * @param incomplete 输出参数，收集因部分数据源失败而结果可能不全的坐标
+     */
+    public Map<PackageCoordinate, List<VulnerabilityInfo>> queryAllSourcesBatch(List<PackageCoordinate> packages,
+                                                                               Set<PackageCoordinate> incomplete) {
+        Set<PackageCoordinate> coordinates = new LinkedHashSet<>(packages);
+        Map<PackageCoordinate, AdvisoryIndex> advisories = new HashMap<>();
+        Set<PackageCoordinate> misses = new LinkedHashSet<>();
         
-        if (!mergedResults.isEmpty()) {
-            cacheService.save(packageName, ecosystem, version, mergedResults);
+        for (PackageCoordinate pkg : coordinates) {
+            PackageCoordinate key = packageKey(pkg.getPackageName(), pkg.getEcosystem());
+            if (advisories.containsKey(key) || misses.contains(key)) {
+                continue;
+            }
+            AdvisoryIndex cached = cacheService.get(pkg.getPackageName(), pkg.getEcosystem());
+            if (cached != null) {
+                advisories.put(key, cached);
+            } else {
+                misses.add(key);
+            }
         }
         
-        logger.info("Total unique vulnerabilities found for {}@{}: {}", packageName, version, mergedResults.size());
+        logger.info("Batch querying vulnerabilities: {} coordinates, {} packages, {} cached, {} to query from {} sources",
+            coordinates.size(), advisories.size() + misses.size(), advisories.size(), misses.size(), sources.size());
         
-        return mergedResults;
+        if (!misses.isEmpty()) {
+            advisories.putAll(inFlightQueries.executeAll(misses, this::querySourcesBatch));
+        }
+        
+        Map<PackageCoordinate, List<VulnerabilityInfo>> results = new LinkedHashMap<>();
+        for (PackageCoordinate pkg : coordinates) {
+            AdvisoryIndex index = advisories.get(packageKey(pkg.getPackageName(), pkg.getEcosystem()));
+            if (index == null || !index.isComplete()) {
+                incomplete.add(pkg);
+            }
+            results.put(pkg, index != null
+                ? evaluate(index, pkg.getPackageName(), pkg.getVersion())
+                : Collections.emptyList());
+        }
+        
+        return results;
+    }
+    
+    private Map<PackageCoordinate, AdvisoryIndex> querySourcesBatch(List<PackageCoordinate> misses) {
+        Map<PackageCoordinate, AdvisoryIndex> results = new HashMap<>();
+        
+        List<CompletableFuture<Map<PackageCoordinate, List<Advisory>>>> futures = sources.stream()
+            .map(source -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    Map<PackageCoordinate, List<Advisory>> sourceResults = sourceLanes.get(source.getName())
+                        .run(() -> source.queryAdvisoriesBatch(misses));
+                    logger.info("{} returned advisories for {} packages", source.getName(), sourceResults.size());
+                    return sourceResults;
+                } catch (Exception e) {
+                    logger.error("{} failed to batch query {} packages: {}", source.getName(), misses.size(), e.getMessage());
+                    return Collections.<PackageCoordinate, List<Advisory>>emptyMap();
+                }
+            }, queryExecutor))
+            .collect(Collectors.toList());
+        
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        
+        List<Map<PackageCoordinate, List<Advisory>>> sourceResults = futures.stream()
+            .map(CompletableFuture::join)
+            .collect(Collectors.toList());
+        
+        for (PackageCoordinate pkg : misses) {
+            List<Advisory> allAdvisories = new ArrayList<>();
+            boolean complete = true;
+            for (Map<PackageCoordinate, List<Advisory>> sourceResult : sourceResults) {
+                List<Advisory> found = sourceResult.get(pkg);
+                if (found == null) {
+                    complete = false;
+                } else {
+                    allAdvisories.addAll(found);
+                }
+            }
+            
+            // 所有数据源都返回了结果才缓存（包括空结果）
+            results.put(pkg, complete
+                ? cacheService.save(pkg.getPackageName(), pkg.getEcosystem(), allAdvisories)
+                : new AdvisoryIndex(pkg.getEcosystem(), allAdvisories, false));
+        }
+        
+        return results;
+    }
+    
+    /**
+     * 在包级别公告上匹配具体版本，再按 CVE 合并多个数据源的结果
+     */
+    private List<VulnerabilityInfo> evaluate(AdvisoryIndex advisories, String packageName, String version) {
+        return mergeAndDeduplicate(advisories.evaluate(packageName, version));
+    }
+    
+    private static PackageCoordinate packageKey(String packageName, String ecosystem) {
+        return new PackageCoordinate(packageName, ecosystem, null);
     }
     
     private List<VulnerabilityInfo> mergeAndDeduplicate(List<VulnerabilityInfo> vulnerabilities) {
@@ -124,4 +263,66 @@ public class MultiSourceVulnerabilityService {
     public void clearExpiredCache() {
         cacheService.clearExpired();
     }
+    
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(cacheService.getStats());
+        stats.put("inFlightQueries", inFlightQueries.getInFlightCount());
+        stats.put("coalescedQueries", inFlightQueries.getCoalescedCount());
+        return stats;
+    }
+    
+    /**
+     * 各数据源的排队数、执行中数量、累计完成数及限流统计
+     */
+    public Map<String, Object> getSourceStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (VulnerabilitySource source : sources) {
+            SourceLane lane = sourceLanes.get(source.getName());
+            Map<String, Object> sourceStats = new LinkedHashMap<>();
+            sourceStats.put("maxConcurrency", lane.maxConcurrency);
+            sourceStats.put("queued", lane.queued.get());
+            sourceStats.put("active", lane.active.get());
+            sourceStats.put("completed", lane.completed.sum());
+            sourceStats.putAll(source.getStats());
+            stats.put(source.getName(), sourceStats);
+        }
+        return stats;
+    }
+    
+    /**
+     * 单个数据源的并发通道，限制同时在途的请求数
+     */
+    private static class SourceLane {
+        private final int maxConcurrency;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        
+        SourceLane(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            this.permits = new Semaphore(maxConcurrency, true);
+        }
+        
+        <T> T run(Supplier<T> call) {
+            queued.incrementAndGet();
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for source permit", e);
+            } finally {
+                queued.decrementAndGet();
+            }
+            
+            active.incrementAndGet();
+            try {
+                return call.get();
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+                permits.release();
+            }
+        }
+    }
 }
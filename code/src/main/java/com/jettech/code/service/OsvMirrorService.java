@@ -0,0 +1,433 @@
+package com.jettech.code.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jettech.code.advisory.Advisory;
+import com.jettech.code.advisory.AdvisoryIndex;
+import com.jettech.code.advisory.AdvisoryStore;
+import com.jettech.code.advisory.OsvAdvisoryParser;
+import com.jettech.code.config.WorkspaceConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * OSV 离线镜像
+ * 导入 OSV 按生态系统导出的 all.zip，公告逐条写入磁盘数据文件（见 {@link AdvisoryStore}），
+ * 堆上只保留偏移表和包名倒排表（每条公告约 200 字节）以及最近查询过的包，查询时按需读取；
+ * 再次导入时按 zip 条目 CRC 只解析并追加新增或变化的公告，未变化的公告沿用原位置，
+ * 失效数据超过一半时重写数据文件。单个生态系统的数据文件上限 2GB
+ *
+ * 目录结构（默认位于工作空间 osv-mirror 下）:
+ * <pre>
+ * dumps/Maven/all.zip                 离线放入或从 download-url 下载的 OSV 导出
+ * index/Maven-&lt;导入时间&gt;.dat        公告数据文件
+ * index/Maven.index.json.gz           偏移表及导入元数据
+ * </pre>
+ */
+@Service
+@ConditionalOnProperty(name = "vulnerability.sources.osv-mirror.enabled", havingValue = "true")
+public class OsvMirrorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OsvMirrorService.class);
+
+    public static final String SOURCE_NAME = "OSV-MIRROR";
+
+    private static final String DUMP_FILE = "all.zip";
+    private static final String INDEX_SUFFIX = ".index.json.gz";
+    private static final String DATA_SUFFIX = ".dat";
+
+    @Value("${vulnerability.sources.osv-mirror.path:}")
+    private String mirrorPath;
+
+    @Value("${vulnerability.sources.osv-mirror.ecosystems:Maven,npm,PyPI,Go}")
+    private String[] ecosystems;
+
+    /**
+     * OSV 导出下载地址，为空时只使用 dumps 目录下已有的文件（离线环境）
+     */
+    @Value("${vulnerability.sources.osv-mirror.download-url:}")
+    private String downloadUrl;
+
+    @Value("${vulnerability.sources.osv-mirror.import-on-startup:true}")
+    private boolean importOnStartup;
+
+    /**
+     * 每个生态系统缓存的包数（已读取并编译匹配器的公告）
+     */
+    @Value("${vulnerability.sources.osv-mirror.cache-packages:20000}")
+    private int cachePackages;
+
+    private final WorkspaceConfig workspaceConfig;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // key 为小写生态系统名
+    private final Map<String, AdvisoryStore> stores = new ConcurrentHashMap<>();
+    private final Map<String, IndexSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> lastImportResults = new ConcurrentHashMap<>();
+    private final ReentrantLock importLock = new ReentrantLock();
+
+    private Path dumpDir;
+    private Path indexDir;
+
+    public OsvMirrorService(WorkspaceConfig workspaceConfig,
+                            @Qualifier("osvMirrorRestTemplate") RestTemplate restTemplate) {
+        this.workspaceConfig = workspaceConfig;
+        this.restTemplate = restTemplate;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path root = mirrorPath == null || mirrorPath.isBlank()
+            ? workspaceConfig.getWorkspacePath().resolve("osv-mirror")
+            : Paths.get(mirrorPath).toAbsolutePath().normalize();
+        dumpDir = root.resolve("dumps");
+        indexDir = root.resolve("index");
+        Files.createDirectories(dumpDir);
+        Files.createDirectories(indexDir);
+
+        for (String ecosystem : ecosystems) {
+            loadIndex(ecosystem.trim());
+        }
+        logger.info("OSV mirror initialized at {}: {} ecosystems loaded", root, stores.size());
+
+        if (importOnStartup) {
+            Thread.ofVirtual().name("osv-mirror-import").start(() -> {
+                try {
+                    importAll();
+                } catch (Exception e) {
+                    logger.error("OSV mirror import on startup failed: {}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 是否镜像了该生态系统（不论索引是否已加载）
+     */
+    public boolean isMirrored(String ecosystem) {
+        for (String mirrored : ecosystems) {
+            if (mirrored.trim().equalsIgnoreCase(ecosystem)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取包的公告索引（只含影响该包的公告），镜像了但尚未导入时抛出异常，避免把"未导入"当作"无漏洞"
+     */
+    public AdvisoryIndex getPackageIndex(String ecosystem, String packageName) {
+        AdvisoryStore store = stores.get(key(ecosystem));
+        if (store == null) {
+            throw new IllegalStateException("OSV mirror index for " + ecosystem + " is not imported yet");
+        }
+        return store.lookup(packageName);
+    }
+
+    /**
+     * 导入全部生态系统，已在导入时直接拒绝
+     */
+    public Map<String, Object> importAll() {
+        if (!importLock.tryLock()) {
+            throw new IllegalStateException("OSV mirror import is already running");
+        }
+        try {
+            Map<String, Object> results = new LinkedHashMap<>();
+            for (String ecosystem : ecosystems) {
+                String name = ecosystem.trim();
+                Map<String, Object> result;
+                try {
+                    result = importEcosystem(name);
+                } catch (Exception e) {
+                    logger.error("Failed to import OSV mirror for {}: {}", name, e.getMessage(), e);
+                    result = new LinkedHashMap<>();
+                    result.put("status", "FAILED");
+                    result.put("error", e.getMessage());
+                }
+                lastImportResults.put(key(name), result);
+                results.put(name, result);
+            }
+            return results;
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String ecosystem : ecosystems) {
+            String name = ecosystem.trim();
+            Map<String, Object> ecosystemStats = new LinkedHashMap<>();
+            AdvisoryStore store = stores.get(key(name));
+            IndexSnapshot snapshot = snapshots.get(key(name));
+            ecosystemStats.put("advisories", store != null ? store.getAdvisoryCount() : 0);
+            ecosystemStats.put("packages", store != null ? store.getPackageCount() : 0);
+            ecosystemStats.put("cachedPackages", store != null ? store.getCachedPackageCount() : 0);
+            ecosystemStats.put("dataBytes", store != null ? store.getDataBytes() : 0);
+            ecosystemStats.put("importedAt", snapshot != null ? new Date(snapshot.getImportedAt()) : null);
+            ecosystemStats.put("lastImport", lastImportResults.get(key(name)));
+            stats.put(name, ecosystemStats);
+        }
+        return stats;
+    }
+
+    private Map<String, Object> importEcosystem(String ecosystem) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Path dump = resolveDump(ecosystem);
+        if (dump == null) {
+            logger.warn("No OSV dump found for {} under {}", ecosystem, dumpDir);
+            result.put("status", "MISSING");
+            return result;
+        }
+
+        long size = Files.size(dump);
+        long modified = Files.getLastModifiedTime(dump).toMillis();
+        IndexSnapshot current = snapshots.get(key(ecosystem));
+        if (current != null && current.getSourceSize() == size && current.getSourceModified() == modified) {
+            logger.info("OSV dump for {} unchanged, skip import", ecosystem);
+            result.put("status", "UNCHANGED");
+            return result;
+        }
+
+        long start = System.currentTimeMillis();
+        long importedAt = System.currentTimeMillis();
+        AdvisoryStore previous = stores.get(key(ecosystem));
+        // 未变化的公告沿用原位置，新增或变化的公告追加到当前数据文件末尾
+        Path dataFile = previous != null
+            ? previous.getDataFile()
+            : indexDir.resolve(ecosystem + "-" + importedAt + DATA_SUFFIX);
+        Map<String, AdvisoryStore.Location> locations = new HashMap<>();
+        long dataLength;
+        int added = 0;
+        int updated = 0;
+        int unchanged = 0;
+
+        try (ZipFile zipFile = new ZipFile(dump.toFile());
+             AdvisoryStore.Writer writer = new AdvisoryStore.Writer(dataFile, ecosystem)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".json")) {
+                    continue;
+                }
+
+                String fileName = Paths.get(entry.getName()).getFileName().toString();
+                String id = fileName.substring(0, fileName.length() - ".json".length());
+                AdvisoryStore.Location existing = previous != null ? previous.getLocation(id) : null;
+                if (existing != null && existing.crc() == entry.getCrc()) {
+                    locations.put(id, existing);
+                    unchanged++;
+                    continue;
+                }
+
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    Advisory advisory = OsvAdvisoryParser.parse(objectMapper.readTree(in), ecosystem);
+                    if (advisory == null) {
+                        continue;
+                    }
+                    advisory.setSource(SOURCE_NAME);
+                    locations.put(id, writer.append(advisory, entry.getCrc()));
+                    if (existing == null) {
+                        added++;
+                    } else {
+                        updated++;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to parse OSV entry {} in {}: {}", entry.getName(), dump, e.getMessage());
+                }
+            }
+            dataLength = writer.finish();
+        }
+
+        int removed = previous != null ? previous.getAdvisoryCount() - unchanged - updated : 0;
+
+        long liveBytes = 0;
+        for (AdvisoryStore.Location location : locations.values()) {
+            liveBytes += location.length();
+        }
+        if (dataLength - liveBytes > liveBytes) {
+            Path compacted = indexDir.resolve(ecosystem + "-" + importedAt + DATA_SUFFIX);
+            AdvisoryStore source = AdvisoryStore.open(ecosystem, dataFile, dataLength, locations, 0);
+            Map<String, AdvisoryStore.Location> moved = new HashMap<>();
+            try (AdvisoryStore.Writer writer = new AdvisoryStore.Writer(compacted, ecosystem)) {
+                for (Map.Entry<String, AdvisoryStore.Location> entry : locations.entrySet()) {
+                    moved.put(entry.getKey(), writer.copy(source, entry.getValue()));
+                }
+                dataLength = writer.finish();
+            }
+            logger.info("Compacted OSV mirror data for {}: {} KB -> {} KB",
+                ecosystem, Files.size(dataFile) / 1024, dataLength / 1024);
+            dataFile = compacted;
+            locations = moved;
+        }
+
+        IndexSnapshot snapshot = new IndexSnapshot();
+        snapshot.setEcosystem(ecosystem);
+        snapshot.setSourceSize(size);
+        snapshot.setSourceModified(modified);
+        snapshot.setImportedAt(importedAt);
+        snapshot.setDataFile(dataFile.getFileName().toString());
+        snapshot.setDataLength(dataLength);
+        snapshot.setAdvisories(locations);
+        saveSnapshot(snapshot);
+
+        stores.put(key(ecosystem), AdvisoryStore.open(ecosystem, dataFile, dataLength, locations, cachePackages));
+        snapshots.put(key(ecosystem), withoutAdvisories(snapshot));
+        if (previous != null && !previous.getDataFile().equals(dataFile)) {
+            deleteQuietly(previous.getDataFile());
+        }
+
+        logger.info("Imported OSV mirror for {} in {} ms: {} advisories ({} added, {} updated, {} removed)",
+            ecosystem, System.currentTimeMillis() - start, locations.size(), added, updated, removed);
+
+        result.put("status", "IMPORTED");
+        result.put("advisories", locations.size());
+        result.put("added", added);
+        result.put("updated", updated);
+        result.put("removed", removed);
+        return result;
+    }
+
+    /**
+     * 查找导出文件，配置了下载地址时先下载最新导出，下载失败则使用已有文件
+     */
+    private Path resolveDump(String ecosystem) {
+        Path nested = dumpDir.resolve(ecosystem).resolve(DUMP_FILE);
+        if (downloadUrl != null && !downloadUrl.isBlank()) {
+            try {
+                download(ecosystem, nested);
+            } catch (RestClientException | IOException e) {
+                logger.warn("Failed to download OSV dump for {}, using local copy: {}", ecosystem, e.getMessage());
+            }
+        }
+
+        if (Files.isRegularFile(nested)) {
+            return nested;
+        }
+        Path flat = dumpDir.resolve(ecosystem + ".zip");
+        return Files.isRegularFile(flat) ? flat : null;
+    }
+
+    private void download(String ecosystem, Path target) throws IOException {
+        String url = downloadUrl.replaceAll("/+$", "") + "/" + ecosystem + "/" + DUMP_FILE;
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(DUMP_FILE + ".download");
+
+        logger.info("Downloading OSV dump for {} from {}", ecosystem, url);
+        restTemplate.execute(url, HttpMethod.GET, null, response -> {
+            Files.copy(response.getBody(), temp, StandardCopyOption.REPLACE_EXISTING);
+            return null;
+        });
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadIndex(String ecosystem) {
+        Path file = indexDir.resolve(ecosystem + INDEX_SUFFIX);
+        String dataFile = null;
+        if (Files.isRegularFile(file)) {
+            long start = System.currentTimeMillis();
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                IndexSnapshot snapshot = objectMapper.readValue(in, IndexSnapshot.class);
+                AdvisoryStore store = AdvisoryStore.open(ecosystem, indexDir.resolve(snapshot.getDataFile()),
+                    snapshot.getDataLength(), snapshot.getAdvisories(), cachePackages);
+                stores.put(key(ecosystem), store);
+                snapshots.put(key(ecosystem), withoutAdvisories(snapshot));
+                dataFile = snapshot.getDataFile();
+                logger.info("Loaded OSV mirror index for {} in {} ms: {} advisories, {} packages",
+                    ecosystem, System.currentTimeMillis() - start, store.getAdvisoryCount(), store.getPackageCount());
+            } catch (Exception e) {
+                logger.error("Failed to load OSV mirror index {}, it will be rebuilt on next import: {}",
+                    file, e.getMessage());
+            }
+        }
+
+        // 清理压缩或导入中断遗留的数据文件，以及旧版本的整体索引文件
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(indexDir, ecosystem + "-*" + DATA_SUFFIX)) {
+            for (Path data : stale) {
+                if (!data.getFileName().toString().equals(dataFile)) {
+                    deleteQuietly(data);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to clean up OSV mirror data files for {}: {}", ecosystem, e.getMessage());
+        }
+        deleteQuietly(indexDir.resolve(ecosystem + ".json.gz"));
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void saveSnapshot(IndexSnapshot snapshot) throws IOException {
+        Path target = indexDir.resolve(snapshot.getEcosystem() + INDEX_SUFFIX);
+        Path temp = indexDir.resolve(snapshot.getEcosystem() + INDEX_SUFFIX + ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+            objectMapper.writeValue(out, snapshot);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 内存中只保留元数据，偏移表已在 AdvisoryStore 中
+     */
+    private IndexSnapshot withoutAdvisories(IndexSnapshot snapshot) {
+        IndexSnapshot meta = new IndexSnapshot();
+        meta.setEcosystem(snapshot.getEcosystem());
+        meta.setSourceSize(snapshot.getSourceSize());
+        meta.setSourceModified(snapshot.getSourceModified());
+        meta.setImportedAt(snapshot.getImportedAt());
+        meta.setDataFile(snapshot.getDataFile());
+        meta.setDataLength(snapshot.getDataLength());
+        return meta;
+    }
+
+    private String key(String ecosystem) {
+        return ecosystem.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 持久化的偏移表文件内容
+     */
+    @Data
+    public static class IndexSnapshot {
+        private String ecosystem;
+        private long sourceSize;
+        private long sourceModified;
+        private long importedAt;
+        // 数据文件名（位于 index 目录）及已提交的数据长度
+        private String dataFile;
+        private long dataLength;
+        private Map<String, AdvisoryStore.Location> advisories = new HashMap<>();
+    }
+}
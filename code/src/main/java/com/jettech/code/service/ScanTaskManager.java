@@ -2,6 +2,8 @@ package com.jettech.code.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.jettech.code.dto.OpenCodeDTO;
 import com.jettech.code.entity.CodeQualityIssue;
 import com.jettech.code.entity.CodeQualityScan;
@@ -15,26 +17,25 @@ import com.jettech.code.mapper.CodeQualityTaskMapper;
 import com.jettech.code.mapper.QualityCheckConfigMapper;
 import com.jettech.code.mapper.QualityCheckGroupMapper;
 import com.jettech.code.mapper.ServiceMapper;
+import com.jettech.code.source.SourceSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -47,21 +48,6 @@ public class ScanTaskManager {
 
     private static final Logger logger = LoggerFactory.getLogger(ScanTaskManager.class);
 
-    // 代码文件扩展名
-    private static final Set<String> CODE_EXTENSIONS = new HashSet<>(Arrays.asList(
-        ".java", ".ts", ".tsx", ".js", ".jsx", ".py", ".go", ".vue", ".kt", ".scala", ".rs", ".c", ".cpp", ".h", ".cs"
-    ));
-
-    // 排除的目录
-    private static final Set<String> EXCLUDED_DIRS = new HashSet<>(Arrays.asList(
-        "target", "node_modules", ".git", "build", "dist", ".idea", ".vscode", "vendor", "__pycache__", ".mvn", "gradle"
-    ));
-
-    // 代码读取限制
-    private static final int MAX_FILES = 30;
-    private static final int MAX_SIZE_PER_FILE = 15000;
-    private static final int MAX_TOTAL_SIZE = 150000;
-
     private final CodeQualityScanMapper scanMapper;
     private final CodeQualityTaskMapper taskMapper;
     private final CodeQualityIssueMapper issueMapper;
@@ -71,10 +57,24 @@ public class ScanTaskManager {
     private final OpenCodeService openCodeService;
     private final ObjectMapper objectMapper;
 
-    // 自定义线程池
-    @Autowired
-    @Qualifier("scanTaskExecutor")
-    private Executor scanTaskExecutor;
+    // 所有扫描共享的 LLM 任务调度器
+    private final LlmTaskScheduler llmTaskScheduler;
+    private final SourceSnapshotService sourceSnapshotService;
+
+    /**
+     * 同时处理的任务数（读取分片、等待分片结果、合并），分片的 LLM 调用并发由 LlmTaskScheduler 控制
+     */
+    @Value("${code-quality.chunk.task-concurrency:4}")
+    private int taskConcurrency;
+
+    /**
+     * 融合模式：同一服务、同一分组的多个检查项合并为一次 LLM 调用，结果按 ruleId 拆分回各任务
+     */
+    @Value("${code-quality.fusion.enabled:false}")
+    private boolean fusionEnabled;
+
+    @Value("${code-quality.fusion.max-items:6}")
+    private int fusionMaxItems;
 
     // 取消状态管理
     private final ConcurrentHashMap<Long, Boolean> cancelledScans = new ConcurrentHashMap<>();
@@ -97,7 +97,9 @@ public class ScanTaskManager {
                           QualityCheckConfigMapper checkConfigMapper,
                           QualityCheckGroupMapper groupMapper,
                           OpenCodeService openCodeService,
-                          ObjectMapper objectMapper) {
+                          ObjectMapper objectMapper,
+                          LlmTaskScheduler llmTaskScheduler,
+                          SourceSnapshotService sourceSnapshotService) {
         this.scanMapper = scanMapper;
         this.taskMapper = taskMapper;
         this.issueMapper = issueMapper;
@@ -106,6 +108,8 @@ public class ScanTaskManager {
         this.groupMapper = groupMapper;
         this.openCodeService = openCodeService;
         this.objectMapper = objectMapper;
+        this.llmTaskScheduler = llmTaskScheduler;
+        this.sourceSnapshotService = sourceSnapshotService;
     }
 
     /**
@@ -174,9 +178,11 @@ public class ScanTaskManager {
 
     /**
      * 异步执行所有扫描任务（并行）
+     * 每个任务的代码分片交给 LlmTaskScheduler 排队，与其他扫描共享全局并发上限
+     * @param priority 扫描优先级，见 LlmTaskScheduler.PRIORITY_*
      */
     @Async("scanTaskExecutor")
-    public void executeScanAsync(Long scanId, List<Long> serviceIds, List<Long> checkItemIds) {
+    public void executeScanAsync(Long scanId, List<Long> serviceIds, List<Long> checkItemIds, int priority) {
         CodeQualityScan scan = scanMapper.findById(scanId);
         if (scan == null) {
             logger.error("Scan not found: {}", scanId);
@@ -211,28 +217,27 @@ public class ScanTaskManager {
             updateScanPhase(scan, "正在执行扫描任务...");
             notifyProgress(scanId, "PHASE", "正在执行扫描任务...", 0, 0, tasks.size());
 
-            // 并行执行任务
-            int concurrency = Math.min(tasks.size(), 5); // 最大并发 5
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            // 并行执行任务（任务本身只等待分片结果，不占用 LLM 并发许可）
+            Semaphore activeTasks = new Semaphore(Math.max(1, taskConcurrency));
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (List<CodeQualityTask> unit : groupTasks(tasks)) {
+                    // 检查是否被取消
+                    if (isScanCancelled(scanId)) {
+                        logger.info("Scan {} cancelled during task creation", scanId);
+                        break;
+                    }
 
-            for (CodeQualityTask task : tasks) {
-                // 检查是否被取消
-                if (isScanCancelled(scanId)) {
-                    logger.info("Scan {} cancelled during task creation", scanId);
-                    cancelScanInternal(scan);
-                    return;
+                    activeTasks.acquire();
+                    executor.submit(() -> {
+                        try {
+                            executeTasksWithStats(unit, scanId, tasks.size(), priority);
+                        } finally {
+                            activeTasks.release();
+                        }
+                    });
                 }
-
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                    executeTaskWithStats(task, scanId, tasks.size());
-                }, scanTaskExecutor);
-
-                futures.add(future);
             }
 
-            // 等待所有任务完成
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-
             // 检查是否被取消
             if (isScanCancelled(scanId)) {
                 cancelScanInternal(scan);
@@ -252,6 +257,9 @@ public class ScanTaskManager {
             failScan(scan, e.getMessage());
             notifyProgress(scanId, "ERROR", e.getMessage(), 0, 0, 0);
         } finally {
+            // 释放源代码快照
+            sourceSnapshotService.release(scanId);
+
             // 清理计数器
             progressCounters.remove(scanId);
             totalIssuesMap.remove(scanId);
@@ -262,80 +270,133 @@ public class ScanTaskManager {
     }
 
     /**
-     * 执行单个任务并更新统计
+     * 按执行单元分组任务
+     * 融合模式下同一服务、同一分组的检查项（最多 max-items 个）为一个单元，否则每个任务一个单元
+     */
+    private List<List<CodeQualityTask>> groupTasks(List<CodeQualityTask> tasks) {
+        if (!fusionEnabled || fusionMaxItems <= 1) {
+            return tasks.stream().map(List::of).toList();
+        }
+
+        Map<Long, Long> groupIds = new HashMap<>();
+        Map<String, List<CodeQualityTask>> byGroup = new LinkedHashMap<>();
+        for (CodeQualityTask task : tasks) {
+            Long groupId = groupIds.computeIfAbsent(task.getCheckItemId(), id -> {
+                QualityCheckConfig item = checkConfigMapper.findById(id);
+                return item != null ? item.getGroupId() : null;
+            });
+            byGroup.computeIfAbsent(task.getServiceId() + ":" + groupId, k -> new ArrayList<>()).add(task);
+        }
+
+        List<List<CodeQualityTask>> units = new ArrayList<>();
+        for (List<CodeQualityTask> group : byGroup.values()) {
+            for (int from = 0; from < group.size(); from += fusionMaxItems) {
+                units.add(group.subList(from, Math.min(from + fusionMaxItems, group.size())));
+            }
+        }
+        logger.info("Fused {} tasks into {} prompts", tasks.size(), units.size());
+        return units;
+    }
+
+    /**
+     * 执行一个单元的任务并更新统计
      */
-    private void executeTaskWithStats(CodeQualityTask task, Long scanId, int totalTasks) {
+    private void executeTasksWithStats(List<CodeQualityTask> unit, Long scanId, int totalTasks, int priority) {
         if (isScanCancelled(scanId)) {
-            task.setStatus(CodeQualityTask.STATUS_CANCELLED);
-            taskMapper.update(task);
+            for (CodeQualityTask task : unit) {
+                task.setStatus(CodeQualityTask.STATUS_CANCELLED);
+                taskMapper.update(task);
+            }
             return;
         }
 
         try {
-            executeTask(task);
-
-            // 更新进度
-            int completed = progressCounters.get(scanId).incrementAndGet();
-            int progress = calculateProgress(completed, totalTasks);
-
-            // 更新扫描记录
-            CodeQualityScan scan = scanMapper.findById(scanId);
-            if (scan != null) {
-                scan.setCheckedCount(completed);
-                scan.setProgress(progress);
-                scan.setCurrentFile(task.getServiceName() + " - " + task.getCheckItemName());
-                scanMapper.update(scan);
+            executeTasks(unit, priority);
+        } catch (Exception e) {
+            for (CodeQualityTask task : unit) {
+                logger.error("Task execution failed: {} - {}", task.getId(), e.getMessage());
+                failTask(task, e.getMessage());
             }
+            return;
+        }
 
-            // 通知进度
-            notifyProgress(scanId, "PROGRESS", null, progress, completed, totalTasks);
+        for (CodeQualityTask task : unit) {
+            try {
+                recordTaskResult(task, scanId, totalTasks);
+            } catch (Exception e) {
+                logger.error("Task execution failed: {} - {}", task.getId(), e.getMessage());
+                failTask(task, e.getMessage());
+            }
+        }
+    }
 
-            // 统计结果
-            if (task.getIssueCount() != null && task.getIssueCount() > 0) {
-                totalIssuesMap.get(scanId).addAndGet(task.getIssueCount());
+    /**
+     * 更新进度、统计结果并创建问题记录
+     */
+    private void recordTaskResult(CodeQualityTask task, Long scanId, int totalTasks) {
+        // 更新进度
+        int completed = progressCounters.get(scanId).incrementAndGet();
+        int progress = calculateProgress(completed, totalTasks);
 
-                String category = getCategoryFromCheckItemKey(task.getCheckItemKey());
-                switch (category) {
-                    case CodeQualityIssue.CATEGORY_SECURITY:
-                        securityIssuesMap.get(scanId).addAndGet(task.getIssueCount());
-                        break;
-                    case CodeQualityIssue.CATEGORY_RELIABILITY:
-                        reliabilityIssuesMap.get(scanId).addAndGet(task.getIssueCount());
-                        break;
-                    case CodeQualityIssue.CATEGORY_MAINTAINABILITY:
-                        maintainabilityIssuesMap.get(scanId).addAndGet(task.getIssueCount());
-                        break;
-                }
+        // 更新扫描记录
+        CodeQualityScan scan = scanMapper.findById(scanId);
+        if (scan != null) {
+            scan.setCheckedCount(completed);
+            scan.setProgress(progress);
+            scan.setCurrentFile(task.getServiceName() + " - " + task.getCheckItemName());
+            scanMapper.update(scan);
+        }
 
-                // 创建问题记录
-                createIssuesFromTaskResult(task);
-            }
+        // 通知进度
+        notifyProgress(scanId, "PROGRESS", null, progress, completed, totalTasks);
 
-            // 通知任务完成
-            notifyTaskComplete(scanId, task);
+        // 统计结果
+        if (task.getIssueCount() != null && task.getIssueCount() > 0) {
+            totalIssuesMap.get(scanId).addAndGet(task.getIssueCount());
 
-        } catch (Exception e) {
-            logger.error("Task execution failed: {} - {}", task.getId(), e.getMessage());
-            failTask(task, e.getMessage());
+            String category = getCategoryFromCheckItemKey(task.getCheckItemKey());
+            switch (category) {
+                case CodeQualityIssue.CATEGORY_SECURITY:
+                    securityIssuesMap.get(scanId).addAndGet(task.getIssueCount());
+                    break;
+                case CodeQualityIssue.CATEGORY_RELIABILITY:
+                    reliabilityIssuesMap.get(scanId).addAndGet(task.getIssueCount());
+                    break;
+                case CodeQualityIssue.CATEGORY_MAINTAINABILITY:
+                    maintainabilityIssuesMap.get(scanId).addAndGet(task.getIssueCount());
+                    break;
+            }
+
+            // 创建问题记录
+            createIssuesFromTaskResult(task);
         }
+
+        // 通知任务完成
+        notifyTaskComplete(scanId, task);
     }
 
     /**
-     * 执行单个扫描任务
+     * 执行一个单元的扫描任务（同一服务，融合模式下为同一分组的多个检查项）
+     * 服务源代码按 token 预算分片，各分片作为子任务并行发给 OpenCode，结果合并后写回各任务
+     * @param priority 扫描优先级
      */
-    private void executeTask(CodeQualityTask task) throws Exception {
-        logger.info("Executing task {} for service {} check item {}",
-            task.getId(), task.getServiceId(), task.getCheckItemKey());
+    private void executeTasks(List<CodeQualityTask> unit, int priority) throws Exception {
+        CodeQualityTask first = unit.get(0);
+        logger.info("Executing tasks {} for service {} check items {}",
+            unit.stream().map(CodeQualityTask::getId).toList(), first.getServiceId(),
+            unit.stream().map(CodeQualityTask::getCheckItemKey).toList());
 
         // 更新任务状态为运行中
-        task.setStatus(CodeQualityTask.STATUS_RUNNING);
-        task.setStartedAt(LocalDateTime.now());
-        taskMapper.update(task);
+        for (CodeQualityTask task : unit) {
+            task.setStatus(CodeQualityTask.STATUS_RUNNING);
+            task.setStartedAt(LocalDateTime.now());
+            taskMapper.update(task);
+        }
 
         // 获取服务信息
-        ServiceEntity service = serviceMapper.findById(task.getServiceId());
+        ServiceEntity service = serviceMapper.findById(first.getServiceId());
         if (service == null) {
-            throw new IllegalArgumentException("Service not found: " + task.getServiceId());
+            throw new IllegalArgumentException("Service not found: " + first.getServiceId());
         }
 
         String localPath = service.getLocalPath();
@@ -344,33 +405,98 @@ public class ScanTaskManager {
         }
 
         // 获取检查项信息
-        QualityCheckConfig checkItem = checkConfigMapper.findById(task.getCheckItemId());
-        if (checkItem == null) {
-            throw new IllegalArgumentException("Check item not found: " + task.getCheckItemId());
+        List<QualityCheckConfig> checkItems = new ArrayList<>();
+        for (CodeQualityTask task : unit) {
+            QualityCheckConfig checkItem = checkConfigMapper.findById(task.getCheckItemId());
+            if (checkItem == null) {
+                throw new IllegalArgumentException("Check item not found: " + task.getCheckItemId());
+            }
+            checkItems.add(checkItem);
         }
 
         // 获取分组信息
-        QualityCheckGroup group = groupMapper.findById(checkItem.getGroupId());
+        QualityCheckGroup group = groupMapper.findById(checkItems.get(0).getGroupId());
         String groupKey = group != null ? group.getGroupKey() : "unknown";
 
-        // 构建提示词（包含代码内容）
-        String prompt = buildPrompt(service, checkItem, groupKey, localPath);
-        task.setPromptText(prompt);
+        // 源代码快照（本次扫描中同一服务的所有检查项共用）
+        SourceSnapshot snapshot = sourceSnapshotService.getSnapshot(first.getScanId(), service.getId(), localPath);
+        int chunkCount = snapshot.getChunkCount();
+
+        // 构建提示词，保存的提示词不含代码内容
+        String header = buildPromptHeader(service, checkItems, groupKey, localPath);
+        String footer = buildOutputRequirements(checkItems);
+        String promptText = header + "## 代码内容\n\n" + snapshot.describe() + "\n" + footer;
+        unit.forEach(task -> task.setPromptText(promptText));
+
+        if (chunkCount == 0) {
+            logger.warn("No source code files found in: {}", localPath);
+            for (CodeQualityTask task : unit) {
+                task.setIssueCount(0);
+                task.setSeverity(CodeQualityTask.SEVERITY_NONE);
+                task.setResultSummary("未找到源代码文件");
+                task.setStatus(CodeQualityTask.STATUS_COMPLETED);
+                task.setCompletedAt(LocalDateTime.now());
+                taskMapper.update(task);
+            }
+            return;
+        }
 
         // 检查 OpenCode 服务是否可用
         if (!openCodeService.isAvailable()) {
             throw new IllegalStateException("OpenCode service is not available");
         }
 
-        // 创建 OpenCode 会话
-        String sessionTitle = "Code Quality Scan - " + service.getName() + " - " + checkItem.getItemName();
-        String sessionId = openCodeService.createSession(sessionTitle);
-        task.setOpencodeSessionId(sessionId);
-        taskMapper.update(task);
+        // 各分片作为子任务提交，与其他任务的分片共享 LLM 并发许可
+        String sessionTitle = "Code Quality Scan - " + service.getName() + " - "
+            + (unit.size() == 1 ? checkItems.get(0).getItemName()
+                : (group != null ? group.getGroupName() : groupKey) + " (" + unit.size() + " 项)");
+        OpenCodeDTO.ScanResult[] results = new OpenCodeDTO.ScanResult[chunkCount];
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            int index = i;
+            String title = chunkCount > 1 ? sessionTitle + " (" + (i + 1) + "/" + chunkCount + ")" : sessionTitle;
+            futures.add(llmTaskScheduler.submit(first.getScanId(), priority, first.getPriority(), () -> {
+                if (isScanCancelled(first.getScanId())) {
+                    return;
+                }
+                // 提示词在获得许可后才从快照解码，排队中的分片不占用堆内存
+                String prompt = header + "## 代码内容"
+                    + (chunkCount > 1 ? "（第 " + (index + 1) + "/" + chunkCount + " 部分）" : "")
+                    + "\n\n" + snapshot.render(index) + footer;
+                results[index] = executeChunk(first, title, prompt);
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        OpenCodeDTO.ScanResult result = results.length == 1 ? results[0] : mergeChunkResults(results);
+        if (result == null) {
+            // 全部分片在执行前被取消
+            for (CodeQualityTask task : unit) {
+                task.setStatus(CodeQualityTask.STATUS_CANCELLED);
+                taskMapper.update(task);
+            }
+            return;
+        }
 
-        // 发送提示词并获取结果
-        OpenCodeDTO.ScanResult result = openCodeService.sendPrompt(sessionId, prompt);
+        if (unit.size() == 1) {
+            applyResult(first, result);
+        } else {
+            List<OpenCodeDTO.ScanResult> split = splitFusedResult(unit, checkItems, result);
+            for (int i = 0; i < unit.size(); i++) {
+                unit.get(i).setOpencodeSessionId(first.getOpencodeSessionId());
+                applyResult(unit.get(i), split.get(i));
+            }
+        }
 
+        logger.info("Tasks {} completed: {} issues found in {} chunks",
+            unit.stream().map(CodeQualityTask::getId).toList(),
+            unit.stream().mapToInt(task -> task.getIssueCount() != null ? task.getIssueCount() : 0).sum(), chunkCount);
+    }
+
+    /**
+     * 把结果写入任务并保存
+     */
+    private void applyResult(CodeQualityTask task, OpenCodeDTO.ScanResult result) {
         // 尝试解析结构化结果
         parseStructuredResult(task, result);
 
@@ -382,16 +508,177 @@ public class ScanTaskManager {
             task.setStatus(CodeQualityTask.STATUS_COMPLETED);
         } else {
             task.setStatus(CodeQualityTask.STATUS_FAILED);
-            task.setErrorMessage(result.getErrorMessage());
         }
+        task.setErrorMessage(result.getErrorMessage());
 
         task.setCompletedAt(LocalDateTime.now());
         taskMapper.update(task);
+    }
+
+    /**
+     * 把融合调用的结果按 ruleId 拆分为各检查项的结果
+     * ruleId 与检查项标识（或 ruleName 与检查项名称）匹配的问题归入该检查项，无法匹配的归入第一个检查项；
+     * 响应无法解析为 JSON 时原始响应只交给第一个检查项，避免重复创建问题，其余检查项视为未评估（失败），
+     * 不能当作没有问题计入扫描结果
+     */
+    private List<OpenCodeDTO.ScanResult> splitFusedResult(List<CodeQualityTask> unit, List<QualityCheckConfig> checkItems,
+                                                          OpenCodeDTO.ScanResult result) {
+        JsonNode root = null;
+        try {
+            String jsonContent = extractJsonFromResponse(result.getFullResponse());
+            root = jsonContent != null ? objectMapper.readTree(jsonContent) : null;
+        } catch (Exception e) {
+            logger.debug("Failed to parse fused result: {}", e.getMessage());
+        }
+
+        List<OpenCodeDTO.ScanResult> split = new ArrayList<>();
+        if (root == null || !root.path("issues").isArray()) {
+            split.add(result);
+            for (int i = 1; i < unit.size(); i++) {
+                OpenCodeDTO.ScanResult unevaluated = new OpenCodeDTO.ScanResult();
+                unevaluated.setSuccess(false);
+                unevaluated.setSeverity(OpenCodeDTO.ScanResult.SEVERITY_NONE);
+                unevaluated.setSummary("融合检查的结果无法按检查项拆分，见任务 " + unit.get(0).getId());
+                unevaluated.setErrorMessage(result.getErrorMessage() != null ? result.getErrorMessage()
+                    : "融合检查结果无法解析，未评估该检查项");
+                split.add(unevaluated);
+            }
+            return split;
+        }
+
+        List<ArrayNode> issuesByItem = new ArrayList<>();
+        for (int i = 0; i < checkItems.size(); i++) {
+            issuesByItem.add(objectMapper.createArrayNode());
+        }
+        for (JsonNode issue : root.path("issues")) {
+            issuesByItem.get(matchCheckItem(checkItems, issue)).add(issue);
+        }
+
+        String briefSummary = root.path("summary").path("briefSummary").asText(null);
+        for (int i = 0; i < checkItems.size(); i++) {
+            ObjectNode summary = objectMapper.createObjectNode();
+            summary.put("totalIssues", issuesByItem.get(i).size());
+            ObjectNode itemRoot = objectMapper.createObjectNode();
+            itemRoot.set("issues", issuesByItem.get(i));
+            itemRoot.set("summary", summary);
+
+            OpenCodeDTO.ScanResult itemResult = new OpenCodeDTO.ScanResult();
+            itemResult.setSuccess(result.isSuccess());
+            itemResult.setIssueCount(issuesByItem.get(i).size());
+            itemResult.setSeverity(determineMaxSeverity(issuesByItem.get(i)));
+            itemResult.setSummary(briefSummary != null ? briefSummary : result.getSummary());
+            itemResult.setFullResponse("```json\n" + itemRoot.toPrettyString() + "\n```");
+            itemResult.setErrorMessage(result.getErrorMessage());
+            split.add(itemResult);
+        }
+        return split;
+    }
 
-        // 清理会话
-        openCodeService.deleteSession(sessionId);
+    private int matchCheckItem(List<QualityCheckConfig> checkItems, JsonNode issue) {
+        String ruleId = issue.path("ruleId").asText("");
+        String ruleName = issue.path("ruleName").asText("");
+        for (int i = 0; i < checkItems.size(); i++) {
+            if (ruleId.equalsIgnoreCase(checkItems.get(i).getItemKey())) {
+                return i;
+            }
+        }
+        for (int i = 0; i < checkItems.size(); i++) {
+            if (ruleName.equals(checkItems.get(i).getItemName())) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 执行一个分片：创建会话、发送提示词、清理会话
+     * 失败时返回失败结果，不影响同一任务的其他分片
+     */
+    private OpenCodeDTO.ScanResult executeChunk(CodeQualityTask task, String title, String prompt) {
+        String sessionId = null;
+        try {
+            sessionId = openCodeService.createSession(title);
+            if (task.getOpencodeSessionId() == null) {
+                task.setOpencodeSessionId(sessionId);
+            }
+            return openCodeService.sendPrompt(sessionId, prompt);
+        } catch (Exception e) {
+            logger.warn("Chunk of task {} failed: {}", task.getId(), e.getMessage());
+            OpenCodeDTO.ScanResult failed = new OpenCodeDTO.ScanResult();
+            failed.setSeverity(OpenCodeDTO.ScanResult.SEVERITY_NONE);
+            failed.setErrorMessage(e.getMessage());
+            return failed;
+        } finally {
+            if (sessionId != null) {
+                try {
+                    openCodeService.deleteSession(sessionId);
+                } catch (Exception e) {
+                    logger.debug("Failed to delete session {}: {}", sessionId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 合并各分片的结果为一个 JSON 结果，格式与单次调用的输出一致
+     * 任一分片执行失败或结果无法解析时该部分代码未被评估，合并结果视为失败（已解析分片的问题仍保留），
+     * 不能当作没有问题；各类分片数记录在 errorMessage 中
+     */
+    private OpenCodeDTO.ScanResult mergeChunkResults(OpenCodeDTO.ScanResult[] results) {
+        ArrayNode issues = objectMapper.createArrayNode();
+        List<String> summaries = new ArrayList<>();
+        int failed = 0;
+        int unparsed = 0;
+        int cancelled = 0;
+
+        for (OpenCodeDTO.ScanResult result : results) {
+            if (result == null) {
+                cancelled++;
+                continue;
+            }
+            if (!result.isSuccess()) {
+                failed++;
+                continue;
+            }
+            try {
+                String jsonContent = extractJsonFromResponse(result.getFullResponse());
+                JsonNode root = jsonContent != null ? objectMapper.readTree(jsonContent) : null;
+                if (root == null || !root.path("issues").isArray()) {
+                    unparsed++;
+                    continue;
+                }
+                issues.addAll((ArrayNode) root.path("issues"));
+                String briefSummary = root.path("summary").path("briefSummary").asText(null);
+                if (briefSummary != null && !briefSummary.isEmpty()) {
+                    summaries.add(briefSummary);
+                }
+            } catch (Exception e) {
+                unparsed++;
+            }
+        }
+        if (cancelled == results.length) {
+            return null;
+        }
 
-        logger.info("Task {} completed: {} issues found", task.getId(), task.getIssueCount());
+        String briefSummary = String.join("；", summaries);
+        ObjectNode summary = objectMapper.createObjectNode();
+        summary.put("totalIssues", issues.size());
+        summary.put("briefSummary", briefSummary);
+        ObjectNode merged = objectMapper.createObjectNode();
+        merged.set("issues", issues);
+        merged.set("summary", summary);
+
+        OpenCodeDTO.ScanResult result = new OpenCodeDTO.ScanResult();
+        result.setSuccess(failed + unparsed == 0);
+        result.setIssueCount(issues.size());
+        result.setSeverity(determineMaxSeverity(issues));
+        result.setSummary(briefSummary.length() > 2000 ? briefSummary.substring(0, 2000) : briefSummary);
+        result.setFullResponse("```json\n" + merged.toPrettyString() + "\n```");
+        if (failed + unparsed + cancelled > 0) {
+            result.setErrorMessage(String.format("%d 个分片中 %d 个执行失败，%d 个结果无法解析，%d 个已取消",
+                results.length, failed, unparsed, cancelled));
+        }
+        return result;
     }
 
     /**
@@ -504,9 +791,10 @@ public class ScanTaskManager {
     }
 
     /**
-     * 构建扫描提示词（包含代码内容，要求 JSON 输出）
+     * 构建扫描提示词的开头部分（服务信息、检查项、检查要求），代码内容由各分片填入
+     * 多个检查项（融合模式）时逐项列出，并给出各检查项的标识
      */
-    private String buildPrompt(ServiceEntity service, QualityCheckConfig checkItem, String groupKey, String localPath) {
+    private String buildPromptHeader(ServiceEntity service, List<QualityCheckConfig> checkItems, String groupKey, String localPath) {
         StringBuilder prompt = new StringBuilder();
 
         prompt.append("# 代码质量检查任务\n\n");
@@ -520,34 +808,64 @@ public class ScanTaskManager {
         }
         prompt.append("\n");
 
-        // 检查项信息
-        prompt.append("## 检查项信息\n");
-        prompt.append("- 检查项: ").append(checkItem.getItemName()).append("\n");
-        prompt.append("- 维度: ").append(groupKey).append("\n");
-        if (checkItem.getDescription() != null && !checkItem.getDescription().isEmpty()) {
-            prompt.append("- 描述: ").append(checkItem.getDescription()).append("\n");
-        }
-        prompt.append("\n");
+        if (checkItems.size() == 1) {
+            QualityCheckConfig checkItem = checkItems.get(0);
 
-        // 检查项的提示词模板（清理掉可能包含的代码结构/代码内容部分）
-        String promptTemplate = checkItem.getPromptTemplate();
-        if (promptTemplate != null && !promptTemplate.isEmpty() && !promptTemplate.equals("略")) {
-            // 清理 promptTemplate 中可能包含的代码结构/代码内容部分
-            String cleanedTemplate = cleanPromptTemplate(promptTemplate);
+            // 检查项信息
+            prompt.append("## 检查项信息\n");
+            prompt.append("- 检查项: ").append(checkItem.getItemName()).append("\n");
+            prompt.append("- 维度: ").append(groupKey).append("\n");
+            if (checkItem.getDescription() != null && !checkItem.getDescription().isEmpty()) {
+                prompt.append("- 描述: ").append(checkItem.getDescription()).append("\n");
+            }
+            prompt.append("\n");
+
+            // 检查项的提示词模板（清理掉可能包含的代码结构/代码内容部分）
+            String cleanedTemplate = cleanedRequirements(checkItem);
             if (!cleanedTemplate.isEmpty()) {
                 prompt.append("## 检查要求\n");
                 prompt.append(cleanedTemplate).append("\n\n");
             }
+            return prompt.toString();
         }
 
-        // 读取代码内容
-        prompt.append("## 代码内容\n\n");
-        String codeContent = readCodeContent(localPath);
-        prompt.append(codeContent);
-        prompt.append("\n");
+        // 多个检查项：逐项列出，问题的 ruleId 使用检查项标识
+        prompt.append("## 检查项信息\n");
+        prompt.append("- 维度: ").append(groupKey).append("\n");
+        prompt.append("- 本次需要同时完成以下 ").append(checkItems.size()).append(" 个检查项\n\n");
+        for (int i = 0; i < checkItems.size(); i++) {
+            QualityCheckConfig checkItem = checkItems.get(i);
+            prompt.append("### 检查项 ").append(i + 1).append(": ").append(checkItem.getItemName()).append("\n");
+            prompt.append("- 标识(ruleId): ").append(checkItem.getItemKey()).append("\n");
+            if (checkItem.getDescription() != null && !checkItem.getDescription().isEmpty()) {
+                prompt.append("- 描述: ").append(checkItem.getDescription()).append("\n");
+            }
+            String cleanedTemplate = cleanedRequirements(checkItem);
+            if (!cleanedTemplate.isEmpty()) {
+                prompt.append("- 检查要求:\n").append(cleanedTemplate).append("\n");
+            }
+            prompt.append("\n");
+        }
+
+        return prompt.toString();
+    }
+
+    /**
+     * 检查项的检查要求（清理后的提示词模板），没有时返回空串
+     */
+    private String cleanedRequirements(QualityCheckConfig checkItem) {
+        String promptTemplate = checkItem.getPromptTemplate();
+        if (promptTemplate == null || promptTemplate.isEmpty() || promptTemplate.equals("略")) {
+            return "";
+        }
+        return cleanPromptTemplate(promptTemplate);
+    }
 
-        logger.info("Built prompt with {} chars, code content: {} chars",
-            prompt.length(), codeContent.length());
+    /**
+     * 构建提示词的输出要求部分（要求 JSON 输出）
+     */
+    private String buildOutputRequirements(List<QualityCheckConfig> checkItems) {
+        StringBuilder prompt = new StringBuilder();
 
         // JSON 输出格式要求
         prompt.append("## 输出要求\n");
@@ -579,6 +897,11 @@ public class ScanTaskManager {
         prompt.append("}\n");
         prompt.append("```\n\n");
 
+        prompt.append("代码可能分为多个部分分别检查，只需报告本部分代码中的问题；")
+              .append("标注了行号范围的文件片段，行号按原文件计算。\n");
+        if (checkItems.size() > 1) {
+            prompt.append("每个问题的 ruleId 必须填写其所属检查项的标识(ruleId)，所有检查项的问题放在同一个 issues 数组中。\n");
+        }
         prompt.append("请仔细分析代码，找出所有相关问题，并按照上述 JSON 格式输出结果。\n");
 
         return prompt.toString();
@@ -612,104 +935,6 @@ public class ScanTaskManager {
         return result.trim();
     }
 
-    /**
-     * 读取代码内容
-     */
-    private String readCodeContent(String localPath) {
-        StringBuilder content = new StringBuilder();
-        File rootDir = new File(localPath);
-
-        logger.info("Reading code content from path: {}", localPath);
-
-        if (!rootDir.exists()) {
-            logger.error("Code path does not exist: {}", localPath);
-            return "错误：代码路径不存在: " + localPath + "\n";
-        }
-
-        if (!rootDir.isDirectory()) {
-            logger.error("Code path is not a directory: {}", localPath);
-            return "错误：代码路径不是目录: " + localPath + "\n";
-        }
-
-        List<File> sourceFiles = new ArrayList<>();
-        scanSourceFiles(rootDir, sourceFiles, rootDir.getAbsolutePath());
-
-        logger.info("Found {} source files in {}", sourceFiles.size(), localPath);
-
-        if (sourceFiles.isEmpty()) {
-            logger.warn("No source code files found in: {}", localPath);
-            return "未找到源代码文件，路径: " + localPath + "\n";
-        }
-
-        long totalSize = 0;
-        int fileCount = 0;
-
-        for (File file : sourceFiles) {
-            if (fileCount >= MAX_FILES || totalSize >= MAX_TOTAL_SIZE) {
-                break;
-            }
-
-            try {
-                String fileContent = Files.readString(file.toPath());
-                String relativePath = file.getAbsolutePath();
-                if (relativePath.startsWith(localPath)) {
-                    relativePath = relativePath.substring(localPath.length());
-                    if (relativePath.startsWith("/")) {
-                        relativePath = relativePath.substring(1);
-                    }
-                }
-
-                // 截断过长的文件
-                if (fileContent.length() > MAX_SIZE_PER_FILE) {
-                    fileContent = fileContent.substring(0, MAX_SIZE_PER_FILE) + "\n... (文件过长，已截断)";
-                }
-
-                content.append("### 文件: ").append(relativePath).append("\n");
-                content.append("```\n").append(fileContent).append("\n```\n\n");
-
-                totalSize += fileContent.length();
-                fileCount++;
-
-            } catch (Exception e) {
-                logger.warn("Failed to read file {}: {}", file.getPath(), e.getMessage());
-            }
-        }
-
-        if (sourceFiles.size() > fileCount) {
-            content.append("... 还有 ").append(sourceFiles.size() - fileCount).append(" 个文件未显示\n");
-        }
-
-        content.append("共读取 ").append(fileCount).append(" 个文件，约 ")
-               .append(totalSize / 1024).append(" KB\n");
-
-        return content.toString();
-    }
-
-    /**
-     * 递归扫描源代码文件
-     */
-    private void scanSourceFiles(File dir, List<File> files, String rootPath) {
-        File[] children = dir.listFiles();
-        if (children == null) return;
-
-        for (File child : children) {
-            if (child.isDirectory()) {
-                // 跳过排除的目录
-                if (!EXCLUDED_DIRS.contains(child.getName())) {
-                    scanSourceFiles(child, files, rootPath);
-                }
-            } else if (child.isFile()) {
-                String name = child.getName().toLowerCase();
-                for (String ext : CODE_EXTENSIONS) {
-                    if (name.endsWith(ext)) {
-                        files.add(child);
-                        break;
-                    }
-                }
-            }
-        }
-    }
-
     /**
      * 从检查项 key 获取类别
      */
@@ -1026,4 +1251,11 @@ public class ScanTaskManager {
         int completed = taskMapper.countCompletedByScanId(scanId);
         return calculateProgress(completed, total);
     }
+
+    /**
+     * 获取 LLM 任务调度统计
+     */
+    public Map<String, Object> getSchedulerStats() {
+        return llmTaskScheduler.getStats();
+    }
 }
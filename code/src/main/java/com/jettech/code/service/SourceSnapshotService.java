@@ -0,0 +1,203 @@
+package com.jettech.code.service;
+
+import com.jettech.code.source.SourceChunker;
+import com.jettech.code.source.SourceSnapshot;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 代码质量扫描的源代码快照
+ * 每次扫描中每个服务只遍历、读取一次源文件（按路径排序，同目录的文件相邻），按 token 预算打包成分片，
+ * 写入映射文件供该服务的所有检查项复用；扫描结束时释放
+ */
+@Service
+public class SourceSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SourceSnapshotService.class);
+
+    // 代码文件扩展名
+    private static final Set<String> CODE_EXTENSIONS = new HashSet<>(Arrays.asList(
+        ".java", ".ts", ".tsx", ".js", ".jsx", ".py", ".go", ".vue", ".kt", ".scala", ".rs", ".c", ".cpp", ".h", ".cs"
+    ));
+
+    // 排除的目录
+    private static final Set<String> EXCLUDED_DIRS = new HashSet<>(Arrays.asList(
+        "target", "node_modules", ".git", "build", "dist", ".idea", ".vscode", "vendor", "__pycache__", ".mvn", "gradle"
+    ));
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    /**
+     * 每个分片的代码 token 预算（估算值，不含检查要求和输出格式）
+     */
+    @Value("${code-quality.chunk.max-tokens:32000}")
+    private int maxTokens;
+
+    /**
+     * 超过该大小的文件视为生成代码或压缩产物，不参与分析
+     */
+    @Value("${code-quality.chunk.max-file-bytes:524288}")
+    private long maxFileBytes;
+
+    @Value("${code-quality.snapshot.dir:${java.io.tmpdir}/jetto-code-snapshots}")
+    private String snapshotDir;
+
+    // 扫描ID:服务ID -> 快照，同一服务的多个任务同时请求时只构建一次
+    private final ConcurrentHashMap<String, CompletableFuture<SourceSnapshot>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * 清理上次运行异常退出时遗留的快照文件
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Path dir = Paths.get(snapshotDir);
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(dir, "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : stale) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * 获取服务在本次扫描中的源代码快照，首次调用时构建
+     * @throws IllegalArgumentException 代码路径不存在或不是目录
+     */
+    public SourceSnapshot getSnapshot(Long scanId, Long serviceId, String localPath) throws IOException {
+        CompletableFuture<SourceSnapshot> created = new CompletableFuture<>();
+        CompletableFuture<SourceSnapshot> existing = snapshots.putIfAbsent(key(scanId, serviceId), created);
+        if (existing == null) {
+            try {
+                created.complete(createSnapshot(scanId, serviceId, localPath));
+            } catch (Exception e) {
+                created.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return (existing != null ? existing : created).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 释放扫描的全部快照，扫描结束（完成、失败或取消）时调用
+     */
+    public void release(Long scanId) {
+        String prefix = scanId + ":";
+        snapshots.entrySet().removeIf(entry -> {
+            if (!entry.getKey().startsWith(prefix)) {
+                return false;
+            }
+            SourceSnapshot snapshot = entry.getValue().getNow(null);
+            if (snapshot != null) {
+                try {
+                    snapshot.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to delete source snapshot {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+            return true;
+        });
+    }
+
+    private SourceSnapshot createSnapshot(Long scanId, Long serviceId, String localPath) throws IOException {
+        File rootDir = new File(localPath);
+        if (!rootDir.isDirectory()) {
+            throw new IllegalArgumentException("代码路径不存在或不是目录: " + localPath);
+        }
+
+        long start = System.currentTimeMillis();
+        List<File> sourceFiles = new ArrayList<>();
+        scanSourceFiles(rootDir, sourceFiles);
+
+        String rootPath = rootDir.getAbsolutePath();
+        Path file = Paths.get(snapshotDir, "scan-" + scanId + "-service-" + serviceId + SNAPSHOT_SUFFIX);
+        try (SourceSnapshot.Writer writer = new SourceSnapshot.Writer(file)) {
+            SourceChunker chunker = new SourceChunker(maxTokens, writer);
+            for (File source : sourceFiles) {
+                if (source.length() > maxFileBytes) {
+                    logger.debug("Skipping oversized source file {} ({} bytes)", source.getPath(), source.length());
+                    continue;
+                }
+                try {
+                    chunker.add(relativePath(rootPath, source), Files.readString(source.toPath()));
+                } catch (IOException e) {
+                    logger.warn("Failed to read file {}: {}", source.getPath(), e.getMessage());
+                }
+            }
+            chunker.finish();
+
+            SourceSnapshot snapshot = writer.finish();
+            logger.info("Created source snapshot for scan {} service {}: {} of {} files, {} chunks, {} KB in {}ms",
+                scanId, serviceId, snapshot.getFileCount(), sourceFiles.size(), snapshot.getChunkCount(),
+                snapshot.getSizeBytes() / 1024, System.currentTimeMillis() - start);
+            return snapshot;
+        }
+    }
+
+    /**
+     * 递归扫描源代码文件，按名称排序
+     */
+    private void scanSourceFiles(File dir, List<File> files) {
+        File[] children = dir.listFiles();
+        if (children == null) return;
+        Arrays.sort(children, Comparator.comparing(File::getName));
+
+        for (File child : children) {
+            if (child.isDirectory()) {
+                // 跳过排除的目录
+                if (!EXCLUDED_DIRS.contains(child.getName())) {
+                    scanSourceFiles(child, files);
+                }
+            } else if (child.isFile()) {
+                String name = child.getName().toLowerCase();
+                for (String ext : CODE_EXTENSIONS) {
+                    if (name.endsWith(ext)) {
+                        files.add(child);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static String key(Long scanId, Long serviceId) {
+        return scanId + ":" + serviceId;
+    }
+
+    private static String relativePath(String rootPath, File file) {
+        String path = file.getAbsolutePath();
+        if (path.startsWith(rootPath)) {
+            path = path.substring(rootPath.length());
+        }
+        path = path.replace('\\', '/');
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+}
@@ -1,5 +1,6 @@
 package com.jettech.code.service;
 
+import com.jettech.code.client.OutboundHttpInterceptor;
 import com.jettech.code.entity.Dependency;
 import com.jettech.code.entity.SecurityScan;
 import com.jettech.code.entity.Vulnerability;
@@ -7,15 +8,14 @@ import com.jettech.code.mapper.DependencyMapper;
 import com.jettech.code.mapper.SecurityScanMapper;
 import com.jettech.code.mapper.VulnerabilityMapper;
 import com.jettech.code.mapper.ServiceMapper;
-import com.jettech.code.parser.DependencyParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -28,27 +28,42 @@ public class SupplyChainService {
     private final VulnerabilityMapper vulnerabilityMapper;
     private final SecurityScanMapper securityScanMapper;
     private final ServiceMapper serviceMapper;
-    private final List<DependencyParser> dependencyParsers;
+    private final DependencyDiscoveryService discoveryService;
     private final LicenseDetector licenseDetector;
     private final VulnerabilityChecker vulnerabilityChecker;
     private final AsyncScanService asyncScanService;
+    private final ObjectProvider<OsvMirrorService> osvMirrorService;
+    private final ManifestHashService manifestHashService;
+    private final OutboundHttpInterceptor outboundHttpInterceptor;
+    private final DependencyGraphService dependencyGraphService;
+    private final DependencyCoordinateService coordinateService;
 
     public SupplyChainService(DependencyMapper dependencyMapper, 
                              VulnerabilityMapper vulnerabilityMapper,
                              SecurityScanMapper securityScanMapper,
                              ServiceMapper serviceMapper,
-                             List<DependencyParser> dependencyParsers,
+                             DependencyDiscoveryService discoveryService,
                              LicenseDetector licenseDetector,
                              VulnerabilityChecker vulnerabilityChecker,
-                             AsyncScanService asyncScanService) {
+                             AsyncScanService asyncScanService,
+                             ObjectProvider<OsvMirrorService> osvMirrorService,
+                             ManifestHashService manifestHashService,
+                             OutboundHttpInterceptor outboundHttpInterceptor,
+                             DependencyGraphService dependencyGraphService,
+                             DependencyCoordinateService coordinateService) {
         this.dependencyMapper = dependencyMapper;
         this.vulnerabilityMapper = vulnerabilityMapper;
         this.securityScanMapper = securityScanMapper;
         this.serviceMapper = serviceMapper;
-        this.dependencyParsers = dependencyParsers;
+        this.discoveryService = discoveryService;
         this.licenseDetector = licenseDetector;
         this.vulnerabilityChecker = vulnerabilityChecker;
         this.asyncScanService = asyncScanService;
+        this.osvMirrorService = osvMirrorService;
+        this.manifestHashService = manifestHashService;
+        this.outboundHttpInterceptor = outboundHttpInterceptor;
+        this.dependencyGraphService = dependencyGraphService;
+        this.coordinateService = coordinateService;
     }
 
     public List<Dependency> getDependencies(Long serviceId) {
@@ -59,6 +74,18 @@ public class SupplyChainService {
         return dependencyMapper.findById(id);
     }
 
+    public Map<String, Object> getDependencyGraph(Long serviceId) {
+        return dependencyGraphService.getGraphData(serviceId);
+    }
+
+    public List<List<Dependency>> getDependencyPaths(Long dependencyId, int limit) {
+        return dependencyGraphService.getPathsTo(dependencyId, limit);
+    }
+
+    public List<Map<String, Object>> getVulnerableDependencyPaths(Long serviceId, int limit) {
+        return dependencyGraphService.getVulnerablePaths(serviceId, limit);
+    }
+
     public List<SecurityScan> getScans(Long serviceId) {
         return securityScanMapper.findByServiceId(serviceId);
     }
@@ -88,6 +115,37 @@ public class SupplyChainService {
         return vulnerabilityMapper.findByDependencyId(dependencyId);
     }
 
+    public Map<String, Object> getVulnerabilityCacheStats() {
+        return vulnerabilityChecker.getCacheStats();
+    }
+
+    public Map<String, Object> getVulnerabilitySourceStats() {
+        return vulnerabilityChecker.getSourceStats();
+    }
+
+    public Map<String, Object> getLicenseCacheStats() {
+        return licenseDetector.getCacheStats();
+    }
+
+    public Map<String, Object> getCoordinateStats() {
+        return coordinateService.getStats();
+    }
+
+    public Map<String, Object> getHttpClientStats() {
+        return outboundHttpInterceptor.getStats();
+    }
+
+    /**
+     * 重新导入 OSV 离线镜像（增量），未启用镜像时抛出异常
+     */
+    public Map<String, Object> importOsvMirror() {
+        OsvMirrorService mirrorService = osvMirrorService.getIfAvailable();
+        if (mirrorService == null) {
+            throw new IllegalStateException("OSV mirror is not enabled");
+        }
+        return mirrorService.importAll();
+    }
+
     @Transactional
     public List<Dependency> parseDependencies(Long serviceId) throws Exception {
         com.jettech.code.entity.ServiceEntity service = serviceMapper.findById(serviceId);
@@ -140,36 +198,26 @@ public class SupplyChainService {
 
     private List<Dependency> generateSBOM(Long serviceId, String localPath) throws Exception {
         dependencyMapper.deleteByServiceId(serviceId);
-        List<Dependency> allDependencies = new ArrayList<>();
+        // 依赖被重建且未检查漏洞，下次扫描不能复用
+        manifestHashService.clear(serviceId);
 
         File projectDir = new File(localPath);
         if (!projectDir.exists() || !projectDir.isDirectory()) {
             throw new IllegalArgumentException("Project directory not found: " + localPath);
         }
 
-        for (DependencyParser parser : dependencyParsers) {
-            if (parser.supports(projectDir)) {
-                try {
-                    logger.info("Parsing dependencies with {} parser", parser.getEcosystem());
-                    List<Dependency> dependencies = parser.parse(serviceId, projectDir);
-                    
-                    for (Dependency dep : dependencies) {
-                        licenseDetector.detectLicense(dep, localPath);
-                    }
-                    
-                    allDependencies.addAll(dependencies);
-                    logger.info("Found {} dependencies with {} parser", dependencies.size(), parser.getEcosystem());
-                } catch (Exception e) {
-                    logger.error("Failed to parse dependencies with {} parser: {}", 
-                                parser.getEcosystem(), e.getMessage());
-                }
-            }
-        }
+        List<Dependency> allDependencies = discoveryService.discoverAndParse(serviceId, projectDir);
+        List<Dependency> timedOut = coordinateService.detectLicenses(allDependencies, localPath);
 
         if (!allDependencies.isEmpty()) {
             dependencyMapper.batchInsert(allDependencies);
             List<Dependency> savedDeps = dependencyMapper.findByServiceId(serviceId);
             logger.info("Saved {} dependencies with IDs", savedDeps.size());
+            dependencyGraphService.saveEdges(serviceId, allDependencies, savedDeps);
+            licenseDetector.retryInBackground(timedOut, savedDeps, localPath, dep -> {
+                dependencyMapper.update(dep);
+                coordinateService.recordLicense(dep);
+            });
             return savedDeps;
         }
 
@@ -2,9 +2,11 @@ package com.jettech.code.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.jettech.code.dto.VulnerabilityInfo;
+import com.jettech.code.advisory.Advisory;
+import com.jettech.code.advisory.AdvisoryIndex;
 import com.jettech.code.entity.VulnerabilityCache;
 import com.jettech.code.mapper.VulnerabilityCacheMapper;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,62 +15,135 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 包级别漏洞公告缓存
+ * 以 包名:生态系统 为键缓存该包全部公告及受影响范围，具体版本在本地匹配，
+ * 同一个库的不同版本共享同一条缓存
+ */
 @Service
 public class VulnerabilityCacheService {
     
     private static final Logger logger = LoggerFactory.getLogger(VulnerabilityCacheService.class);
     
+    /**
+     * vulnerability_cache.source 标记，用于区分旧的按版本缓存的数据格式
+     */
+    private static final String CACHE_FORMAT = "ADVISORY";
+    
     private final VulnerabilityCacheMapper vulnerabilityCacheMapper;
     private final ObjectMapper objectMapper;
     
     @Value("${vulnerability.cache.expire-hours:24}")
     private int cacheExpireHours;
     
+    /**
+     * 无公告结果（负缓存）的过期时间，短于正常结果以便尽快发现新披露的漏洞
+     */
+    @Value("${vulnerability.cache.negative-expire-hours:6}")
+    private int negativeExpireHours;
+    
+    @Value("${vulnerability.cache.memory.max-entries:20000}")
+    private int memoryMaxEntries;
+    
+    // 进程内 LRU 缓存，位于 vulnerability_cache 表之前，避免每次命中都查库、反序列化和编译范围
+    private Map<String, CacheEntry> memoryCache;
+    
+    // 命中统计
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
     public VulnerabilityCacheService(VulnerabilityCacheMapper vulnerabilityCacheMapper, 
                                       ObjectMapper objectMapper) {
         this.vulnerabilityCacheMapper = vulnerabilityCacheMapper;
         this.objectMapper = objectMapper;
     }
     
-    public List<VulnerabilityInfo> get(String packageName, String ecosystem, String version) {
-        VulnerabilityCache cache = vulnerabilityCacheMapper.findByPackagePatternAndEcosystem(
-            buildCacheKey(packageName, ecosystem, version), ecosystem);
+    @PostConstruct
+    public void init() {
+        memoryCache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > memoryMaxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    public AdvisoryIndex get(String packageName, String ecosystem) {
+        String cacheKey = buildCacheKey(packageName, ecosystem);
         
-        if (cache != null && !isExpired(cache)) {
-            return deserializeVulnerabilities(cache.getRawData());
+        CacheEntry entry = getFromMemory(cacheKey);
+        if (entry != null) {
+            memoryHits.increment();
+            return entry.advisories();
         }
         
+        VulnerabilityCache cache = vulnerabilityCacheMapper.findByPackagePatternAndEcosystem(cacheKey, ecosystem);
+        
+        if (cache != null && CACHE_FORMAT.equals(cache.getSource()) && !isExpired(cache)) {
+            List<Advisory> stored = deserializeAdvisories(cache.getRawData());
+            if (stored == null) {
+                // 损坏的缓存行按未命中处理并删除，由调用方重新查询数据源
+                vulnerabilityCacheMapper.deleteById(cache.getId());
+                misses.increment();
+                return null;
+            }
+            AdvisoryIndex advisories = new AdvisoryIndex(ecosystem, stored);
+            putToMemory(cacheKey, new CacheEntry(advisories, cache.getExpiresAt()));
+            databaseHits.increment();
+            return advisories;
+        }
+        
+        misses.increment();
         return null;
     }
     
+    /**
+     * 保存包的全部公告，空列表同样缓存（负缓存），使用单独的过期时间
+     * 返回编译好的索引，调用方可直接用于版本匹配
+     */
     @Transactional
-    public void save(String packageName, String ecosystem, String version, List<VulnerabilityInfo> vulnerabilities) {
-        if (vulnerabilities == null || vulnerabilities.isEmpty()) {
-            return;
-        }
-        
-        String cacheKey = buildCacheKey(packageName, ecosystem, version);
+    public AdvisoryIndex save(String packageName, String ecosystem, List<Advisory> advisories) {
+        String cacheKey = buildCacheKey(packageName, ecosystem);
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(
+            advisories.isEmpty() ? negativeExpireHours : cacheExpireHours);
         
         vulnerabilityCacheMapper.deleteByPackagePattern(cacheKey);
         
         VulnerabilityCache cache = new VulnerabilityCache();
         cache.setPackagePattern(cacheKey);
         cache.setEcosystem(ecosystem);
-        cache.setSource("MULTI");
+        cache.setSource(CACHE_FORMAT);
         cache.setPriority(0);
         cache.setCreatedAt(LocalDateTime.now());
-        cache.setExpiresAt(LocalDateTime.now().plusHours(cacheExpireHours));
-        cache.setRawData(serializeVulnerabilities(vulnerabilities));
+        cache.setExpiresAt(expiresAt);
+        cache.setRawData(serializeAdvisories(advisories));
         
         vulnerabilityCacheMapper.insert(cache);
         
-        logger.info("Cached {} vulnerabilities for {}@{} in {}", vulnerabilities.size(), packageName, version, ecosystem);
+        AdvisoryIndex index = new AdvisoryIndex(ecosystem, advisories);
+        putToMemory(cacheKey, new CacheEntry(index, expiresAt));
+        
+        logger.debug("Cached {} advisories for {} in {}", advisories.size(), packageName, ecosystem);
+        return index;
     }
     
     public void clearExpired() {
         int deleted = vulnerabilityCacheMapper.deleteExpired();
+        synchronized (memoryCache) {
+            LocalDateTime now = LocalDateTime.now();
+            memoryCache.values().removeIf(entry -> entry.isExpired(now));
+        }
         if (deleted > 0) {
             logger.info("Cleared {} expired cache entries", deleted);
         }
@@ -76,38 +151,88 @@ public class VulnerabilityCacheService {
     
     public void clearAll() {
         vulnerabilityCacheMapper.clearAll();
+        synchronized (memoryCache) {
+            memoryCache.clear();
+        }
         logger.info("Cleared all vulnerability cache");
     }
     
-    private String buildCacheKey(String packageName, String ecosystem, String version) {
-        return packageName + ":" + ecosystem + ":" + version;
+    /**
+     * 缓存命中统计
+     */
+    public Map<String, Object> getStats() {
+        long memory = memoryHits.sum();
+        long database = databaseHits.sum();
+        long miss = misses.sum();
+        long total = memory + database + miss;
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (memoryCache) {
+            stats.put("memorySize", memoryCache.size());
+        }
+        stats.put("memoryMaxEntries", memoryMaxEntries);
+        stats.put("memoryHits", memory);
+        stats.put("databaseHits", database);
+        stats.put("misses", miss);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (memory + database) / total);
+        return stats;
+    }
+    
+    private CacheEntry getFromMemory(String cacheKey) {
+        synchronized (memoryCache) {
+            CacheEntry entry = memoryCache.get(cacheKey);
+            if (entry != null && entry.isExpired(LocalDateTime.now())) {
+                memoryCache.remove(cacheKey);
+                return null;
+            }
+            return entry;
+        }
+    }
+    
+    private void putToMemory(String cacheKey, CacheEntry entry) {
+        synchronized (memoryCache) {
+            memoryCache.put(cacheKey, entry);
+        }
+    }
+    
+    private String buildCacheKey(String packageName, String ecosystem) {
+        return packageName + ":" + ecosystem;
     }
     
     private boolean isExpired(VulnerabilityCache cache) {
         return cache.getExpiresAt() != null && cache.getExpiresAt().isBefore(LocalDateTime.now());
     }
     
-    private String serializeVulnerabilities(List<VulnerabilityInfo> vulnerabilities) {
+    private String serializeAdvisories(List<Advisory> advisories) {
         try {
-            return objectMapper.writeValueAsString(vulnerabilities);
+            return objectMapper.writeValueAsString(advisories);
         } catch (JsonProcessingException e) {
-            logger.error("Failed to serialize vulnerabilities", e);
+            logger.error("Failed to serialize advisories", e);
             return "[]";
         }
     }
     
-    @SuppressWarnings("unchecked")
-    private List<VulnerabilityInfo> deserializeVulnerabilities(String rawData) {
+    /**
+     * 反序列化失败时返回 null
+     */
+    private List<Advisory> deserializeAdvisories(String rawData) {
         if (rawData == null || rawData.isEmpty()) {
             return new ArrayList<>();
         }
         
         try {
             return objectMapper.readValue(rawData, 
-                objectMapper.getTypeFactory().constructCollectionType(List.class, VulnerabilityInfo.class));
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Advisory.class));
         } catch (JsonProcessingException e) {
-            logger.error("Failed to deserialize vulnerabilities", e);
-            return new ArrayList<>();
+            logger.warn("Discarding corrupt advisory cache entry: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private record CacheEntry(AdvisoryIndex advisories, LocalDateTime expiresAt) {
+        boolean isExpired(LocalDateTime now) {
+            return expiresAt != null && expiresAt.isBefore(now);
         }
     }
 }
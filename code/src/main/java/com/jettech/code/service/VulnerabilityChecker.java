@@ -1,5 +1,6 @@
 package com.jettech.code.service;
 
+import com.jettech.code.dto.PackageCoordinate;
 import com.jettech.code.dto.VulnerabilityInfo;
 import com.jettech.code.entity.Dependency;
 import com.jettech.code.entity.Vulnerability;
@@ -11,7 +12,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -82,33 +82,20 @@ public class VulnerabilityChecker {
         
         logger.info("Batch checking vulnerabilities for {} dependencies", validDependencies.size());
         
-        List<CompletableFuture<Void>> futures = validDependencies.stream()
-            .map(dep -> CompletableFuture.runAsync(() -> {
-                try {
-                    String ecosystem = mapEcosystem(dep.getType());
-                    List<VulnerabilityInfo> vulnInfos = multiSourceService.queryAllSources(
-                        dep.getName(), ecosystem, dep.getVersion()
-                    );
-                    
-                    List<Vulnerability> vulns = vulnInfos.stream()
-                        .map(info -> convertToVulnerability(dep.getId(), info))
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
-                    
-                    synchronized (results) {
-                        results.put(dep.getId(), vulns);
-                    }
-                } catch (Exception e) {
-                    logger.error("Failed to check vulnerabilities for {}@{}: {}", 
-                        dep.getName(), dep.getVersion(), e.getMessage());
-                    synchronized (results) {
-                        results.put(dep.getId(), List.of());
-                    }
-                }
-            }))
+        List<PackageCoordinate> coordinates = validDependencies.stream()
+            .map(dep -> new PackageCoordinate(dep.getName(), mapEcosystem(dep.getType()), dep.getVersion()))
             .collect(Collectors.toList());
         
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        Map<PackageCoordinate, List<VulnerabilityInfo>> vulnLookup = multiSourceService.queryAllSourcesBatch(coordinates);
+        
+        for (int i = 0; i < validDependencies.size(); i++) {
+            Dependency dep = validDependencies.get(i);
+            List<Vulnerability> vulns = vulnLookup.getOrDefault(coordinates.get(i), List.of()).stream()
+                .map(info -> convertToVulnerability(dep.getId(), info))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+            results.put(dep.getId(), vulns);
+        }
         
         List<Vulnerability> allVulnerabilities = results.values().stream()
             .flatMap(List::stream)
@@ -181,4 +168,12 @@ public class VulnerabilityChecker {
     public void clearExpiredCache() {
         multiSourceService.clearExpiredCache();
     }
+    
+    public Map<String, Object> getCacheStats() {
+        return multiSourceService.getCacheStats();
+    }
+    
+    public Map<String, Object> getSourceStats() {
+        return multiSourceService.getSourceStats();
+    }
 }
@@ -0,0 +1,174 @@
+package com.jettech.code.source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 按 token 预算把源文件打包成分片
+ * 文件按加入顺序依次装入当前分片，装不下时开启新分片，文件不跨分片；
+ * 单个文件超过预算时按行切段，尽量在函数/类成员边界（缩进不超过一级、前一行为空行或右括号）处切开
+ * 分片装满后立即交给 sink，调用方可以边读边写出，不必持有全部代码
+ */
+public final class SourceChunker {
+
+    // 每个文件段的标题和代码围栏
+    private static final int SEGMENT_OVERHEAD_TOKENS = 20;
+
+    private final int maxTokens;
+    private final Consumer<SourceChunk> sink;
+    private List<Segment> current = new ArrayList<>();
+    private int currentTokens;
+
+    public SourceChunker(int maxTokens, Consumer<SourceChunk> sink) {
+        this.maxTokens = Math.max(1000, maxTokens);
+        this.sink = sink;
+    }
+
+    public void add(String path, String content) {
+        int tokens = estimateTokens(content) + SEGMENT_OVERHEAD_TOKENS;
+        if (tokens <= maxTokens) {
+            int lines = countLines(content);
+            append(new Segment(path, 1, lines, lines, content), tokens);
+        } else {
+            split(path, content);
+        }
+    }
+
+    public void finish() {
+        flush();
+    }
+
+    /**
+     * 估算 token 数：ASCII 约 4 个字符一个 token，其他字符（中文注释等）按一个字符一个 token
+     */
+    public static int estimateTokens(CharSequence text) {
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return ascii / 4 + other;
+    }
+
+    private void split(String path, String content) {
+        String[] lines = content.split("\n", -1);
+        int[] lineTokens = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            lineTokens[i] = estimateTokens(lines[i]) + 1;
+        }
+
+        int budget = maxTokens - SEGMENT_OVERHEAD_TOKENS;
+        int start = 0;
+        while (start < lines.length) {
+            int tokens = 0;
+            int end = start;
+            int boundary = -1;
+            while (end < lines.length && (end == start || tokens + lineTokens[end] <= budget)) {
+                tokens += lineTokens[end++];
+                if (end < lines.length && isBoundary(lines, end)) {
+                    boundary = end;
+                }
+            }
+            // 边界过于靠前时直接按预算切开，避免产生大量很小的段
+            if (end < lines.length && boundary > start + (end - start) / 2) {
+                end = boundary;
+            }
+
+            int segmentTokens = SEGMENT_OVERHEAD_TOKENS;
+            for (int i = start; i < end; i++) {
+                segmentTokens += lineTokens[i];
+            }
+            String text = String.join("\n", Arrays.asList(lines).subList(start, end));
+            append(new Segment(path, start + 1, end, lines.length, text), segmentTokens);
+            start = end;
+        }
+    }
+
+    /**
+     * 是否可以在第 index 行之前切开
+     */
+    private static boolean isBoundary(String[] lines, int index) {
+        String line = lines[index];
+        if (line.isBlank() || indentation(line) > 4) {
+            return false;
+        }
+        String previous = lines[index - 1].trim();
+        return previous.isEmpty() || previous.endsWith("}") || previous.endsWith("};");
+    }
+
+    private static int indentation(String line) {
+        int width = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ' ') {
+                width++;
+            } else if (c == '\t') {
+                width += 4;
+            } else {
+                break;
+            }
+        }
+        return width;
+    }
+
+    private void append(Segment segment, int tokens) {
+        if (!current.isEmpty() && currentTokens + tokens > maxTokens) {
+            flush();
+        }
+        current.add(segment);
+        currentTokens += tokens;
+    }
+
+    private void flush() {
+        if (!current.isEmpty()) {
+            sink.accept(new SourceChunk(List.copyOf(current), currentTokens));
+            current = new ArrayList<>();
+            currentTokens = 0;
+        }
+    }
+
+    private static int countLines(String content) {
+        int lines = 1;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 文件段，行号从 1 开始且包含两端；整个文件时 startLine 为 1、endLine 等于 totalLines
+     */
+    public record Segment(String path, int startLine, int endLine, int totalLines, String content) {
+
+        public boolean isPartial() {
+            return startLine > 1 || endLine < totalLines;
+        }
+    }
+
+    /**
+     * 一次 LLM 调用的代码内容
+     */
+    public record SourceChunk(List<Segment> segments, int estimatedTokens) {
+
+        public String render() {
+            StringBuilder content = new StringBuilder();
+            for (Segment segment : segments) {
+                content.append("### 文件: ").append(segment.path());
+                if (segment.isPartial()) {
+                    content.append("（第 ").append(segment.startLine()).append("-").append(segment.endLine())
+                           .append(" 行，共 ").append(segment.totalLines()).append(" 行）");
+                }
+                content.append("\n```\n").append(segment.content()).append("\n```\n\n");
+            }
+            return content.toString();
+        }
+    }
+}
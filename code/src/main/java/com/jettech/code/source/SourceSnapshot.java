@@ -0,0 +1,153 @@
+package com.jettech.code.source;
+
+import com.jettech.code.source.SourceChunker.SourceChunk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 服务源代码快照（只读，线程安全）
+ * 各分片渲染后的代码按 UTF-8 顺序写入临时文件并以只读方式映射，代码内容不占用堆内存；
+ * 堆上只保留每个分片的偏移、长度和 token 估算，取用时再解码为字符串
+ */
+public final class SourceSnapshot implements Closeable {
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] tokens;
+    private final int fileCount;
+
+    private SourceSnapshot(Path file, MappedByteBuffer buffer, int[] offsets, int[] lengths, int[] tokens, int fileCount) {
+        this.file = file;
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.tokens = tokens;
+        this.fileCount = fileCount;
+    }
+
+    public int getChunkCount() {
+        return offsets.length;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getEstimatedTokens() {
+        long total = 0;
+        for (int t : tokens) {
+            total += t;
+        }
+        return total;
+    }
+
+    public long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * 分片的代码内容，格式同 {@link SourceChunk#render()}
+     */
+    public String render(int index) {
+        return StandardCharsets.UTF_8.decode(buffer.slice(offsets[index], lengths[index])).toString();
+    }
+
+    /**
+     * 代码内容概要
+     */
+    public String describe() {
+        if (offsets.length == 0) {
+            return "未找到源代码文件\n";
+        }
+        return "共 " + fileCount + " 个文件，分为 " + offsets.length + " 个部分，约 " + getEstimatedTokens() + " tokens\n";
+    }
+
+    /**
+     * 删除快照文件；映射在缓冲区被回收后释放
+     */
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * 快照写入器，作为 {@link SourceChunker} 的 sink 使用
+     */
+    public static final class Writer implements Consumer<SourceChunk>, Closeable {
+
+        private final Path file;
+        private final FileChannel channel;
+        private final List<int[]> chunks = new ArrayList<>();
+        private final Set<String> paths = new HashSet<>();
+        private long position;
+        private boolean finished;
+
+        public Writer(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public void accept(SourceChunk chunk) {
+            byte[] bytes = chunk.render().getBytes(StandardCharsets.UTF_8);
+            if (position + bytes.length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("源代码快照超过 2GB: " + file);
+            }
+            try {
+                ByteBuffer source = ByteBuffer.wrap(bytes);
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunks.add(new int[]{(int) position, bytes.length, chunk.estimatedTokens()});
+            chunk.segments().forEach(segment -> paths.add(segment.path()));
+            position += bytes.length;
+        }
+
+        public SourceSnapshot finish() throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+            channel.close();
+            finished = true;
+
+            int[] offsets = new int[chunks.size()];
+            int[] lengths = new int[chunks.size()];
+            int[] tokens = new int[chunks.size()];
+            for (int i = 0; i < chunks.size(); i++) {
+                offsets[i] = chunks.get(i)[0];
+                lengths[i] = chunks.get(i)[1];
+                tokens[i] = chunks.get(i)[2];
+            }
+            return new SourceSnapshot(file, buffer, offsets, lengths, tokens, paths.size());
+        }
+
+        /**
+         * 未完成时关闭并删除文件
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -69,7 +69,9 @@ public class OpenCodeClient {
         this.timeout = timeout != null ? timeout : DEFAULT_TIMEOUT;
         this.objectMapper = new ObjectMapper();
 
+        // OpenCode 走明文 http，固定 HTTP/1.1，避免每个连接尝试 h2c 升级
         this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
                 .connectTimeout(DEFAULT_CONNECT_TIMEOUT)
                 .followRedirects(HttpClient.Redirect.NORMAL)
                 .build();
@@ -0,0 +1,90 @@
+package com.jettech.code.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 令牌桶限流器
+ * 按固定速率补充令牌，令牌不足时 acquire 排队等待而不是丢弃请求
+ *
+ * 使用示例:
+ * <pre>
+ * RateLimiter limiter = new RateLimiter(5.0 / 30, 5);  // 每 30 秒 5 次，允许突发 5 次
+ * limiter.acquire();
+ * restTemplate.exchange(...);
+ * </pre>
+ */
+public class RateLimiter {
+
+    private final double permitsPerSecond;
+    private final double maxBurst;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double availableTokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数，小于等于 0 表示不限流
+     * @param maxBurst 桶容量，即允许的最大突发请求数
+     */
+    public RateLimiter(double permitsPerSecond, int maxBurst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.maxBurst = Math.max(1, maxBurst);
+        this.availableTokens = this.maxBurst;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = this.lastRefillNanos;
+    }
+
+    /**
+     * 获取一个令牌，必要时阻塞等待
+     * 先预留令牌再等待，保证并发调用者按到达顺序获得配额
+     */
+    public void acquire() {
+        long waitNanos = 0;
+        lock.lock();
+        try {
+            if (permitsPerSecond > 0) {
+                refill();
+                availableTokens -= 1;
+                if (availableTokens < 0) {
+                    waitNanos = (long) (-availableTokens / permitsPerSecond * 1_000_000_000L);
+                }
+            }
+            waitNanos = Math.max(waitNanos, pausedUntilNanos - System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 暂停发放令牌（用于上游限流时的退避），期间所有调用者都会等待
+     */
+    public void pauseFor(long millis) {
+        lock.lock();
+        try {
+            pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        availableTokens = Math.min(maxBurst, availableTokens + elapsedSeconds * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+}
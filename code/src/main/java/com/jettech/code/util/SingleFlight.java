@@ -0,0 +1,118 @@
+package com.jettech.code.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并（single-flight）
+ * 同一个 key 同时只有一个调用者真正执行加载，其余并发调用者等待并共享同一结果
+ *
+ * 使用示例:
+ * <pre>
+ * SingleFlight&lt;String, Result&gt; flight = new SingleFlight&lt;&gt;();
+ * Result r = flight.execute(key, () -&gt; remoteQuery(key));
+ * </pre>
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // 搭便车（等待他人结果）的调用次数
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 执行单个 key 的加载
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 批量加载：未在执行中的 key 交给 loader 一次性加载，正在执行中的 key 等待已有结果
+     * loader 返回结果中缺失的 key，或等待的加载失败时，结果中对应值为 null
+     */
+    public Map<K, V> executeAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> waiting = new LinkedHashMap<>();
+
+        for (K key : keys) {
+            if (owned.containsKey(key) || waiting.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+            if (existing != null) {
+                coalesced.increment();
+                waiting.put(key, existing);
+            } else {
+                owned.put(key, mine);
+            }
+        }
+
+        Map<K, V> results = new HashMap<>();
+        if (!owned.isEmpty()) {
+            // 先完成自己负责的 key 再等待别人，避免两个批次互相等待
+            try {
+                Map<K, V> loaded = loader.apply(new ArrayList<>(owned.keySet()));
+                for (Map.Entry<K, CompletableFuture<V>> entry : owned.entrySet()) {
+                    V value = loaded.get(entry.getKey());
+                    entry.getValue().complete(value);
+                    results.put(entry.getKey(), value);
+                }
+            } catch (RuntimeException e) {
+                owned.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach(inFlight::remove);
+            }
+        }
+
+        for (Map.Entry<K, CompletableFuture<V>> entry : waiting.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                results.put(entry.getKey(), null);
+            }
+        }
+
+        return results;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,167 @@
+package com.jettech.code.version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 通用版本号
+ * 按分隔符及数字/字母边界切分为若干段：数字段按数值比较，字母段按常见预发布限定词
+ * (alpha < beta < milestone < rc < snapshot < release < sp) 排序，缺失的段视为 0 或正式版
+ *
+ * 使用示例:
+ * <pre>
+ * GenericVersion.parse("1.2.0-rc1").compareTo(GenericVersion.parse("v1.2")) &lt; 0
+ * </pre>
+ */
+public final class GenericVersion implements Version {
+
+    private static final int RELEASE_RANK = 6;
+
+    private final String raw;
+    // 数字段的数值；字母段为 -1
+    private final long[] numbers;
+    // 字母段的小写文本；数字段为 null
+    private final String[] qualifiers;
+
+    private GenericVersion(String raw, long[] numbers, String[] qualifiers) {
+        this.raw = raw;
+        this.numbers = numbers;
+        this.qualifiers = qualifiers;
+    }
+
+    public static GenericVersion parse(String version) {
+        String value = version == null ? "" : version.trim();
+        if (value.startsWith("v") || value.startsWith("V")) {
+            value = value.substring(1);
+        }
+        int plus = value.indexOf('+');
+        if (plus >= 0) {
+            value = value.substring(0, plus);
+        }
+
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean boundary = i == value.length() || isSeparator(value.charAt(i))
+                || (i > start && Character.isDigit(value.charAt(i)) != Character.isDigit(value.charAt(i - 1)));
+            if (boundary) {
+                if (i > start) {
+                    tokens.add(value.substring(start, i));
+                }
+                start = i < value.length() && isSeparator(value.charAt(i)) ? i + 1 : i;
+            }
+        }
+
+        long[] numbers = new long[tokens.size()];
+        String[] qualifiers = new String[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (Character.isDigit(token.charAt(0))) {
+                numbers[i] = parseNumber(token);
+            } else {
+                numbers[i] = -1;
+                qualifiers[i] = token.toLowerCase(Locale.ROOT);
+            }
+        }
+        return new GenericVersion(version, numbers, qualifiers);
+    }
+
+    @Override
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public int compareTo(Version version) {
+        if (!(version instanceof GenericVersion other)) {
+            return Version.compareMixed(this, version);
+        }
+        int length = Math.max(numbers.length, other.numbers.length);
+        for (int i = 0; i < length; i++) {
+            int result;
+            if (i >= numbers.length) {
+                result = -compareToMissing(other, i);
+            } else if (i >= other.numbers.length) {
+                result = compareToMissing(this, i);
+            } else {
+                result = compareSegment(this, other, i);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GenericVersion other && compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        // 末尾的 0 / 正式版限定词不影响比较结果，也不参与哈希
+        int end = numbers.length;
+        while (end > 0 && compareToMissing(this, end - 1) == 0) {
+            end--;
+        }
+        int hash = 1;
+        for (int i = 0; i < end; i++) {
+            hash = 31 * hash + (qualifiers[i] != null ? qualifiers[i].hashCode() : Long.hashCode(numbers[i]));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+
+    private static int compareSegment(GenericVersion a, GenericVersion b, int i) {
+        boolean aNumeric = a.qualifiers[i] == null;
+        boolean bNumeric = b.qualifiers[i] == null;
+        if (aNumeric && bNumeric) {
+            return Long.compare(a.numbers[i], b.numbers[i]);
+        }
+        if (aNumeric != bNumeric) {
+            return aNumeric ? 1 : -1;
+        }
+        int rank = Integer.compare(qualifierRank(a.qualifiers[i]), qualifierRank(b.qualifiers[i]));
+        return rank != 0 ? rank : a.qualifiers[i].compareTo(b.qualifiers[i]);
+    }
+
+    /**
+     * 较长版本多出的一段与"缺失"相比：非零数字更大，预发布限定词更小
+     */
+    private static int compareToMissing(GenericVersion v, int i) {
+        if (v.qualifiers[i] == null) {
+            return v.numbers[i] > 0 ? 1 : 0;
+        }
+        return Integer.compare(qualifierRank(v.qualifiers[i]), RELEASE_RANK);
+    }
+
+    private static int qualifierRank(String qualifier) {
+        return switch (qualifier) {
+            case "alpha", "a" -> 1;
+            case "beta", "b" -> 2;
+            case "milestone", "m" -> 3;
+            case "rc", "cr", "pre", "preview" -> 4;
+            case "snapshot", "dev" -> 5;
+            case "ga", "final", "release" -> RELEASE_RANK;
+            case "sp" -> 8;
+            default -> 7;
+        };
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == '-' || c == '_';
+    }
+
+    private static long parseNumber(String token) {
+        if (token.length() > 18) {
+            return Long.MAX_VALUE;
+        }
+        return Long.parseLong(token);
+    }
+}
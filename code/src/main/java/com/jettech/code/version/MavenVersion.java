@@ -0,0 +1,269 @@
+package com.jettech.code.version;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maven 版本号，排序规则与 Maven 3.9 的 org.apache.maven.artifact.versioning.ComparableVersion 一致：
+ * '.' 分隔同级段，'-' 及数字/字母切换开启子列表；末尾的 0 和正式版限定词被忽略；
+ * '.' 后的限定词与 '-' 后的相同（1.0.RC1 等于 1.0-RC1，1.0.M1 < 1.0-RC1）；
+ * 限定词顺序 alpha < beta < milestone < rc < snapshot < "" (ga/final/release) < sp，未知限定词排在其后按字母序
+ *
+ * 解析时构建不可变的段树并预先计算限定词的比较键，比较时只遍历数组
+ */
+final class MavenVersion implements Version {
+
+    private static final String[] QUALIFIERS = {"alpha", "beta", "milestone", "rc", "snapshot", "", "sp"};
+    private static final String RELEASE_VERSION_INDEX = "5";
+
+    private static final int INT = 0;
+    private static final int STRING = 1;
+    private static final int LIST = 2;
+
+    private final String raw;
+    private final Item root;
+
+    private MavenVersion(String raw, Item root) {
+        this.raw = raw;
+        this.root = root;
+    }
+
+    static Version parse(String raw) {
+        String version = raw.trim().toLowerCase(Locale.ROOT);
+
+        MutableList list = new MutableList();
+        MutableList rootList = list;
+        Deque<MutableList> stack = new ArrayDeque<>();
+        stack.push(list);
+
+        boolean isDigit = false;
+        int startIndex = 0;
+
+        for (int i = 0; i < version.length(); i++) {
+            char c = version.charAt(i);
+
+            if (c == '.') {
+                list.items.add(i == startIndex ? Item.ZERO : parseItem(isDigit, version.substring(startIndex, i)));
+                startIndex = i + 1;
+            } else if (c == '-') {
+                list.items.add(i == startIndex ? Item.ZERO : parseItem(isDigit, version.substring(startIndex, i)));
+                startIndex = i + 1;
+                list = push(list, stack);
+            } else if (Character.isDigit(c)) {
+                if (!isDigit && i > startIndex) {
+                    // .X1 与 -X1 相同
+                    if (!list.items.isEmpty()) {
+                        list = push(list, stack);
+                    }
+                    list.items.add(stringItem(version.substring(startIndex, i), true));
+                    startIndex = i;
+                    list = push(list, stack);
+                }
+                isDigit = true;
+            } else {
+                if (isDigit && i > startIndex) {
+                    list.items.add(parseItem(true, version.substring(startIndex, i)));
+                    startIndex = i;
+                    list = push(list, stack);
+                }
+                isDigit = false;
+            }
+        }
+
+        if (version.length() > startIndex) {
+            // 末尾的 .X 与 -X 相同
+            if (!isDigit && !list.items.isEmpty()) {
+                list = push(list, stack);
+            }
+            list.items.add(parseItem(isDigit, version.substring(startIndex)));
+        }
+
+        while (!stack.isEmpty()) {
+            stack.pop().normalize();
+        }
+
+        return new MavenVersion(raw, rootList.freeze());
+    }
+
+    private static MutableList push(MutableList list, Deque<MutableList> stack) {
+        MutableList child = new MutableList();
+        list.items.add(child);
+        stack.push(child);
+        return child;
+    }
+
+    @Override
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public int compareTo(Version version) {
+        if (!(version instanceof MavenVersion other)) {
+            return Version.compareMixed(this, version);
+        }
+        return root.compareTo(other.root);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MavenVersion other && compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return root.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+
+    private static Item parseItem(boolean isDigit, String buf) {
+        if (isDigit) {
+            String digits = buf.replaceFirst("^0+(?=.)", "");
+            return new Item(INT, digits.length() > 18 ? Long.MAX_VALUE : Long.parseLong(digits), null, null);
+        }
+        return stringItem(buf, false);
+    }
+
+    private static Item stringItem(String value, boolean followedByDigit) {
+        if (followedByDigit && value.length() == 1) {
+            switch (value.charAt(0)) {
+                case 'a' -> value = "alpha";
+                case 'b' -> value = "beta";
+                case 'm' -> value = "milestone";
+                default -> { }
+            }
+        }
+        value = switch (value) {
+            case "ga", "final", "release" -> "";
+            case "cr" -> "rc";
+            default -> value;
+        };
+        return new Item(STRING, 0, comparableQualifier(value), null);
+    }
+
+    private static String comparableQualifier(String qualifier) {
+        for (int i = 0; i < QUALIFIERS.length; i++) {
+            if (QUALIFIERS[i].equals(qualifier)) {
+                return String.valueOf(i);
+            }
+        }
+        return QUALIFIERS.length + "-" + qualifier;
+    }
+
+    /**
+     * 解析期间使用的可变列表，normalize 后冻结为 Item
+     */
+    private static final class MutableList {
+        private final List<Object> items = new ArrayList<>();
+
+        /**
+         * 从末尾去掉"空"段（0、正式版限定词、空列表），遇到非列表的有效段停止
+         */
+        void normalize() {
+            for (int i = items.size() - 1; i >= 0; i--) {
+                Object last = items.get(i);
+                if (isNull(last)) {
+                    items.remove(i);
+                } else if (!(last instanceof MutableList)) {
+                    break;
+                }
+            }
+        }
+
+        Item freeze() {
+            Item[] children = new Item[items.size()];
+            for (int i = 0; i < items.size(); i++) {
+                Object item = items.get(i);
+                children[i] = item instanceof MutableList child ? child.freeze() : (Item) item;
+            }
+            return new Item(LIST, 0, null, children);
+        }
+
+        private static boolean isNull(Object item) {
+            if (item instanceof MutableList list) {
+                return list.items.isEmpty();
+            }
+            Item value = (Item) item;
+            return value.kind == INT ? value.number == 0 : RELEASE_VERSION_INDEX.equals(value.qualifier);
+        }
+    }
+
+    private static final class Item {
+        static final Item ZERO = new Item(INT, 0, null, null);
+        static final Item EMPTY = new Item(LIST, 0, null, new Item[0]);
+
+        private final int kind;
+        private final long number;
+        private final String qualifier;
+        private final Item[] children;
+
+        Item(int kind, long number, String qualifier, Item[] children) {
+            this.kind = kind;
+            this.number = number;
+            this.qualifier = qualifier;
+            this.children = children;
+        }
+
+        /**
+         * 与 ComparableVersion 的 Item.compareTo 相同，other 为 null 表示缺失的段
+         */
+        int compareTo(Item other) {
+            if (other == null) {
+                return switch (kind) {
+                    case INT -> number == 0 ? 0 : 1;
+                    case STRING -> qualifier.compareTo(RELEASE_VERSION_INDEX);
+                    default -> compareLists(EMPTY);
+                };
+            }
+
+            return switch (kind) {
+                case INT -> other.kind == INT ? Long.compare(number, other.number) : 1;
+                case STRING -> switch (other.kind) {
+                    case INT -> -1;
+                    case STRING -> qualifier.compareTo(other.qualifier);
+                    default -> -1;
+                };
+                default -> switch (other.kind) {
+                    case INT -> -1;
+                    case STRING -> 1;
+                    default -> compareLists(other);
+                };
+            };
+        }
+
+        private int compareLists(Item other) {
+            int length = Math.max(children.length, other.children.length);
+            for (int i = 0; i < length; i++) {
+                Item left = i < children.length ? children[i] : null;
+                Item right = i < other.children.length ? other.children[i] : null;
+                int result = left == null ? (right == null ? 0 : -right.compareTo(null)) : left.compareTo(right);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return switch (kind) {
+                case INT -> Long.hashCode(number);
+                case STRING -> qualifier.hashCode();
+                default -> {
+                    int hash = 1;
+                    for (Item child : children) {
+                        hash = 31 * hash + child.hashCode();
+                    }
+                    yield hash;
+                }
+            };
+        }
+    }
+}
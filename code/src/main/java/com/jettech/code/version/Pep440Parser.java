@@ -0,0 +1,114 @@
+package com.jettech.code.version;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PEP 440 版本解析（PyPI）
+ * 排序: epoch, release（忽略末尾的 0）, 预发布(a < b < rc), 后发布, 开发版, 本地版本；
+ * 仅带 .devN 的版本低于同一 release 的所有预发布版本
+ *
+ * 编码: epoch, release..., -1, [预发布类型, 号], [后发布标记, 号], [开发版标记, 号], 本地版本
+ */
+final class Pep440Parser {
+
+    private static final Pattern PATTERN = Pattern.compile(
+        "^v?(?:(?<epoch>[0-9]+)!)?(?<release>[0-9]+(?:\\.[0-9]+)*)"
+            + "(?<pre>[-_.]?(?<prel>alpha|a|beta|b|preview|pre|c|rc)[-_.]?(?<pren>[0-9]+)?)?"
+            + "(?<post>-(?<postn1>[0-9]+)|[-_.]?(?<postl>post|rev|r)[-_.]?(?<postn2>[0-9]+)?)?"
+            + "(?<dev>[-_.]?dev[-_.]?(?<devn>[0-9]+)?)?"
+            + "(?:\\+(?<local>[a-z0-9]+(?:[-_.][a-z0-9]+)*))?$");
+
+    private static final long RELEASE_END = -1;
+    private static final long DEV_ONLY = 0;
+    private static final long ALPHA = 1;
+    private static final long BETA = 2;
+    private static final long RC = 3;
+    private static final long NO_PRE = 4;
+
+    private Pep440Parser() {
+    }
+
+    /**
+     * @return 不是合法的 PEP 440 版本时返回 null
+     */
+    static Version parse(String raw) {
+        Matcher m = PATTERN.matcher(raw.trim().toLowerCase(Locale.ROOT));
+        if (!m.matches()) {
+            return null;
+        }
+
+        TokenVersion.Builder builder = TokenVersion.builder(raw);
+        builder.add(m.group("epoch") != null ? number(m.group("epoch")) : 0);
+
+        String[] release = m.group("release").split("\\.");
+        int end = release.length;
+        while (end > 1 && number(release[end - 1]) == 0) {
+            end--;
+        }
+        for (int i = 0; i < end; i++) {
+            builder.add(number(release[i]));
+        }
+        builder.add(RELEASE_END);
+
+        boolean hasPre = m.group("pre") != null;
+        boolean hasPost = m.group("post") != null;
+        boolean hasDev = m.group("dev") != null;
+
+        if (hasPre) {
+            builder.add(preKind(m.group("prel"))).add(number(m.group("pren")));
+        } else if (!hasPost && hasDev) {
+            builder.add(DEV_ONLY).add(0);
+        } else {
+            builder.add(NO_PRE).add(0);
+        }
+
+        if (hasPost) {
+            String postNumber = m.group("postn1") != null ? m.group("postn1") : m.group("postn2");
+            builder.add(1).add(number(postNumber));
+        } else {
+            builder.add(0).add(0);
+        }
+
+        if (hasDev) {
+            builder.add(0).add(number(m.group("devn")));
+        } else {
+            builder.add(1).add(0);
+        }
+
+        String local = m.group("local");
+        if (local == null) {
+            builder.add(0);
+        } else {
+            // 本地版本各段：数字段高于文本段，段数多者更大
+            builder.add(1);
+            for (String segment : local.split("[-_.]")) {
+                long value = SemverParser.parseNumber(segment);
+                if (value >= 0) {
+                    builder.add(2).add(value);
+                } else {
+                    builder.add(1).add(0, segment);
+                }
+            }
+            builder.add(0);
+        }
+
+        return builder.build();
+    }
+
+    private static long preKind(String label) {
+        return switch (label) {
+            case "a", "alpha" -> ALPHA;
+            case "b", "beta" -> BETA;
+            default -> RC;
+        };
+    }
+
+    private static long number(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return value.length() > 18 ? Long.MAX_VALUE : Long.parseLong(value);
+    }
+}
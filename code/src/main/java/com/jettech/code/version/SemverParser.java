@@ -0,0 +1,104 @@
+package com.jettech.code.version;
+
+import java.util.regex.Pattern;
+
+/**
+ * SemVer 2.0 版本解析（npm 及 Go 模块）
+ * 预发布版本低于正式版；预发布标识符逐个比较，数字标识符低于文本标识符，标识符更多者更大；
+ * 构建元数据（+ 之后）不参与比较
+ *
+ * 编码: major, minor, patch, 正式版 1 / 预发布 0, [标识符类型, 值]..., 0
+ */
+final class SemverParser {
+
+    private static final long RELEASE = 1;
+    private static final long PRERELEASE = 0;
+    private static final long END = 0;
+    private static final long NUMERIC = 1;
+    private static final long ALPHANUMERIC = 2;
+
+    // Go 伪版本中的 "yyyymmddhhmmss-提交哈希" 标识符
+    private static final Pattern GO_PSEUDO = Pattern.compile("(\\d{14})-[0-9a-f]{12}");
+
+    private SemverParser() {
+    }
+
+    /**
+     * @param go 是否按 Go 模块规则处理伪版本
+     * @return 不是合法的（宽松）SemVer 时返回 null
+     */
+    static Version parse(String raw, boolean go) {
+        String value = raw.trim();
+        if (value.startsWith("v") || value.startsWith("V") || value.startsWith("=")) {
+            value = value.substring(1);
+        }
+        int plus = value.indexOf('+');
+        if (plus >= 0) {
+            // Go 的 +incompatible 与 SemVer 构建元数据一样不参与比较
+            value = value.substring(0, plus);
+        }
+
+        int dash = value.indexOf('-');
+        String core = dash >= 0 ? value.substring(0, dash) : value;
+        String prerelease = dash >= 0 ? value.substring(dash + 1) : null;
+
+        String[] parts = core.split("\\.", -1);
+        if (parts.length == 0 || parts.length > 3) {
+            return null;
+        }
+
+        TokenVersion.Builder builder = TokenVersion.builder(raw);
+        for (int i = 0; i < 3; i++) {
+            if (i >= parts.length) {
+                builder.add(0);
+                continue;
+            }
+            long number = parseNumber(parts[i]);
+            if (number < 0) {
+                return null;
+            }
+            builder.add(number);
+        }
+
+        if (prerelease == null) {
+            return builder.add(RELEASE).build();
+        }
+        if (prerelease.isEmpty()) {
+            return null;
+        }
+
+        builder.add(PRERELEASE);
+        for (String identifier : prerelease.split("\\.")) {
+            if (go) {
+                var pseudo = GO_PSEUDO.matcher(identifier);
+                if (pseudo.matches()) {
+                    // 伪版本按时间戳排序，提交哈希不影响先后
+                    builder.add(NUMERIC).add(Long.parseLong(pseudo.group(1)));
+                    continue;
+                }
+            }
+            long number = parseNumber(identifier);
+            if (number >= 0) {
+                builder.add(NUMERIC).add(number);
+            } else {
+                builder.add(ALPHANUMERIC).add(0, identifier);
+            }
+        }
+        return builder.add(END).build();
+    }
+
+    /**
+     * 解析非负整数，不是纯数字时返回 -1
+     */
+    static long parseNumber(String value) {
+        if (value.isEmpty()) {
+            return -1;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return -1;
+            }
+        }
+        return value.length() > 18 ? Long.MAX_VALUE : Long.parseLong(value);
+    }
+}
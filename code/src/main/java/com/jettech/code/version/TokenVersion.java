@@ -0,0 +1,107 @@
+package com.jettech.code.version;
+
+import java.util.Arrays;
+
+/**
+ * 编码为定长令牌序列的版本号
+ * 解析器负责把方案的排序规则编码为令牌（含结束标记），比较时逐个比较 long，
+ * 两侧都带文本的位置再按文本比较，整个过程不分配对象
+ */
+final class TokenVersion implements Version {
+
+    private final String raw;
+    private final long[] tokens;
+    // 与 tokens 等长，仅文本标识符所在位置非 null；全部为数字时为 null
+    private final String[] texts;
+
+    private TokenVersion(String raw, long[] tokens, String[] texts) {
+        this.raw = raw;
+        this.tokens = tokens;
+        this.texts = texts;
+    }
+
+    @Override
+    public String getRaw() {
+        return raw;
+    }
+
+    @Override
+    public int compareTo(Version version) {
+        if (!(version instanceof TokenVersion other)) {
+            return Version.compareMixed(this, version);
+        }
+        int length = Math.min(tokens.length, other.tokens.length);
+        for (int i = 0; i < length; i++) {
+            int result = Long.compare(tokens[i], other.tokens[i]);
+            if (result != 0) {
+                return result;
+            }
+            if (texts != null && other.texts != null && texts[i] != null && other.texts[i] != null) {
+                result = texts[i].compareTo(other.texts[i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+        }
+        return Integer.compare(tokens.length, other.tokens.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TokenVersion other && compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(tokens) * 31 + Arrays.hashCode(texts);
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+
+    static Builder builder(String raw) {
+        return new Builder(raw);
+    }
+
+    static final class Builder {
+        private final String raw;
+        private long[] tokens = new long[8];
+        private String[] texts;
+        private int size;
+
+        private Builder(String raw) {
+            this.raw = raw;
+        }
+
+        Builder add(long token) {
+            ensureCapacity();
+            tokens[size++] = token;
+            return this;
+        }
+
+        Builder add(long token, String text) {
+            ensureCapacity();
+            if (texts == null) {
+                texts = new String[tokens.length];
+            }
+            texts[size] = text;
+            tokens[size++] = token;
+            return this;
+        }
+
+        TokenVersion build() {
+            return new TokenVersion(raw, Arrays.copyOf(tokens, size), texts != null ? Arrays.copyOf(texts, size) : null);
+        }
+
+        private void ensureCapacity() {
+            if (size == tokens.length) {
+                tokens = Arrays.copyOf(tokens, size * 2);
+                if (texts != null) {
+                    texts = Arrays.copyOf(texts, size * 2);
+                }
+            }
+        }
+    }
+}
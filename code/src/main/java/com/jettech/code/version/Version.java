@@ -0,0 +1,19 @@
+package com.jettech.code.version;
+
+/**
+ * 已解析的版本号
+ * 同一版本方案内的实现之间比较不分配对象；不同方案混合比较时退化为通用规则
+ */
+public interface Version extends Comparable<Version> {
+
+    String getRaw();
+
+    /**
+     * 不同实现之间的兜底比较
+     */
+    static int compareMixed(Version a, Version b) {
+        GenericVersion left = a instanceof GenericVersion g ? g : GenericVersion.parse(a.getRaw());
+        GenericVersion right = b instanceof GenericVersion g ? g : GenericVersion.parse(b.getRaw());
+        return left.compareTo(right);
+    }
+}
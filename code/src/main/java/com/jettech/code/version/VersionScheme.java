@@ -0,0 +1,76 @@
+package com.jettech.code.version;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 各生态系统的版本比较方案
+ * 解析结果按方案缓存，同一版本字符串在整个进程内只解析一次；不符合方案语法的版本退化为 GenericVersion
+ *
+ * 使用示例:
+ * <pre>
+ * VersionScheme scheme = VersionScheme.forEcosystem("Maven");
+ * scheme.parse("1.0-rc1").compareTo(scheme.parse("1.0")) &lt; 0
+ * </pre>
+ */
+public enum VersionScheme {
+
+    MAVEN(MavenVersion::parse),
+    SEMVER(raw -> SemverParser.parse(raw, false)),
+    GO(raw -> SemverParser.parse(raw, true)),
+    PEP440(Pep440Parser::parse),
+    GENERIC(GenericVersion::parse);
+
+    /**
+     * 每个方案缓存的版本数上限，超过后整体清空重建，避免无界增长
+     */
+    private static final int MAX_CACHED_VERSIONS = 50_000;
+
+    private final Function<String, Version> parser;
+    private final Map<String, Version> cache = new ConcurrentHashMap<>();
+
+    VersionScheme(Function<String, Version> parser) {
+        this.parser = parser;
+    }
+
+    public static VersionScheme forEcosystem(String ecosystem) {
+        if (ecosystem == null) {
+            return GENERIC;
+        }
+        return switch (ecosystem.toLowerCase(Locale.ROOT)) {
+            case "maven" -> MAVEN;
+            case "npm", "crates.io", "nuget" -> SEMVER;
+            case "go" -> GO;
+            case "pypi" -> PEP440;
+            default -> GENERIC;
+        };
+    }
+
+    public Version parse(String version) {
+        String raw = version == null ? "" : version;
+        Version cached = cache.get(raw);
+        if (cached != null) {
+            return cached;
+        }
+
+        Version parsed = parser.apply(raw);
+        if (parsed == null) {
+            parsed = GenericVersion.parse(raw);
+        }
+        if (cache.size() >= MAX_CACHED_VERSIONS) {
+            cache.clear();
+        }
+        cache.put(raw, parsed);
+        return parsed;
+    }
+
+    public int compare(String left, String right) {
+        return parse(left).compareTo(parse(right));
+    }
+
+    public int getCachedCount() {
+        return cache.size();
+    }
+}
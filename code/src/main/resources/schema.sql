@@ -63,10 +63,12 @@ CREATE TABLE IF NOT EXISTS dependency (
     purl VARCHAR(500),
     file_path VARCHAR(500),
     checksum VARCHAR(255),
+    coordinate_id BIGINT NULL COMMENT '全局依赖坐标ID（dependency_coordinate）',
     created_at DATETIME NOT NULL,
     FOREIGN KEY (service_id) REFERENCES service(id) ON DELETE CASCADE,
     INDEX idx_service_id (service_id),
     INDEX idx_name (name),
+    INDEX idx_coordinate_id (coordinate_id),
     INDEX idx_license_status (license_status)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -283,3 +285,65 @@ CREATE TABLE IF NOT EXISTS code_quality_task (
     INDEX idx_status (status),
     INDEX idx_opencode_session (opencode_session_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='代码质量扫描任务表';
+
+-- =====================================================
+-- 14. 服务依赖清单指纹表
+-- 已有数据库升级：ALTER TABLE service_manifest ADD UNIQUE KEY uk_service_file (service_id, file_path);
+-- =====================================================
+CREATE TABLE IF NOT EXISTS service_manifest (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    service_id BIGINT NOT NULL COMMENT '服务ID',
+    file_path VARCHAR(500) NOT NULL COMMENT '清单文件相对路径',
+    content_hash VARCHAR(64) NOT NULL COMMENT '文件内容SHA-256',
+    updated_at DATETIME NOT NULL,
+    FOREIGN KEY (service_id) REFERENCES service(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_service_file (service_id, file_path)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='服务依赖清单指纹表';
+
+-- =====================================================
+-- 15. 许可证解析缓存表
+-- =====================================================
+CREATE TABLE IF NOT EXISTS license_cache (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ecosystem VARCHAR(50) NOT NULL COMMENT '依赖类型: maven, npm, pypi, golang',
+    package_name VARCHAR(255) NOT NULL,
+    version VARCHAR(100) NOT NULL DEFAULT '',
+    source VARCHAR(20) NOT NULL COMMENT '来源层级: file, registry, depsdev',
+    license VARCHAR(255) NOT NULL DEFAULT '' COMMENT '空字符串表示未查到',
+    created_at DATETIME NOT NULL,
+    expires_at DATETIME NOT NULL,
+    UNIQUE KEY uk_coordinate (ecosystem, package_name, version, source),
+    INDEX idx_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='许可证解析缓存表';
+
+-- =====================================================
+-- 16. 依赖关系表
+-- =====================================================
+CREATE TABLE IF NOT EXISTS dependency_edge (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    service_id BIGINT NOT NULL COMMENT '服务ID',
+    parent_id BIGINT NULL COMMENT '引入方依赖ID，为空表示项目直接依赖',
+    child_id BIGINT NOT NULL COMMENT '被引入的依赖ID',
+    created_at DATETIME NOT NULL,
+    FOREIGN KEY (service_id) REFERENCES service(id) ON DELETE CASCADE,
+    FOREIGN KEY (parent_id) REFERENCES dependency(id) ON DELETE CASCADE,
+    FOREIGN KEY (child_id) REFERENCES dependency(id) ON DELETE CASCADE,
+    INDEX idx_service_id (service_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='依赖关系表';
+
+-- =====================================================
+-- 17. 全局依赖坐标表
+-- 已有数据库升级：ALTER TABLE dependency ADD COLUMN coordinate_id BIGINT NULL AFTER checksum, ADD INDEX idx_coordinate_id (coordinate_id);
+-- =====================================================
+CREATE TABLE IF NOT EXISTS dependency_coordinate (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    ecosystem VARCHAR(50) NOT NULL COMMENT '依赖类型: maven, npm, pypi, golang',
+    name VARCHAR(255) COLLATE utf8mb4_bin NOT NULL COMMENT '区分大小写，与解析结果逐字对应',
+    version VARCHAR(100) COLLATE utf8mb4_bin NOT NULL DEFAULT '',
+    license VARCHAR(255) NULL COMMENT '已解析的许可证，为空表示未解析',
+    license_checked_at DATETIME NULL,
+    vulnerabilities LONGTEXT NULL COMMENT '匹配到的漏洞 JSON，为空表示未检查',
+    vulnerability_checked_at DATETIME NULL,
+    created_at DATETIME NOT NULL,
+    UNIQUE KEY uk_coordinate (ecosystem, name, version)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='全局依赖坐标表';
@@ -59,7 +59,9 @@ if [ ! -f "$JAR_FILE" ]; then
 fi
 
 LOG_FILE="$WORKSPACE/logs/backend.log"
-nohup java -jar "$JAR_FILE" > "$LOG_FILE" 2>&1 &
+# JDK HttpClient 空闲连接保活时间（JVM 级配置，只能通过启动参数设置）
+JAVA_OPTS="-Djdk.httpclient.keepalive.timeout=${HTTP_KEEPALIVE_SECONDS:-120} $JAVA_OPTS"
+nohup java $JAVA_OPTS -jar "$JAR_FILE" > "$LOG_FILE" 2>&1 &
 BACKEND_PID=$!
 
 echo "Backend started (PID: $BACKEND_PID)"
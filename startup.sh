@@ -60,4 +60,6 @@ echo "Press Ctrl+C to stop"
 echo "========================================="
 
 cd "$PROJECT_ROOT/code"
-exec java -jar "$JAR_FILE"
+# JDK HttpClient 空闲连接保活时间（JVM 级配置，只能通过启动参数设置）
+JAVA_OPTS="-Djdk.httpclient.keepalive.timeout=${HTTP_KEEPALIVE_SECONDS:-120} $JAVA_OPTS"
+exec java $JAVA_OPTS -jar "$JAR_FILE"